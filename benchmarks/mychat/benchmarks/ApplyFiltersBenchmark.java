@@ -0,0 +1,57 @@
+package mychat.benchmarks;
+
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.filter.Filter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Conversation#applyFilters} with the filters of the default arguments of the exporter.
+ * The conversation is created again before each invocation, since filtering removes its messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyFiltersBenchmark {
+
+    @Param({"10000", "100000"})
+    public int messages;
+
+    @Param({"10", "1000"})
+    public int users;
+
+    @Param({"40"})
+    public int contentLength;
+
+    private List<Message> generated;
+    private List<Filter> filters;
+    private Conversation conversation;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generated = new ChatLogGenerator(messages, users, contentLength, 42).messages();
+        filters = FilterBenchmark.defaultFilters();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        List<Message> copy = new ArrayList<>(generated.size());
+        for (Message message : generated) {
+            copy.add(new Message(message.getTimestamp(), message.getSenderId(), message.getContent()));
+        }
+        conversation = new Conversation("Synthetic conversation", copy);
+    }
+
+    @Benchmark
+    public Conversation applyFilters() {
+        conversation.applyFilters(filters);
+        return conversation;
+    }
+}
@@ -0,0 +1,111 @@
+package mychat.benchmarks;
+
+import mychat.conversation.Message;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic conversations in the {@code <timestamp> <user> <message>} format.
+ * Messages are made of common words, with now and then one of the words the benchmarks look for:
+ * the {@link #KEYWORD}, the {@link #BLACKLISTED_WORD}, a credit card number or a telephone number.
+ * The same seed always gives the same conversation.
+ */
+public final class ChatLogGenerator {
+
+    public static final String KEYWORD = "there";
+    public static final String BLACKLISTED_WORD = "Hello";
+
+    private static final String[] WORDS = {
+            "the", "a", "meeting", "is", "at", "noon", "lunch", "pie", "society", "report", "coffee",
+            "today", "tomorrow", "thanks", "ok", "sounds", "good", "see", "you", "later", "about", "project"
+    };
+    private static final String[] RARE_WORDS = {
+            KEYWORD, BLACKLISTED_WORD, "4111 1111 1111 1111", "07700900123"
+    };
+
+    /**
+     * The chance of a word being one of the rare words
+     */
+    private static final double RARE_WORD_RATE = 0.02;
+
+    private static final long FIRST_TIMESTAMP = 1448470901;
+
+    private final int messages;
+    private final int users;
+    private final int contentLength;
+    private final long seed;
+
+    /**
+     * @param messages the number of messages
+     * @param users the number of users sending them
+     * @param contentLength the length of the content of each message, roughly
+     * @param seed the seed of the random words
+     */
+    public ChatLogGenerator(int messages, int users, int contentLength, long seed) {
+        this.messages = messages;
+        this.users = users;
+        this.contentLength = contentLength;
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the id of one of the generated users.
+     * @param index the index of the user
+     * @return the id of the user
+     */
+    public static String user(int index) {
+        return "user" + index;
+    }
+
+    /**
+     * Generates the messages of the conversation.
+     * @return the messages
+     */
+    public List<Message> messages() {
+        Random random = new Random(seed);
+        List<Message> list = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            list.add(new Message(Instant.ofEpochSecond(FIRST_TIMESTAMP + i), user(random.nextInt(users)), content(random)));
+        }
+        return list;
+    }
+
+    /**
+     * Writes the conversation to a file.
+     * @param file the file to write
+     * @return the file
+     * @throws IOException thrown when the file cannot be written
+     */
+    public Path write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Synthetic conversation");
+            writer.newLine();
+            for (Message message : messages()) {
+                writer.write(message.getTimestamp().getEpochSecond() + " " + message.getSenderId() + " " + message.getContent());
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    private String content(Random random) {
+        StringBuilder content = new StringBuilder(contentLength + 20);
+        while (content.length() < contentLength) {
+            if (content.length() > 0) {
+                content.append(' ');
+            }
+            content.append(random.nextDouble() < RARE_WORD_RATE
+                    ? RARE_WORDS[random.nextInt(RARE_WORDS.length)]
+                    : WORDS[random.nextInt(WORDS.length)]);
+        }
+        return content.toString();
+    }
+}
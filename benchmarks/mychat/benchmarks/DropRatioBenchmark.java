@@ -0,0 +1,81 @@
+package mychat.benchmarks;
+
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.MessageStore;
+import mychat.filter.Filter;
+import mychat.filter.KeywordFinderFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Conversation#applyFilters} as the share of the messages dropped grows, for conversations held
+ * in a list and in a {@link MessageStore}. The time should grow linearly with the number of messages whatever
+ * the share dropped, since no message is moved more than once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DropRatioBenchmark {
+
+    private static final String KEPT = "kept";
+
+    @Param({"100000", "1000000"})
+    public int messages;
+
+    /**
+     * The percentage of the messages dropped by the filter
+     */
+    @Param({"0", "50", "90", "99"})
+    public int dropped;
+
+    @Param({"list", "store"})
+    public String storage;
+
+    private List<Message> generated;
+    private List<Filter> filters;
+    private Conversation conversation;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generated = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            // the dropped messages are spread over the whole conversation
+            boolean kept = (i * 37) % 100 >= dropped;
+            generated.add(new Message(Instant.ofEpochSecond(1448470901L + i), ChatLogGenerator.user(i % 100),
+                    (kept ? KEPT : "dropped") + " message " + i));
+        }
+        filters = Collections.singletonList(new KeywordFinderFilter(KEPT));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        if (storage.equals("store")) {
+            MessageStore store = new MessageStore();
+            for (Message message : generated) {
+                store.add(message);
+            }
+            conversation = new Conversation("Synthetic conversation", store);
+        } else {
+            List<Message> copy = new ArrayList<>(generated.size());
+            for (Message message : generated) {
+                copy.add(new Message(message.getTimestamp(), message.getSenderId(), message.getContent()));
+            }
+            conversation = new Conversation("Synthetic conversation", copy);
+        }
+    }
+
+    @Benchmark
+    public Conversation applyFilters() {
+        conversation.applyFilters(filters);
+        return conversation;
+    }
+}
@@ -0,0 +1,103 @@
+package mychat.benchmarks;
+
+import mychat.conversation.Message;
+import mychat.filter.*;
+import mychat.filter.obfuscate.PiiObfuscateFilter;
+import mychat.filter.obfuscate.Pseudonymizer;
+import mychat.filter.obfuscate.UserPseudonymFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each {@link Filter} on its own, over the messages of a synthetic conversation.
+ * Each message is copied before it is filtered, so that rewriting filters always see the original content.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"user", "keyword", "keywordList", "blacklist", "stringReplacer", "pii", "userPseudonym", "chain"})
+    public String filter;
+
+    @Param({"10000"})
+    public int messages;
+
+    @Param({"100"})
+    public int users;
+
+    @Param({"40", "400"})
+    public int contentLength;
+
+    private Filter instance;
+    private Message[] conversation;
+
+    @Setup
+    public void setUp() {
+        instance = create(filter);
+        List<Message> generated = new ChatLogGenerator(messages, users, contentLength, 42).messages();
+        conversation = generated.toArray(new Message[generated.size()]);
+    }
+
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        for (Message message : conversation) {
+            Message copy = new Message(message.getTimestamp(), message.getSenderId(), message.getContent());
+            blackhole.consume(instance.apply(copy));
+        }
+    }
+
+    /**
+     * Creates the filter given on the command line for the same name
+     */
+    static Filter create(String name) {
+        switch (name) {
+            case "user":
+                return new UserFilter(ChatLogGenerator.user(0));
+            case "keyword":
+                return new KeywordFinderFilter(ChatLogGenerator.KEYWORD);
+            case "keywordList":
+                return new KeywordFinderFilter(Arrays.asList(ChatLogGenerator.KEYWORD, "pie", "society"), true, true);
+            case "blacklist":
+                return new BlacklistFilter(Arrays.asList(ChatLogGenerator.BLACKLISTED_WORD, "coffee"));
+            case "stringReplacer":
+                return new StringReplacer(ChatLogGenerator.BLACKLISTED_WORD);
+            case "pii":
+                return new PiiObfuscateFilter(true, true);
+            case "userPseudonym":
+                return pseudonyms();
+            case "chain":
+                return FilterChain.compile(defaultFilters());
+            default:
+                throw new IllegalArgumentException("Unknown filter '" + name + "'.");
+        }
+    }
+
+    /**
+     * The filters of the default arguments of the exporter
+     */
+    static List<Filter> defaultFilters() {
+        return Arrays.<Filter>asList(
+                new UserFilter(ChatLogGenerator.user(0)),
+                new KeywordFinderFilter(ChatLogGenerator.KEYWORD),
+                new BlacklistFilter(Arrays.asList(ChatLogGenerator.BLACKLISTED_WORD)),
+                pseudonyms(),
+                new PiiObfuscateFilter(true, true));
+    }
+
+    /**
+     * The pseudonyms of the users, of a fixed key so that every run hashes the same ids
+     */
+    static Filter pseudonyms() {
+        return new UserPseudonymFilter(new Pseudonymizer("benchmark-key".getBytes(StandardCharsets.UTF_8), null,
+                Pseudonymizer.DEFAULT_CACHE_SIZE));
+    }
+}
@@ -0,0 +1,60 @@
+package mychat.conversationexporter;
+
+import mychat.benchmarks.ChatLogGenerator;
+import mychat.conversation.Conversation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a conversation from its file and writing it out as JSON,
+ * over synthetic conversations of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExporterBenchmark {
+
+    @Param({"10000", "100000"})
+    public int messages;
+
+    @Param({"10", "1000"})
+    public int users;
+
+    @Param({"40", "400"})
+    public int contentLength;
+
+    private final ConversationExporter exporter = new ConversationExporter();
+    private Path input;
+    private Path output;
+    private Conversation conversation;
+
+    @Setup
+    public void setUp() throws IOException {
+        input = new ChatLogGenerator(messages, users, contentLength, 42).write(Files.createTempFile("chat", ".txt"));
+        output = Files.createTempFile("chat", ".json");
+        conversation = exporter.readConversation(input.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public Conversation readConversation() throws IOException {
+        return exporter.readConversation(input.toString());
+    }
+
+    @Benchmark
+    public void writeConversation() throws IOException {
+        exporter.writeConversation(conversation, output.toString());
+    }
+}
@@ -0,0 +1,49 @@
+package mychat.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression format conversations can be read from and written to as streams.
+ * Codecs other than the ones of the JDK can be plugged in by listing their class in a
+ * {@code META-INF/services/mychat.codec.Codec} file on the class path.
+ */
+public interface Codec {
+
+    /**
+     * Gets the name of the codec, as given on the command line.
+     * @return the name of the codec
+     */
+    String getName();
+
+    /**
+     * Gets the extension of the files compressed with this codec.
+     * @return the extension, without the dot
+     */
+    String getExtension();
+
+    /**
+     * Checks whether data starts with the magic bytes of this codec.
+     * @param header the first bytes of the data, up to a few kilobytes
+     * @param length the number of bytes in {@code header}, which may be less than its length for short data
+     * @return true if the data is compressed with this codec
+     */
+    boolean matches(byte[] header, int length);
+
+    /**
+     * Decompresses a stream as it is read.
+     * @param in the compressed stream, which is closed with the returned stream
+     * @return the decompressed stream
+     * @throws IOException thrown when the header of the stream cannot be read
+     */
+    InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * Compresses a stream as it is written.
+     * @param out the stream the compressed data is written to, which is closed with the returned stream
+     * @return the stream to write the data to
+     * @throws IOException thrown when the header of the stream cannot be written
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+}
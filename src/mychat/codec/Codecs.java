@@ -0,0 +1,83 @@
+package mychat.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Finds the codecs of the JDK and the ones plugged in through {@link ServiceLoader}.
+ */
+public final class Codecs {
+
+    /**
+     * The number of bytes looked at to detect a codec, enough for a codec to check its guess on a sample of the data
+     */
+    private static final int HEADER_SIZE = 1 << 12;
+
+    private static final List<Codec> CODECS = load();
+
+    private Codecs() {
+    }
+
+    /**
+     * Gets all the codecs, the ones of the JDK first.
+     * @return the codecs
+     */
+    public static List<Codec> all() {
+        return CODECS;
+    }
+
+    /**
+     * Gets a codec by name.
+     * @param name the name of the codec
+     * @return the codec
+     * @throws IllegalArgumentException Thrown when there is no codec with this name
+     */
+    public static Codec of(String name) throws IllegalArgumentException {
+        List<String> names = new ArrayList<>();
+        for (Codec codec : CODECS) {
+            if (codec.getName().equalsIgnoreCase(name)) {
+                return codec;
+            }
+            names.add(codec.getName());
+        }
+        throw new IllegalArgumentException("The codec '" + name + "' is not one of " + String.join(", ", names) + ".");
+    }
+
+    /**
+     * Detects the codec a file is compressed with from its first bytes.
+     * @param path the path of the file
+     * @return the codec, or null when the file is not compressed
+     * @throws IOException thrown when the file cannot be read
+     */
+    public static Codec detect(Path path) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int read; length < header.length && (read = in.read(header, length, header.length - length)) > 0; ) {
+                length += read;
+            }
+        }
+        for (Codec codec : CODECS) {
+            if (codec.matches(header, length)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private static List<Codec> load() {
+        List<Codec> codecs = new ArrayList<>();
+        codecs.add(new GzipCodec());
+        codecs.add(new DeflateCodec());
+        for (Codec codec : ServiceLoader.load(Codec.class)) {
+            codecs.add(codec);
+        }
+        return Collections.unmodifiableList(codecs);
+    }
+}
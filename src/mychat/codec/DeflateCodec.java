@@ -0,0 +1,90 @@
+package mychat.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The zlib format of {@link java.util.zip.Deflater}, whose files start with a deflate method byte
+ * and a flag byte making the first two bytes a multiple of 31.
+ * <p>
+ * Many lines of text also start with two such bytes, so the header is only trusted when it asks for no preset
+ * dictionary, which {@link java.util.zip.Deflater} never writes, and when the first bytes of the data inflate
+ * without error.
+ */
+public final class DeflateCodec implements Codec {
+
+    private static final int DEFLATE_METHOD = 8;
+    private static final int PRESET_DICTIONARY = 0x20;
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public String getExtension() {
+        return "zz";
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        if (length < 2) {
+            return false;
+        }
+        int method = header[0] & 0xff;
+        int flags = header[1] & 0xff;
+        if ((method & 0x0f) != DEFLATE_METHOD || (method >> 4) > 7 || (method << 8 | flags) % 31 != 0
+                || (flags & PRESET_DICTIONARY) != 0) {
+            return false;
+        }
+        return inflates(header, length);
+    }
+
+    /**
+     * Checks that the first bytes of the data are a valid zlib stream, whose checksum is verified when it ends
+     * within them.
+     */
+    private static boolean inflates(byte[] header, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(header, 0, length);
+            byte[] sample = new byte[1 << 12];
+            while (!inflater.finished() && !inflater.needsInput() && !inflater.needsDictionary()) {
+                inflater.inflate(sample);
+            }
+            return !inflater.needsDictionary();
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Decompresses a stream as it is read, failing rather than ending early when the stream cannot be inflated.
+     */
+    @Override
+    public InputStream decompress(InputStream in) {
+        return new InflaterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read < 0 && inf.needsDictionary()) {
+                    throw new ZipException("The deflate stream needs a preset dictionary.");
+                }
+                return read;
+            }
+        };
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        return new DeflaterOutputStream(out);
+    }
+}
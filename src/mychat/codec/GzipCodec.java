@@ -0,0 +1,40 @@
+package mychat.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The gzip format, whose files start with the bytes {@code 1f 8b}.
+ */
+public final class GzipCodec implements Codec {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public String getExtension() {
+        return "gz";
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        return length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,151 @@
+package mychat.conversation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the messages sent by each user of a conversation.
+ * Users are numbered by a {@link SymbolTable} and counted in a primitive array, so recording
+ * a message neither allocates nor boxes.
+ */
+public final class ActivityReport {
+
+    /**
+     * The users seen so far
+     */
+    private final SymbolTable users = new SymbolTable();
+
+    /**
+     * The number of messages of each user, by ordinal
+     */
+    private int[] activity = new int[16];
+
+    /**
+     * Records a message sent by the given user
+     * @param senderId the id of the sender
+     */
+    public void record(String senderId) {
+        add(users.intern(senderId), 1);
+    }
+
+    /**
+     * Adds the activity counted by another report
+     * @param other the report to add
+     */
+    public void merge(ActivityReport other) {
+        for (int ordinal = 0; ordinal < other.users.size(); ordinal++) {
+            add(users.intern(other.users.get(ordinal)), other.activity[ordinal]);
+        }
+    }
+
+    /**
+     * Gets the users sorted from the most to the least active,
+     * users with the same activity being sorted by id
+     * @return the users by id, sorted by activity
+     */
+    public Map<String, User> getUsers() {
+        return getUsers(users.size());
+    }
+
+    /**
+     * Gets the most active users, sorted from the most to the least active,
+     * users with the same activity being sorted by id
+     * @param limit the maximum number of users
+     * @return the users by id, sorted by activity
+     */
+    public Map<String, User> getUsers(int limit) {
+        int[] top = topUsers(Math.min(limit, users.size()));
+
+        Map<String, User> sortedMap = new LinkedHashMap<>();
+        for (int ordinal : top) {
+            sortedMap.put(users.get(ordinal), new User(users.get(ordinal), activity[ordinal]));
+        }
+        return sortedMap;
+    }
+
+    /**
+     * Selects the {@code limit} most active users with a bounded heap whose root is the least
+     * active of the users kept so far.
+     * @return the ordinals of the users, from the most to the least active
+     */
+    private int[] topUsers(int limit) {
+        int[] heap = new int[limit];
+        if (limit == 0) {
+            return heap;
+        }
+
+        int size = 0;
+        for (int ordinal = 0; ordinal < users.size(); ordinal++) {
+            if (size < limit) {
+                heap[size] = ordinal;
+                siftUp(heap, size++);
+            } else if (isMoreActive(ordinal, heap[0])) {
+                heap[0] = ordinal;
+                siftDown(heap, 0, size);
+            }
+        }
+
+        // empty the heap from its least active user, filling the array from its end
+        for (int last = size - 1; last > 0; last--) {
+            int least = heap[0];
+            heap[0] = heap[last];
+            heap[last] = least;
+            siftDown(heap, 0, last);
+        }
+        return heap;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isMoreActive(heap[parent], heap[index])) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int index, int size) {
+        while (true) {
+            int least = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && isMoreActive(heap[least], heap[left])) {
+                least = left;
+            }
+            if (right < size && isMoreActive(heap[least], heap[right])) {
+                least = right;
+            }
+            if (least == index) {
+                return;
+            }
+            swap(heap, index, least);
+            index = least;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int ordinal = heap[i];
+        heap[i] = heap[j];
+        heap[j] = ordinal;
+    }
+
+    /**
+     * Checks whether a user ranks before another one in the report
+     */
+    private boolean isMoreActive(int ordinal, int other) {
+        if (activity[ordinal] != activity[other]) {
+            return activity[ordinal] > activity[other];
+        }
+        return users.get(ordinal).compareTo(users.get(other)) < 0;
+    }
+
+    private void add(int ordinal, int count) {
+        if (ordinal >= activity.length) {
+            activity = Arrays.copyOf(activity, Math.max(ordinal + 1, activity.length * 2));
+        }
+        activity[ordinal] += count;
+    }
+}
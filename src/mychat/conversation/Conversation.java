@@ -1,6 +1,7 @@
 package mychat.conversation;
 
 import mychat.filter.Filter;
+import mychat.filter.FilterChain;
 
 import java.util.*;
 
@@ -19,6 +20,11 @@ public final class Conversation {
      */
     private List<Message> messages;
 
+    /**
+     * The store holding the messages, or null when they are held by the list.
+     */
+    private transient MessageStore store;
+
     /**
      * The filters used for the conversation.
      */
@@ -27,7 +33,13 @@ public final class Conversation {
     /**
      * The users of the conversation
      */
-    private Map<String, User> users = new HashMap<>();
+    private Map<String, User> users;
+
+    /**
+     * The activity of the users of the conversation, and the number of users reported
+     */
+    private transient ActivityReport report;
+    private transient int userLimit = Integer.MAX_VALUE;
 
     /**
      * Initializes a new instance of the {@link Conversation} class.
@@ -38,57 +50,102 @@ public final class Conversation {
         this.name = name;
         this.messages = messages;
         initializeUsers();
-        users = sortByComparator(users);
     }
 
     /**
-     * Sorts a hashmap of users based on their activity
-     * @param unsortedMap the input HashMap
-     * @return the sorted HashMap by activity
+     * Initializes a new instance of the {@link Conversation} class whose messages are held by a store.
+     * @param name The name of the conversation.
+     * @param messages The store of the messages in the conversation.
      */
-    private static Map<String, User> sortByComparator(Map<String, User> unsortedMap) {
-
-        // Convert Map to List
-        List<Map.Entry<String, User>> list =
-                new LinkedList<Map.Entry<String, User>>(unsortedMap.entrySet());
+    public Conversation(String name, MessageStore messages) {
+        this(name, messages.asList());
+        this.store = messages;
+    }
 
-        // Sort list with comparator, to compare the Map values
-        Collections.sort(list, new Comparator<Map.Entry<String, User>>() {
-            public int compare(Map.Entry<String, User> o1,
-                               Map.Entry<String, User> o2) {
-                return Integer.compare(o1.getValue().getActivity(), o2.getValue().getActivity());
-            }
-        });
+    /**
+     * Initializes a new instance of the {@link Conversation} class whose messages are held by a store
+     * and whose user activity was already counted.
+     * @param name The name of the conversation.
+     * @param messages The store of the messages in the conversation.
+     * @param report The activity of the users of the conversation.
+     */
+    public Conversation(String name, MessageStore messages, ActivityReport report) {
+        this(name, messages.asList(), report);
+        this.store = messages;
+    }
 
-        // Convert sorted map back to a Map
-        Map<String, User> sortedMap = new LinkedHashMap<String, User>();
-        for (Iterator<Map.Entry<String, User>> it = list.iterator(); it.hasNext();) {
-            Map.Entry<String, User> entry = it.next();
-            sortedMap.put(entry.getKey(), entry.getValue());
-        }
-        return sortedMap;
+    /**
+     * Initializes a new instance of the {@link Conversation} class whose user activity was already counted.
+     * @param name The name of the conversation.
+     * @param messages The messages in the conversation.
+     * @param report The activity of the users of the conversation.
+     */
+    public Conversation(String name, List<Message> messages, ActivityReport report) {
+        this.name = name;
+        this.messages = messages;
+        this.report = report;
+        this.users = report.getUsers(userLimit);
     }
 
     /**
-     * Applies filters in parallel to a conversation & sequentially for each message
+     * Applies filters in parallel to a conversation & sequentially for each message.
+     * The activity of the users is counted again over the messages that are kept, as they are written out.
+     * The messages of a store are marked as dropped and removed all at once, and the messages of a list are
+     * compacted in a single pass.
      * @param filters the filters used
      */
     public void applyFilters(Collection<Filter> filters) {
 
-        ListIterator iterator = messages.listIterator();
-        while (iterator.hasNext()) {
-            Message message = (Message) iterator.next();
+        FilterChain chain = FilterChain.compile(filters);
+        ActivityReport kept = new ActivityReport();
 
-            for (Filter filter : filters) {
+        if (store != null) {
+            for (int i = 0, size = store.size(); i < size; i++) {
+                Message message = chain.apply(store.get(i));
 
-                message = filter.apply(message);
                 if (message == null) {
-                    iterator.remove();
-                    break;
+                    store.drop(i);
+                } else {
+                    store.set(i, message);
+                    kept.record(message.getSenderId());
                 }
             }
+            store.compact();
 
+            report = kept;
+            users = report.getUsers(userLimit);
+            return;
         }
+
+        if (messages instanceof RandomAccess) {
+            // the messages kept are moved to the front of the list, which is then cut once, instead of
+            // moving the rest of the list each time a message is dropped
+            int size = messages.size();
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                Message message = chain.apply(messages.get(i));
+
+                if (message != null) {
+                    messages.set(count++, message);
+                    kept.record(message.getSenderId());
+                }
+            }
+            messages.subList(count, size).clear();
+        } else {
+            ListIterator<Message> iterator = messages.listIterator();
+            while (iterator.hasNext()) {
+                Message message = chain.apply(iterator.next());
+
+                if (message == null) {
+                    iterator.remove();
+                } else {
+                    kept.record(message.getSenderId());
+                }
+            }
+        }
+
+        report = kept;
+        users = report.getUsers(userLimit);
     }
 
     /**
@@ -96,18 +153,11 @@ public final class Conversation {
      */
     private void initializeUsers() {
 
-        ListIterator iterator = messages.listIterator();
-        while (iterator.hasNext()) {
-            Message message = (Message) iterator.next();
-
-            if (users.containsKey(message.getSenderId())) {
-                users.get(message.getSenderId()).incrementActivity();
-            } else {
-                User user = new User(message.getSenderId());
-                users.put(message.getSenderId(), user);
-            }
+        report = new ActivityReport();
+        for (Message message : messages) {
+            report.record(message.getSenderId());
         }
-
+        users = report.getUsers(userLimit);
     }
 
 
@@ -119,12 +169,30 @@ public final class Conversation {
 
     public void setMessages(List<Message> messages) {
         this.messages = messages;
+        this.store = null;
     }
 
     public void setName(String name) {
         this.name = name;
     }
 
+    /**
+     * Sets the users of a conversation read back from an export, whose report may have been limited
+     * @param users the users, most active first
+     */
+    public void setUsers(Map<String, User> users) {
+        this.users = users;
+    }
+
+    /**
+     * Limits the users of the conversation to the most active ones
+     * @param userLimit the maximum number of users
+     */
+    public void setUserLimit(int userLimit) {
+        this.userLimit = userLimit;
+        this.users = report.getUsers(userLimit);
+    }
+
     /* Getters */
 
     public String getName() {
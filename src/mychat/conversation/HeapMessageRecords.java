@@ -0,0 +1,153 @@
+package mychat.conversation;
+
+import java.util.Arrays;
+
+/**
+ * Records held in arrays on the heap, the contents being packed one after the other in a shared arena of chars.
+ */
+final class HeapMessageRecords implements MessageRecords {
+
+    /**
+     * The number of chars of each region of the arena, longer contents having a region of their own
+     */
+    private static final int REGION_SIZE = 1 << 20;
+    private static final int INITIAL_REGION_SIZE = 1 << 10;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The length of a missing content
+     */
+    private static final int NONE = -1;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int[] senderOrdinals = new int[INITIAL_CAPACITY];
+
+    /**
+     * The region of the arena of each content in the high int and its start in the low int, and its length
+     */
+    private long[] contentPositions = new long[INITIAL_CAPACITY];
+    private int[] contentLengths = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * The regions of the arena, and the region being filled and its first free char
+     */
+    private char[][] regions = new char[4][];
+    private int regionCount;
+    private int fillRegion = -1;
+    private int fillPosition;
+
+    @Override
+    public void add(long timestamp, int senderOrdinal, String content) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        timestamps[size] = timestamp;
+        senderOrdinals[size] = senderOrdinal;
+        setContent(size, content);
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    @Override
+    public void setTimestamp(int index, long timestamp) {
+        timestamps[index] = timestamp;
+    }
+
+    @Override
+    public int getSenderOrdinal(int index) {
+        return senderOrdinals[index];
+    }
+
+    @Override
+    public void setSenderOrdinal(int index, int senderOrdinal) {
+        senderOrdinals[index] = senderOrdinal;
+    }
+
+    @Override
+    public String getContent(int index) {
+        int length = contentLengths[index];
+        if (length == NONE) {
+            return null;
+        }
+        long position = contentPositions[index];
+        return new String(regions[(int) (position >>> 32)], (int) position, length);
+    }
+
+    /**
+     * Copies a content to the end of the arena.
+     */
+    @Override
+    public void setContent(int index, String content) {
+        if (content == null) {
+            contentLengths[index] = NONE;
+            return;
+        }
+        int length = content.length();
+        int region;
+        int start = 0;
+        if (length > REGION_SIZE) {
+            region = addRegion(new char[length]);
+        } else {
+            if (fillRegion < 0 || regions[fillRegion].length - fillPosition < length) {
+                // the regions grow up to their largest size, so that small conversations stay small
+                int previous = fillRegion < 0 ? 0 : regions[fillRegion].length;
+                fillRegion = addRegion(new char[Math.min(REGION_SIZE,
+                        Math.max(Math.max(INITIAL_REGION_SIZE, previous * 2), length))]);
+                fillPosition = 0;
+            }
+            region = fillRegion;
+            start = fillPosition;
+            fillPosition += length;
+        }
+        content.getChars(0, length, regions[region], start);
+        contentPositions[index] = (long) region << 32 | start;
+        contentLengths[index] = length;
+    }
+
+    @Override
+    public void copy(int from, int to) {
+        timestamps[to] = timestamps[from];
+        senderOrdinals[to] = senderOrdinals[from];
+        contentPositions[to] = contentPositions[from];
+        contentLengths[to] = contentLengths[from];
+    }
+
+    @Override
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Does nothing, the arrays being collected with the store.
+     */
+    @Override
+    public void close() {
+    }
+
+    private int addRegion(char[] chars) {
+        if (regionCount == regions.length) {
+            regions = Arrays.copyOf(regions, Math.max(4, regionCount * 2));
+        }
+        regions[regionCount] = chars;
+        return regionCount++;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        senderOrdinals = Arrays.copyOf(senderOrdinals, capacity);
+        contentPositions = Arrays.copyOf(contentPositions, capacity);
+        contentLengths = Arrays.copyOf(contentLengths, capacity);
+    }
+}
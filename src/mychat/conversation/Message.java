@@ -3,7 +3,7 @@ package mychat.conversation;
 import java.time.Instant;
 
 /**
- * Represents a chat message.
+ * Represents a chat message, which either holds its own fields or is a view of a message of a {@link MessageStore}.
  */
 public final class Message {
 
@@ -22,6 +22,12 @@ public final class Message {
      */
     private String senderId;
 
+    /**
+     * The store holding the message and its index in the store, or null for a message holding its own fields.
+     */
+    private final transient MessageStore store;
+    private final transient int index;
+
     /**
      * Initializes a new instance of the {@link Message} class.
      * @param timestamp The timestamp at which the message was sent.
@@ -32,29 +38,77 @@ public final class Message {
         this.content = content;
         this.timestamp = timestamp;
         this.senderId = senderId;
+        this.store = null;
+        this.index = -1;
+    }
+
+    /**
+     * Initializes a view of a message of a store, reading and writing the store.
+     * @param store The store holding the message.
+     * @param index The index of the message in the store.
+     */
+    Message(MessageStore store, int index) {
+        this.store = store;
+        this.index = index;
     }
 
     public String getContent() {
-        return content;
+        return store == null ? content : store.getContent(index);
     }
 
     public void setContent(String content) {
-        this.content = content;
+        if (store == null) {
+            this.content = content;
+        } else {
+            store.setContent(index, content);
+        }
     }
 
     public Instant getTimestamp() {
-        return timestamp;
+        return store == null ? timestamp : store.getTimestamp(index);
     }
 
     public void setTimestamp(Instant timestamp) {
-        this.timestamp = timestamp;
+        if (store == null) {
+            this.timestamp = timestamp;
+        } else {
+            store.setTimestamp(index, timestamp);
+        }
     }
 
     public String getSenderId() {
-        return senderId;
+        return store == null ? senderId : store.getSenderId(index);
     }
 
     public void setSenderId(String senderId) {
-        this.senderId = senderId;
+        if (store == null) {
+            this.senderId = senderId;
+        } else {
+            store.setSenderId(index, senderId);
+        }
+    }
+
+    /**
+     * Gets the table of the sender ids of the store holding the message.
+     * @return The table, or null for a message holding its own fields.
+     */
+    public SymbolTable getSenders() {
+        return store == null ? null : store.getSenders();
+    }
+
+    /**
+     * Gets the ordinal of the sender id in {@link #getSenders()}.
+     * @return The ordinal, or -1 for a message holding its own fields or without sender.
+     */
+    public int getSenderOrdinal() {
+        return store == null ? -1 : store.getSenderOrdinal(index);
+    }
+
+    MessageStore getStore() {
+        return store;
+    }
+
+    int getIndex() {
+        return index;
     }
 }
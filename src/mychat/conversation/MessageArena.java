@@ -0,0 +1,235 @@
+package mychat.conversation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records held outside of the Java heap, in direct buffers or in a temporary file mapped in memory, so that
+ * conversations larger than the heap can be held and the garbage collector never scans their messages.
+ * <p>
+ * Each message is a fixed-width record of {@value #RECORD_SIZE} bytes: its timestamp, the ordinal of its sender,
+ * the length of its content in bytes (-1 for none) and the position of the content. The contents are encoded in UTF-8
+ * one after the other in a separate region, each content lying in a single segment of the region: the segment is
+ * in the high int of the position and the offset in the segment in the low int.
+ */
+final class MessageArena implements MessageRecords {
+
+    private static final int RECORD_SIZE = 24;
+    private static final int TIMESTAMP = 0;
+    private static final int SENDER_ORDINAL = 8;
+    private static final int CONTENT_LENGTH = 12;
+    private static final int CONTENT_POSITION = 16;
+
+    /**
+     * The number of records of each segment, a power of two
+     */
+    private static final int RECORDS_SHIFT = 16;
+    private static final int RECORDS_PER_SEGMENT = 1 << RECORDS_SHIFT;
+
+    /**
+     * The number of bytes of the segments of the contents, which grow up to their largest size, longer contents
+     * having a segment of their own
+     */
+    private static final int CONTENT_SEGMENT_SIZE = 1 << 26;
+    private static final int INITIAL_CONTENT_SEGMENT_SIZE = 1 << 16;
+
+    private static final int NONE = -1;
+
+    /**
+     * The mapped file and its mapped size, or null for direct buffers
+     */
+    private final Path file;
+    private final FileChannel channel;
+    private long mapped;
+
+    private final List<ByteBuffer> records = new ArrayList<>();
+    private final List<ByteBuffer> contents = new ArrayList<>();
+    private int fillSegment = -1;
+    private int size;
+
+    private MessageArena(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an arena in direct buffers, whose total size is bounded by {@code -XX:MaxDirectMemorySize}.
+     * @return the arena
+     */
+    static MessageArena direct() {
+        return new MessageArena(null, null);
+    }
+
+    /**
+     * Creates an arena in a temporary file mapped in memory, deleted when the arena is closed.
+     * @param directory the directory of the file, or null for the temporary directory of the system
+     * @return the arena
+     * @throws IOException thrown when the file cannot be created
+     */
+    static MessageArena mapped(Path directory) throws IOException {
+        Path file = directory == null ? Files.createTempFile("messages", ".arena")
+                : Files.createTempFile(directory, "messages", ".arena");
+        try {
+            return new MessageArena(file, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE));
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public void add(long timestamp, int senderOrdinal, String content) {
+        if (size >>> RECORDS_SHIFT == records.size()) {
+            records.add(allocate(RECORDS_PER_SEGMENT * RECORD_SIZE));
+        }
+        int index = size++;
+        ByteBuffer segment = records.get(index >>> RECORDS_SHIFT);
+        int offset = offset(index);
+        segment.putLong(offset + TIMESTAMP, timestamp);
+        segment.putInt(offset + SENDER_ORDINAL, senderOrdinal);
+        setContent(index, content);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        return records.get(index >>> RECORDS_SHIFT).getLong(offset(index) + TIMESTAMP);
+    }
+
+    @Override
+    public void setTimestamp(int index, long timestamp) {
+        records.get(index >>> RECORDS_SHIFT).putLong(offset(index) + TIMESTAMP, timestamp);
+    }
+
+    @Override
+    public int getSenderOrdinal(int index) {
+        return records.get(index >>> RECORDS_SHIFT).getInt(offset(index) + SENDER_ORDINAL);
+    }
+
+    @Override
+    public void setSenderOrdinal(int index, int senderOrdinal) {
+        records.get(index >>> RECORDS_SHIFT).putInt(offset(index) + SENDER_ORDINAL, senderOrdinal);
+    }
+
+    @Override
+    public String getContent(int index) {
+        ByteBuffer segment = records.get(index >>> RECORDS_SHIFT);
+        int offset = offset(index);
+        int length = segment.getInt(offset + CONTENT_LENGTH);
+        if (length == NONE) {
+            return null;
+        }
+        long position = segment.getLong(offset + CONTENT_POSITION);
+        ByteBuffer content = contents.get((int) (position >>> 32)).duplicate();
+        content.position((int) position);
+        byte[] bytes = new byte[length];
+        content.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies a content to the end of the region of the contents.
+     */
+    @Override
+    public void setContent(int index, String content) {
+        ByteBuffer record = records.get(index >>> RECORDS_SHIFT);
+        int offset = offset(index);
+        if (content == null) {
+            record.putInt(offset + CONTENT_LENGTH, NONE);
+            return;
+        }
+
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        int segment;
+        if (bytes.length > CONTENT_SEGMENT_SIZE) {
+            segment = addContentSegment(bytes.length);
+        } else {
+            if (fillSegment < 0 || contents.get(fillSegment).remaining() < bytes.length) {
+                int previous = fillSegment < 0 ? 0 : contents.get(fillSegment).capacity();
+                fillSegment = addContentSegment(Math.min(CONTENT_SEGMENT_SIZE,
+                        Math.max(Math.max(INITIAL_CONTENT_SEGMENT_SIZE, previous * 2), bytes.length)));
+            }
+            segment = fillSegment;
+        }
+        ByteBuffer region = contents.get(segment);
+        int start = region.position();
+        region.put(bytes);
+
+        record.putInt(offset + CONTENT_LENGTH, bytes.length);
+        record.putLong(offset + CONTENT_POSITION, (long) segment << 32 | start);
+    }
+
+    @Override
+    public void copy(int from, int to) {
+        ByteBuffer source = records.get(from >>> RECORDS_SHIFT);
+        ByteBuffer target = records.get(to >>> RECORDS_SHIFT);
+        int sourceOffset = offset(from);
+        int targetOffset = offset(to);
+        target.putLong(targetOffset + TIMESTAMP, source.getLong(sourceOffset + TIMESTAMP));
+        target.putInt(targetOffset + SENDER_ORDINAL, source.getInt(sourceOffset + SENDER_ORDINAL));
+        target.putInt(targetOffset + CONTENT_LENGTH, source.getInt(sourceOffset + CONTENT_LENGTH));
+        target.putLong(targetOffset + CONTENT_POSITION, source.getLong(sourceOffset + CONTENT_POSITION));
+    }
+
+    @Override
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Releases the buffers and deletes the file. The memory of the buffers is given back once they are collected,
+     * the mappings of a file not being released explicitly before Java 9.
+     */
+    @Override
+    public void close() {
+        records.clear();
+        contents.clear();
+        fillSegment = -1;
+        size = 0;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private int addContentSegment(int capacity) {
+        contents.add(allocate(capacity));
+        return contents.size() - 1;
+    }
+
+    /**
+     * Allocates a direct buffer, or maps the next bytes of the file.
+     */
+    private ByteBuffer allocate(int capacity) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        try {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, mapped, capacity);
+            mapped += capacity;
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Mapping the messages to '" + file + "' failed.", e);
+        }
+    }
+
+    private static int offset(int index) {
+        return (index & (RECORDS_PER_SEGMENT - 1)) * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,112 @@
+package mychat.conversation;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Holds a block of messages column by column: timestamps in seconds since the epoch,
+ * sender ids as ordinals of a {@link SymbolTable}, and contents.
+ */
+public final class MessageBlock {
+
+    private final SymbolTable senders;
+    private final long[] timestamps;
+    private final int[] senderOrdinals;
+    private final String[] contents;
+    private int size;
+
+    /**
+     * @param senders the table of the sender ids, which may be shared between blocks
+     * @param capacity the maximum number of messages in the block
+     */
+    public MessageBlock(SymbolTable senders, int capacity) {
+        this.senders = senders;
+        this.timestamps = new long[capacity];
+        this.senderOrdinals = new int[capacity];
+        this.contents = new String[capacity];
+    }
+
+    /**
+     * Adds a message to the block.
+     * @param timestamp the timestamp in seconds since the epoch
+     * @param senderId the id of the sender
+     * @param content the content
+     * @return the index of the message in the block
+     */
+    public int add(long timestamp, String senderId, String content) {
+        timestamps[size] = timestamp;
+        senderOrdinals[size] = senders.intern(senderId);
+        contents[size] = content;
+        return size++;
+    }
+
+    /**
+     * Empties the block so it can be filled again.
+     */
+    public void clear() {
+        Arrays.fill(contents, 0, size, null);
+        size = 0;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SymbolTable getSenders() {
+        return senders;
+    }
+
+    /**
+     * Gets the timestamp column, valid up to {@link #size()}.
+     * @return the timestamps in seconds since the epoch
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Gets the sender column, valid up to {@link #size()}.
+     * @return the ordinals of the sender ids in {@link #getSenders()}
+     */
+    public int[] getSenderOrdinals() {
+        return senderOrdinals;
+    }
+
+    /**
+     * Gets the content column, valid up to {@link #size()}.
+     * @return the contents
+     */
+    public String[] getContents() {
+        return contents;
+    }
+
+    public String getSenderId(int index) {
+        return senders.get(senderOrdinals[index]);
+    }
+
+    /**
+     * Creates a {@link Message} from a message of the block.
+     * @param index the index of the message
+     * @return the message
+     */
+    public Message getMessage(int index) {
+        return new Message(Instant.ofEpochSecond(timestamps[index]), getSenderId(index), contents[index]);
+    }
+
+    /**
+     * Replaces a message of the block with the given one.
+     * @param index the index of the message
+     * @param message the new message
+     */
+    public void setMessage(int index, Message message) {
+        timestamps[index] = message.getTimestamp().getEpochSecond();
+        if (!message.getSenderId().equals(getSenderId(index))) {
+            senderOrdinals[index] = senders.intern(message.getSenderId());
+        }
+        contents[index] = message.getContent();
+    }
+}
@@ -0,0 +1,75 @@
+package mychat.conversation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The memory the messages of a {@link MessageStore} are held in.
+ */
+public enum MessageMemory {
+
+    /**
+     * Arrays on the Java heap
+     */
+    HEAP {
+        @Override
+        MessageRecords open(Path directory) {
+            return new HeapMessageRecords();
+        }
+    },
+
+    /**
+     * Direct buffers outside of the heap, bounded by {@code -XX:MaxDirectMemorySize}
+     */
+    DIRECT {
+        @Override
+        MessageRecords open(Path directory) {
+            return MessageArena.direct();
+        }
+    },
+
+    /**
+     * A temporary file mapped in memory, paged in and out by the operating system, so that conversations larger
+     * than the memory given to the JVM can be held
+     */
+    MAPPED {
+        @Override
+        MessageRecords open(Path directory) throws IOException {
+            return MessageArena.mapped(directory);
+        }
+    };
+
+    /**
+     * Opens the records of a store in this memory.
+     * @param directory the directory of the temporary file of {@link #MAPPED}
+     * @return the records
+     * @throws IOException thrown when the temporary file cannot be created
+     */
+    abstract MessageRecords open(Path directory) throws IOException;
+
+    /**
+     * Creates an empty store of messages held in this memory.
+     * @param directory the directory of the temporary file of {@link #MAPPED}
+     * @return the store, to be closed once its messages are no longer used
+     * @throws IOException thrown when the temporary file cannot be created
+     */
+    public MessageStore newStore(Path directory) throws IOException {
+        return new MessageStore(new SymbolTable(), open(directory));
+    }
+
+    /**
+     * Gets a memory from its name, regardless of its case.
+     * @param name the name of the memory
+     * @return the memory
+     * @throws IllegalArgumentException Thrown when there is no memory with this name
+     */
+    public static MessageMemory of(String name) throws IllegalArgumentException {
+        for (MessageMemory memory : values()) {
+            if (memory.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return memory;
+            }
+        }
+        throw new IllegalArgumentException("The message memory '" + name + "' is not one of heap, direct or mapped.");
+    }
+}
@@ -0,0 +1,57 @@
+package mychat.conversation;
+
+import java.io.Closeable;
+
+/**
+ * The records of the messages of a {@link MessageStore}: the timestamp, the ordinal of the sender and the content
+ * of each message, by index. A timestamp of {@link Long#MIN_VALUE} stands for an unknown time, and an ordinal of -1
+ * for a message without sender.
+ */
+interface MessageRecords extends Closeable {
+
+    /**
+     * Adds a record after the last one.
+     * @param timestamp the timestamp in seconds since the epoch
+     * @param senderOrdinal the ordinal of the sender
+     * @param content the content, or null
+     */
+    void add(long timestamp, int senderOrdinal, String content);
+
+    int size();
+
+    long getTimestamp(int index);
+
+    void setTimestamp(int index, long timestamp);
+
+    int getSenderOrdinal(int index);
+
+    void setSenderOrdinal(int index, int senderOrdinal);
+
+    String getContent(int index);
+
+    /**
+     * Replaces the content of a record, the previous content being left unused.
+     * @param index the index of the record
+     * @param content the new content, or null
+     */
+    void setContent(int index, String content);
+
+    /**
+     * Copies a record over another one, the content being shared by both.
+     * @param from the index of the record copied
+     * @param to the index of the record replaced
+     */
+    void copy(int from, int to);
+
+    /**
+     * Removes the records after the first ones.
+     * @param size the number of records kept
+     */
+    void truncate(int size);
+
+    /**
+     * Releases the memory of the records, which cannot be used afterwards.
+     */
+    @Override
+    void close();
+}
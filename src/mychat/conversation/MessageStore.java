@@ -0,0 +1,271 @@
+package mychat.conversation;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the messages of a conversation compactly: timestamps as seconds since the epoch, sender ids as ordinals of
+ * a {@link SymbolTable}, and contents packed one after the other in a shared arena. The messages are read
+ * through {@link Message} views created on demand, so that a conversation does not hold one object per message,
+ * sender id, timestamp and content.
+ * <p>
+ * The messages are held on the heap by default, or outside of it in the {@link MessageMemory} a store is created
+ * with. Messages are dropped by marking them in a bitmap, and removed all at once by {@link #compact()}.
+ * A content rewritten by a filter is appended to the arena, the previous one being left unused.
+ */
+public final class MessageStore implements Closeable {
+
+    /**
+     * The timestamp of a message sent at an unknown time
+     */
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * The ordinal of a message without sender
+     */
+    private static final int NONE = -1;
+
+    private final SymbolTable senders;
+    private final MessageRecords records;
+
+    /**
+     * The messages dropped since the store was last compacted, one bit per message
+     */
+    private long[] dropped = new long[0];
+    private int droppedCount;
+
+    public MessageStore() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * @param senders the table of the sender ids
+     */
+    public MessageStore(SymbolTable senders) {
+        this(senders, new HeapMessageRecords());
+    }
+
+    /**
+     * @param senders the table of the sender ids
+     * @param records the records of the messages
+     */
+    MessageStore(SymbolTable senders, MessageRecords records) {
+        this.senders = senders;
+        this.records = records;
+    }
+
+    /**
+     * Adds a message to the store.
+     * @param timestamp the timestamp in seconds since the epoch
+     * @param senderId the id of the sender
+     * @param content the content
+     * @return the index of the message
+     */
+    public int add(long timestamp, String senderId, String content) {
+        records.add(timestamp, senderId == null ? NONE : senders.intern(senderId), content);
+        return records.size() - 1;
+    }
+
+    /**
+     * Adds a copy of a message to the store.
+     * @param message the message
+     * @return the index of the message
+     */
+    public int add(Message message) {
+        Instant timestamp = message.getTimestamp();
+        return add(timestamp == null ? NO_TIMESTAMP : timestamp.getEpochSecond(), message.getSenderId(),
+                message.getContent());
+    }
+
+    /**
+     * Adds a copy of the messages of another store to this one.
+     * @param other the other store
+     */
+    public void addAll(MessageStore other) {
+        for (int i = 0; i < other.size(); i++) {
+            add(other.records.getTimestamp(i), other.getSenderId(i), other.getContent(i));
+        }
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public SymbolTable getSenders() {
+        return senders;
+    }
+
+    /**
+     * Creates a view of a message of the store, which reads and writes the store. The view is valid until
+     * a message before it is removed.
+     * @param index the index of the message
+     * @return the view of the message
+     */
+    public Message get(int index) {
+        checkIndex(index);
+        return new Message(this, index);
+    }
+
+    /**
+     * Replaces a message of the store with the given one.
+     * @param index the index of the message
+     * @param message the new message
+     */
+    public void set(int index, Message message) {
+        checkIndex(index);
+        if (message.getStore() == this && message.getIndex() == index) {
+            return;
+        }
+        setTimestamp(index, message.getTimestamp());
+        setSenderId(index, message.getSenderId());
+        setContent(index, message.getContent());
+    }
+
+    /**
+     * Removes a message from the store, with the messages dropped before, moving the following ones back.
+     * @param index the index of the message
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        drop(index);
+        compact();
+    }
+
+    /**
+     * Marks a message as dropped, leaving it and the indexes of the other messages unchanged until the store
+     * is compacted.
+     * @param index the index of the message
+     */
+    public void drop(int index) {
+        checkIndex(index);
+        if (dropped.length <= index >>> 6) {
+            dropped = Arrays.copyOf(dropped, Math.max((size() + 63) >>> 6, dropped.length * 2));
+        }
+        long bit = 1L << index;
+        if ((dropped[index >>> 6] & bit) == 0) {
+            dropped[index >>> 6] |= bit;
+            droppedCount++;
+        }
+    }
+
+    /**
+     * Checks whether a message was dropped since the store was last compacted.
+     * @param index the index of the message
+     * @return true if the message was dropped
+     */
+    public boolean isDropped(int index) {
+        return index >>> 6 < dropped.length && (dropped[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Removes the dropped messages in a single pass, moving each message kept back at most once.
+     */
+    public void compact() {
+        if (droppedCount == 0) {
+            return;
+        }
+        int size = size();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isDropped(i)) {
+                if (kept != i) {
+                    records.copy(i, kept);
+                }
+                kept++;
+            }
+        }
+        records.truncate(kept);
+        dropped = new long[0];
+        droppedCount = 0;
+    }
+
+    /**
+     * Gets a list of views of the messages of the store, which also removes and replaces messages of the store.
+     * @return the list
+     */
+    public List<Message> asList() {
+        return new AbstractList<Message>() {
+            @Override
+            public Message get(int index) {
+                return MessageStore.this.get(index);
+            }
+
+            @Override
+            public Message set(int index, Message message) {
+                Message previous = new Message(getTimestamp(index), getSenderId(index), getContent(index));
+                MessageStore.this.set(index, message);
+                return previous;
+            }
+
+            @Override
+            public Message remove(int index) {
+                Message removed = new Message(getTimestamp(index), getSenderId(index), getContent(index));
+                MessageStore.this.remove(index);
+                modCount++;
+                return removed;
+            }
+
+            @Override
+            public int size() {
+                return MessageStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * Gets the timestamp of a message.
+     * @param index the index of the message
+     * @return the timestamp, or null when the message was sent at an unknown time
+     */
+    public Instant getTimestamp(int index) {
+        long timestamp = records.getTimestamp(index);
+        return timestamp == NO_TIMESTAMP ? null : Instant.ofEpochSecond(timestamp);
+    }
+
+    public void setTimestamp(int index, Instant timestamp) {
+        records.setTimestamp(index, timestamp == null ? NO_TIMESTAMP : timestamp.getEpochSecond());
+    }
+
+    /**
+     * Gets the ordinal of the sender of a message in {@link #getSenders()}.
+     * @param index the index of the message
+     * @return the ordinal, or -1 when the message has no sender
+     */
+    public int getSenderOrdinal(int index) {
+        return records.getSenderOrdinal(index);
+    }
+
+    public String getSenderId(int index) {
+        int ordinal = records.getSenderOrdinal(index);
+        return ordinal == NONE ? null : senders.get(ordinal);
+    }
+
+    public void setSenderId(int index, String senderId) {
+        records.setSenderOrdinal(index, senderId == null ? NONE : senders.intern(senderId));
+    }
+
+    public String getContent(int index) {
+        return records.getContent(index);
+    }
+
+    public void setContent(int index, String content) {
+        records.setContent(index, content);
+    }
+
+    /**
+     * Releases the memory the messages are held in. The store cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        records.close();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package mychat.conversation;
+
+import java.util.Arrays;
+
+/**
+ * Gives each distinct string, such as a sender id, a dense int ordinal.
+ * The strings are kept in an open addressing hash table so that looking one up does not allocate.
+ */
+public final class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The hash table of ordinals, -1 for an empty slot
+     */
+    private int[] slots = new int[INITIAL_CAPACITY];
+
+    /**
+     * The strings by ordinal
+     */
+    private String[] symbols = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public SymbolTable() {
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Gets the ordinal of the given string, adding it to the table if needed.
+     * @param symbol the string
+     * @return the ordinal of the string
+     */
+    public int intern(String symbol) {
+        int mask = slots.length - 1;
+        for (int slot = hash(symbol) & mask; ; slot = (slot + 1) & mask) {
+            int ordinal = slots[slot];
+            if (ordinal < 0) {
+                return add(symbol, slot);
+            }
+            if (symbols[ordinal].equals(symbol)) {
+                return ordinal;
+            }
+        }
+    }
+
+    /**
+     * Finds the ordinal of the given string.
+     * @param symbol the string
+     * @return the ordinal of the string, or -1 if it is not in the table
+     */
+    public int find(String symbol) {
+        int mask = slots.length - 1;
+        for (int slot = hash(symbol) & mask; ; slot = (slot + 1) & mask) {
+            int ordinal = slots[slot];
+            if (ordinal < 0) {
+                return -1;
+            }
+            if (symbols[ordinal].equals(symbol)) {
+                return ordinal;
+            }
+        }
+    }
+
+    /**
+     * Gets the string with the given ordinal.
+     * @param ordinal the ordinal
+     * @return the string
+     */
+    public String get(int ordinal) {
+        return symbols[ordinal];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(String symbol, int slot) {
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        symbols[size] = symbol;
+        slots[slot] = size;
+
+        // keep the table at most half full
+        if (++size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return size - 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        int mask = capacity - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = hash(symbols[ordinal]) & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = ordinal;
+        }
+    }
+
+    private static int hash(String symbol) {
+        int hash = symbol.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -3,7 +3,7 @@ package mychat.conversation;
 /**
  * Represents a User - name + activity
  */
- class User {
+public final class User {
 
     private String name;
     private int activity = 1; // initial activity
@@ -12,6 +12,11 @@ package mychat.conversation;
         this.name = name;
     }
 
+    public User(String name, int activity) {
+        this.name = name;
+        this.activity = activity;
+    }
+
     public int getActivity() {
         return activity;
     }
@@ -20,6 +25,10 @@ package mychat.conversation;
         activity++;
     }
 
+    public void addActivity(int count) {
+        activity += count;
+    }
+
     public String getName() {
         return name;
     }
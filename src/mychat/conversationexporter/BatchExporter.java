@@ -0,0 +1,268 @@
+package mychat.conversationexporter;
+
+import mychat.codec.Codec;
+import mychat.codec.Codecs;
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Exports many conversations in one process.
+ * The inputs are given as a directory, a glob pattern or a manifest file listing one input per line, and
+ * each conversation is written to the output directory under the name of its input with the extension
+ * of the output format, such as {@code .json}. The conversations are exported by a fixed number of workers
+ * which all share the same compiled filter chain, the filters being stateless.
+ */
+public final class BatchExporter {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final ConversationExporter exporter;
+    private final int workers;
+
+    /**
+     * @param exporter the exporter of each conversation
+     * @param workers the number of conversations exported at the same time
+     */
+    public BatchExporter(ConversationExporter exporter, int workers) {
+        this.exporter = exporter;
+        this.workers = workers;
+    }
+
+    /**
+     * Exports the conversations described by the given batch {@code configuration}, whose input is the
+     * directory, glob or manifest of the inputs and whose output is the output directory.
+     * A conversation which cannot be exported is reported on standard error and does not stop the others.
+     * @param configuration The exporter configuration.
+     * @return the summary of the exports
+     * @throws IllegalArgumentException Thrown when the inputs cannot be listed, or when two of them would be
+     * written to the same file
+     * @throws IOException Thrown when the output directory cannot be created
+     * @throws InterruptedException Thrown when the batch is interrupted
+     */
+    public Summary export(ConversationExporterConfiguration configuration)
+            throws IllegalArgumentException, IOException, InterruptedException {
+
+        List<Path> inputs = listInputs(configuration.getInputFilePath());
+        Path outputDirectory = Files.createDirectories(Paths.get(configuration.getOutputFilePath()));
+        String extension = exporter.getOutputFormat().getExtension();
+        if (exporter.getOutputCodec() != null) {
+            extension += "." + exporter.getOutputCodec().getExtension();
+        }
+        Map<Path, Path> jobs = plan(inputs, outputDirectory, extension);
+
+        List<Filter> chain = Collections.singletonList(FilterChain.compile(configuration.getFilters()));
+        Summary summary = new Summary(exporter);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            for (Map.Entry<Path, Path> job : jobs.entrySet()) {
+                ConversationExporterConfiguration jobConfiguration = configuration.forConversation(
+                        job.getKey().toString(), job.getValue().toString(), chain);
+
+                pool.execute(() -> run(jobConfiguration, summary));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            summary.finish();
+        }
+        return summary;
+    }
+
+    private void run(ConversationExporterConfiguration configuration, Summary summary) {
+        try {
+            exporter.exportConversation(configuration);
+            summary.succeeded();
+        } catch (Exception e) {
+            summary.failed();
+            System.err.println("Exporting '" + configuration.getInputFilePath() + "' failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the inputs of a batch.
+     * @param inputs a directory, whose files are all exported, a glob pattern, or a manifest file listing
+     * one input per line, relative to the manifest, blank lines and lines starting with {@code #} being ignored
+     * @return the inputs, sorted for directories and globs and in the order of the manifest otherwise
+     * @throws IllegalArgumentException Thrown when the inputs cannot be listed
+     */
+    static List<Path> listInputs(String inputs) throws IllegalArgumentException {
+        try {
+            if (isGlob(inputs)) {
+                return listGlob(inputs);
+            }
+
+            Path path = Paths.get(inputs);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+            }
+
+            List<Path> manifest = new ArrayList<>();
+            Path base = path.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    manifest.add(base.resolve(line));
+                }
+            }
+            return manifest;
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+        } catch (IOException | InvalidPathException e) {
+            throw new IllegalArgumentException("The inputs '" + inputs + "' could not be listed.");
+        }
+    }
+
+    private static boolean isGlob(String inputs) {
+        for (int i = 0; i < inputs.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(inputs.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the files matching a glob, walking the directory before its first wildcard.
+     */
+    private static List<Path> listGlob(String glob) throws IOException {
+        int wildcard = 0;
+        while (GLOB_CHARACTERS.indexOf(glob.charAt(wildcard)) < 0) {
+            wildcard++;
+        }
+        int separator = Math.max(glob.lastIndexOf('/', wildcard), glob.lastIndexOf(File.separatorChar, wildcard));
+        Path root = separator < 0 ? Paths.get("") : Paths.get(glob.substring(0, separator + 1));
+
+        // without **, a file cannot be deeper than the number of names left in the pattern
+        int depth = Integer.MAX_VALUE;
+        if (!glob.contains("**")) {
+            depth = Paths.get(glob.substring(separator + 1)).getNameCount();
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        try (Stream<Path> files = Files.walk(root, depth)) {
+            return files.filter(file -> Files.isRegularFile(file) && matcher.matches(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Gives each input its output file.
+     * @throws IllegalArgumentException Thrown when two inputs would be written to the same file
+     */
+    private static Map<Path, Path> plan(List<Path> inputs, Path outputDirectory, String outputExtension)
+            throws IllegalArgumentException {
+        Map<Path, Path> jobs = new LinkedHashMap<>();
+        Map<Path, Path> inputsByOutput = new HashMap<>();
+        for (Path input : inputs) {
+            String name = stripCodecExtension(input.getFileName().toString());
+            int extension = name.lastIndexOf('.');
+            Path output = outputDirectory.resolve((extension > 0 ? name.substring(0, extension) : name) + "." + outputExtension);
+
+            Path other = inputsByOutput.put(output, input);
+            if (other != null && !other.equals(input)) {
+                throw new IllegalArgumentException("The files '" + other + "' and '" + input
+                        + "' would both be exported to '" + output + "'.");
+            }
+            jobs.put(input, output);
+        }
+        return jobs;
+    }
+
+    /**
+     * Removes the extension of a compressed input, so that {@code chat.txt.gz} is exported as {@code chat.json}.
+     */
+    private static String stripCodecExtension(String name) {
+        for (Codec codec : Codecs.all()) {
+            String extension = "." + codec.getExtension();
+            if (name.endsWith(extension) && name.length() > extension.length()) {
+                return name.substring(0, name.length() - extension.length());
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Counts the conversations exported by a batch, and the bytes the exporter read for them
+     */
+    public static final class Summary {
+
+        private final ConversationExporter exporter;
+        private final long bytesBefore;
+        private final long start = System.nanoTime();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile long bytes;
+        private volatile long elapsed;
+
+        private Summary(ConversationExporter exporter) {
+            this.exporter = exporter;
+            this.bytesBefore = exporter.getBytesRead();
+        }
+
+        private void succeeded() {
+            succeeded.incrementAndGet();
+        }
+
+        private void failed() {
+            failed.incrementAndGet();
+        }
+
+        private void finish() {
+            elapsed = System.nanoTime() - start;
+            bytes = exporter.getBytesRead() - bytesBefore;
+        }
+
+        public int getSucceeded() {
+            return succeeded.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * Gets the number of bytes of the conversation files read by the batch, which is smaller than their size
+         * when only a part of each conversation is read.
+         * @return the number of bytes read
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Gets the time taken by the batch.
+         * @return the time in nanoseconds
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Prints the number of conversations exported and the throughput of the batch.
+         * @param out the stream printed to
+         */
+        public void print(PrintStream out) {
+            double seconds = Math.max(elapsed, 1) / 1e9;
+            out.println(String.format(Locale.ROOT,
+                    "Batch finished: %d conversations exported, %d failed in %.3f s (%.1f conversations/s, %.1f MB/s)",
+                    getSucceeded(), getFailed(), seconds,
+                    getSucceeded() / seconds, getBytes() / seconds / (1 << 20)));
+        }
+    }
+}
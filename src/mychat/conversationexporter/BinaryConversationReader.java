@@ -0,0 +1,217 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a conversation written by {@link BinaryConversationWriter}.
+ * The reader is a cursor: {@link #next()} moves to the next message, and once there are no more messages
+ * the users of the conversation are given by {@link #getUsers()}.
+ */
+public final class BinaryConversationReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private long timestamp;
+    private boolean hasTimestamp;
+    private String senderId;
+    private String content;
+    private Map<String, User> users;
+
+    /**
+     * @param in the stream read from, which is closed with the reader
+     */
+    public BinaryConversationReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the whole conversation.
+     * @return the conversation, with the users it was exported with
+     * @throws IOException thrown when the stream cannot be read
+     * @throws IllegalArgumentException thrown when the stream is not a binary conversation
+     */
+    public Conversation readConversation() throws IOException, IllegalArgumentException {
+        String name = readConversationName();
+        List<Message> messages = new ArrayList<>();
+        while (next()) {
+            messages.add(getMessage());
+        }
+        Conversation conversation = new Conversation(name, messages);
+        conversation.setUsers(users);
+        return conversation;
+    }
+
+    /**
+     * Reads the header of the file and the name of the conversation.
+     * @return the name of the conversation, or null if it has none
+     * @throws IOException thrown when the stream cannot be read
+     * @throws IllegalArgumentException thrown when the stream is not a binary conversation
+     */
+    public String readConversationName() throws IOException, IllegalArgumentException {
+        for (byte b : BinaryConversationWriter.MAGIC) {
+            if (readByte() != b) {
+                throw new IllegalArgumentException("The file is not a binary conversation.");
+            }
+        }
+        int version = readByte();
+        if (version != BinaryConversationWriter.VERSION) {
+            throw new IllegalArgumentException("The version " + version + " of the binary conversation is not supported.");
+        }
+        return string();
+    }
+
+    /**
+     * Moves to the next message of the conversation.
+     * @return true if there is a message, false once the users were read
+     * @throws IOException thrown when the stream cannot be read
+     * @throws IllegalArgumentException thrown when the stream is not a valid binary conversation
+     */
+    public boolean next() throws IOException, IllegalArgumentException {
+        if (users != null) {
+            return false;
+        }
+        int tag = readByte();
+        switch (tag) {
+            case BinaryConversationWriter.MESSAGE: {
+                long delta = varint();
+                timestamp += (delta >>> 1) ^ -(delta & 1);
+                hasTimestamp = true;
+                break;
+            }
+            case BinaryConversationWriter.MESSAGE_WITHOUT_TIMESTAMP: {
+                hasTimestamp = false;
+                break;
+            }
+            case BinaryConversationWriter.END: {
+                readUsers();
+                return false;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown record " + tag + " in the binary conversation.");
+        }
+        senderId = reference();
+        content = string();
+        return true;
+    }
+
+    /**
+     * Creates a {@link Message} from the current message.
+     * @return the current message
+     */
+    public Message getMessage() {
+        return new Message(hasTimestamp ? Instant.ofEpochSecond(timestamp) : null, senderId, content);
+    }
+
+    /**
+     * Gets the users of the conversation, once all its messages were read.
+     * @return the users, most active first, or null while there are messages left
+     */
+    public Map<String, User> getUsers() {
+        return users;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readUsers() throws IOException {
+        int count = (int) varint();
+        Map<String, User> read = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = reference();
+            read.put(name, new User(name, (int) varint()));
+        }
+        users = read;
+    }
+
+    private String reference() throws IOException {
+        long reference = varint();
+        if (reference == 0) {
+            return null;
+        }
+        if (reference <= dictionary.size()) {
+            return dictionary.get((int) reference - 1);
+        }
+        if (reference != dictionary.size() + 1) {
+            throw new IllegalArgumentException("Unknown sender " + reference + " in the binary conversation.");
+        }
+        String id = string();
+        dictionary.add(id);
+        return id;
+    }
+
+    private String string() throws IOException {
+        long length = varint();
+        if (length == 0) {
+            return null;
+        }
+        int size = (int) (length - 1);
+        if (limit - position < size) {
+            fill(size);
+        }
+        String s = new String(buffer, position, size, StandardCharsets.UTF_8);
+        position += size;
+        return s;
+    }
+
+    private long varint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("A number of the binary conversation is too long.");
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit) {
+            fill(1);
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    /**
+     * Makes at least {@code size} bytes available from {@link #position}, growing the buffer for long strings.
+     */
+    private void fill(int size) throws IOException {
+        int remaining = limit - position;
+        if (size > buffer.length) {
+            byte[] larger = new byte[Math.max(size, buffer.length * 2)];
+            System.arraycopy(buffer, position, larger, 0, remaining);
+            buffer = larger;
+        } else {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        while (limit < size) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                throw new IllegalArgumentException("The binary conversation is truncated.");
+            }
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Message;
+import mychat.conversation.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes conversations in a compact binary format, read back by {@link BinaryConversationReader}.
+ * <p>
+ * The file starts with the magic bytes {@code MCHB} and a version byte, followed by the name of the conversation,
+ * its messages and the users. Numbers are unsigned LEB128 varints and strings are prefixed by their UTF-8 length
+ * plus one, a length of 0 standing for null. Each message is a tag byte, the difference between its timestamp and
+ * the one of the previous message zigzag encoded, the reference of its sender and its content. The trailer is
+ * the end tag, the number of users, and the reference and activity of each user.
+ * <p>
+ * Sender ids are written once: a reference is 0 for null, or the index of the id in the dictionary of the ids
+ * seen so far plus one, the id itself following when the reference is one past the end of the dictionary.
+ */
+public final class BinaryConversationWriter implements ConversationWriter {
+
+    static final byte[] MAGIC = {'M', 'C', 'H', 'B'};
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int MESSAGE = 1;
+    static final int MESSAGE_WITHOUT_TIMESTAMP = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private long previousTimestamp;
+
+    /**
+     * @param out the stream written to, which is closed with the writer
+     */
+    public BinaryConversationWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginConversation(String name) throws IOException {
+        for (byte b : MAGIC) {
+            writeByte(b);
+        }
+        writeByte(VERSION);
+        string(name);
+    }
+
+    @Override
+    public void write(Message message) throws IOException {
+        Instant timestamp = message.getTimestamp();
+        if (timestamp == null) {
+            writeByte(MESSAGE_WITHOUT_TIMESTAMP);
+        } else {
+            writeByte(MESSAGE);
+            long seconds = timestamp.getEpochSecond();
+            long delta = seconds - previousTimestamp;
+            varint((delta << 1) ^ (delta >> 63));
+            previousTimestamp = seconds;
+        }
+        reference(message.getSenderId());
+        string(message.getContent());
+    }
+
+    @Override
+    public void endConversation(Map<String, User> users) throws IOException {
+        writeByte(END);
+        varint(users.size());
+        for (User user : users.values()) {
+            reference(user.getName());
+            varint(user.getActivity());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the reference of a sender id, adding the id to the dictionary the first time it is seen.
+     */
+    private void reference(String senderId) throws IOException {
+        if (senderId == null) {
+            varint(0);
+            return;
+        }
+        Integer index = dictionary.get(senderId);
+        if (index != null) {
+            varint(index + 1);
+        } else {
+            index = dictionary.size();
+            dictionary.put(senderId, index);
+            varint(index + 1);
+            string(senderId);
+        }
+    }
+
+    private void string(String s) throws IOException {
+        if (s == null) {
+            varint(0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length + 1L);
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void varint(long value) throws IOException {
+        if (buffer.length - count < 10) {
+            flushBuffer();
+        }
+        while ((value & ~0x7fL) != 0) {
+            buffer[count++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[count++] = (byte) value;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+}
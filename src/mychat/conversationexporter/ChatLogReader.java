@@ -0,0 +1,59 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Message;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a conversation in the {@code <timestamp> <user> <message>} format one message at a time.
+ * The first line of the conversation is its name, and blank lines are skipped.
+ */
+public interface ChatLogReader extends Closeable {
+
+    /**
+     * Reads the conversation name, which is the first line of the file.
+     * @return the conversation name or null if the file is empty
+     * @throws IOException thrown when the file cannot be read
+     */
+    String readConversationName() throws IOException;
+
+    /**
+     * Moves to the next message of the conversation, skipping blank lines.
+     * @return true if there is a message, false at the end of the file
+     * @throws IOException thrown when the file cannot be read
+     * @throws IllegalArgumentException thrown when the line is not a valid message
+     */
+    boolean next() throws IOException, IllegalArgumentException;
+
+    /**
+     * Gets the timestamp of the current message in seconds since the epoch.
+     * @return the timestamp of the current message
+     */
+    long getTimestamp();
+
+    /**
+     * Gets the sender id of the current message.
+     * @return the sender id of the current message
+     */
+    String getSenderId();
+
+    /**
+     * Gets the content of the current message.
+     * @return the content of the current message
+     */
+    String getContent();
+
+    /**
+     * Creates a {@link Message} from the current message.
+     * @return the current message
+     */
+    Message getMessage();
+
+    /**
+     * Gets the number of bytes of the conversation file read so far, which is smaller than the size of the file
+     * when only a part of the conversation is read.
+     * @return the number of bytes read
+     */
+    long getBytesRead();
+}
@@ -1,27 +1,75 @@
 package mychat.conversationexporter;
 
+import mychat.codec.Codec;
+import mychat.codec.Codecs;
+import mychat.conversation.MessageMemory;
 import mychat.filter.*;
-import mychat.filter.obfuscate.CreditCardObfuscateFilter;
-import mychat.filter.obfuscate.TelephoneObfuscateFilter;
-import mychat.filter.obfuscate.UserObfuscateFilter;
+import mychat.filter.obfuscate.PiiObfuscateFilter;
+import mychat.filter.obfuscate.Pseudonymizer;
+import mychat.filter.obfuscate.UserPseudonymFilter;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a helper to parse command line arguments.
  */
 public final class CommandLineArgumentParser {
 
+    /**
+     * The environment variable holding the key of the user pseudonyms, when it is not given as argument
+     */
+    static final String PSEUDONYM_KEY_VARIABLE = "MYCHAT_PSEUDONYM_KEY";
+
     /**
      * Parses the given {@code arguments} into the exporter configuration.
      * @param arguments The command line arguments.
      * @return The exporter configuration representing the command line arguments.
+     * @throws IllegalArgumentException Thrown when a file given as argument cannot be read.
      */
-    public ConversationExporterConfiguration parseCommandLineArguments(String[] arguments) {
+    public ConversationExporterConfiguration parseCommandLineArguments(String[] arguments) throws IllegalArgumentException {
 
-        Collection<Filter> filters = new LinkedList<>();
+        List<Filter> filters = new LinkedList<>();
         String user = "";
+        boolean pseudonyms = false;
+        boolean randomPseudonymKey = false;
+        String pseudonymKey = System.getenv(PSEUDONYM_KEY_VARIABLE);
+        String pseudonymSalt = null;
+        Map<Integer, List<String>> blacklists = new LinkedHashMap<>();
+        Map<Integer, String> keywords = new LinkedHashMap<>();
+        Map<Integer, List<String>> keywordLists = new LinkedHashMap<>();
+        boolean ignoreCase = false;
+        boolean wholeWords = false;
+        boolean streaming = false;
+        boolean parallel = false;
+        int userLimit = Integer.MAX_VALUE;
+        int messageLimit = Integer.MAX_VALUE;
+        boolean count = false;
+        boolean batch = false;
+        boolean metrics = false;
+        String metricsFilePath = null;
+        int workers = 0;
+        boolean follow = false;
+        String checkpointFilePath = null;
+        long pollInterval = 0;
+        OutputFormat outputFormat = OutputFormat.JSON;
+        Codec outputCodec = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        int timeIndexInterval = 0;
+        boolean buildSearchIndex = false;
+        boolean searchIndex = false;
+        MessageMemory messageMemory = MessageMemory.HEAP;
+        String messageDirectory = null;
 
         int filterNumber = 2; // filters start from 3rd arg
 
@@ -36,23 +84,283 @@ public final class CommandLineArgumentParser {
                     }
                     break;
                 }
+                // the keyword filters are made once the matching options, which may come after them, are known
                 case "-kw": {
                     if (++i < arguments.length)
-                        filters.add(new KeywordFinderFilter(arguments[i]));
+                        keywords.put(reserve(filters), arguments[i]);
                     break;
                 }
+                case "-kwf": {
+                    if (++i < arguments.length)
+                        keywordLists.put(reserve(filters), readTerms(arguments[i]));
+                    break;
+                }
+                case "-ci" : { ignoreCase = true; break; }
+                case "-ww" : { wholeWords = true; break; }
                 case "-bl": {
+                    if (++i < arguments.length) {
+                        // the words of consecutive -bl are redacted by a single filter, the filters given
+                        // between two -bl keeping their place
+                        int blacklistIndex = filters.size() - 1;
+                        if (!blacklists.containsKey(blacklistIndex)) {
+                            blacklistIndex = reserve(filters);
+                            blacklists.put(blacklistIndex, new ArrayList<>());
+                        }
+                        blacklists.get(blacklistIndex).addAll(splitWords(arguments[i]));
+                    }
+                    break;
+                }
+                case "-uo" : { pseudonyms = true; break; }
+                case "-uor" : { pseudonyms = true; randomPseudonymKey = true; break; }
+                case "-uok": {
+                    if (++i < arguments.length)
+                        pseudonymKey = arguments[i];
+                    break;
+                }
+                case "-uos": {
+                    if (++i < arguments.length)
+                        pseudonymSalt = arguments[i];
+                    break;
+                }
+                case "-cco" : { obfuscatePii(filters, true, false); break; }
+                case "-to" : { obfuscatePii(filters, false, true); break; }
+                case "-s" : { streaming = true; break; }
+                case "-p" : { parallel = true; break; }
+                case "-top": {
+                    if (++i < arguments.length)
+                        userLimit = parsePositiveNumber(arguments[i], "number of users");
+                    break;
+                }
+                case "--limit": {
+                    if (++i < arguments.length)
+                        messageLimit = parsePositiveNumber(arguments[i], "number of messages");
+                    break;
+                }
+                case "--count" : { count = true; break; }
+                case "-b" : { batch = true; break; }
+                case "-m" : { metrics = true; break; }
+                case "-mf": {
+                    if (++i < arguments.length) {
+                        metrics = true;
+                        metricsFilePath = arguments[i];
+                    }
+                    break;
+                }
+                case "-f" : { follow = true; break; }
+                case "-fc": {
+                    if (++i < arguments.length) {
+                        follow = true;
+                        checkpointFilePath = arguments[i];
+                    }
+                    break;
+                }
+                case "-fi": {
+                    if (++i < arguments.length)
+                        pollInterval = parsePositiveNumber(arguments[i], "poll interval");
+                    break;
+                }
+                case "-of": {
+                    if (++i < arguments.length)
+                        outputFormat = OutputFormat.of(arguments[i]);
+                    break;
+                }
+                case "-oc": {
+                    if (++i < arguments.length)
+                        outputCodec = Codecs.of(arguments[i]);
+                    break;
+                }
+                // -to already hides telephone numbers, the time range options have long names
+                case "--from": {
+                    if (++i < arguments.length)
+                        from = parseTimestamp(arguments[i]);
+                    break;
+                }
+                case "--to": {
+                    if (++i < arguments.length)
+                        to = parseTimestamp(arguments[i]);
+                    break;
+                }
+                case "--index": {
+                    timeIndexInterval = timeIndexInterval > 0 ? timeIndexInterval : TimeIndex.DEFAULT_INTERVAL;
+                    break;
+                }
+                case "--index-interval": {
+                    if (++i < arguments.length)
+                        timeIndexInterval = parsePositiveNumber(arguments[i], "index interval") * 1024;
+                    break;
+                }
+                case "-bsi" : { buildSearchIndex = true; break; }
+                case "-si" : { searchIndex = true; break; }
+                case "-mem": {
+                    if (++i < arguments.length)
+                        messageMemory = MessageMemory.of(arguments[i]);
+                    break;
+                }
+                case "-memdir": {
+                    if (++i < arguments.length)
+                        messageDirectory = arguments[i];
+                    break;
+                }
+                case "-w": {
                     if (++i < arguments.length)
-                        filters.add(new StringReplacer(arguments[i]));
+                        workers = parsePositiveNumber(arguments[i], "number of workers");
                     break;
                 }
-                case "-uo" : { filters.add(new UserObfuscateFilter(user)); break; }
-                case "-cco" : { filters.add( new CreditCardObfuscateFilter()); break; }
-                case "-to" : { filters.add( new TelephoneObfuscateFilter()); break; }
             }
         }
 
-        return new ConversationExporterConfiguration(arguments[0], arguments[1], filters);
+        // keyword matching options apply to every keyword filter
+        for (Map.Entry<Integer, String> keyword : keywords.entrySet()) {
+            filters.set(keyword.getKey(), ignoreCase || wholeWords
+                    ? new KeywordFinderFilter(keyword.getValue(), ignoreCase, wholeWords)
+                    : new KeywordFinderFilter(keyword.getValue()));
+        }
+        for (Map.Entry<Integer, List<String>> keywordList : keywordLists.entrySet()) {
+            filters.set(keywordList.getKey(), new KeywordFinderFilter(keywordList.getValue(), ignoreCase, wholeWords));
+        }
+        for (Map.Entry<Integer, List<String>> blacklist : blacklists.entrySet()) {
+            filters.set(blacklist.getKey(), new BlacklistFilter(blacklist.getValue()));
+        }
+        // users are given their pseudonyms last, so that the other filters see their real ids
+        if (pseudonyms) {
+            boolean keyless = pseudonymKey == null || pseudonymKey.isEmpty();
+            if (keyless && !randomPseudonymKey) {
+                // a key picked at random would give other pseudonyms to the same users on the next run
+                throw new IllegalArgumentException("The pseudonyms need a key: give it with -uok or the "
+                        + PSEUDONYM_KEY_VARIABLE + " environment variable, or use -uor for a random key whose "
+                        + "pseudonyms only hold for this run.");
+            }
+            filters.add(new UserPseudonymFilter(keyless
+                    ? Pseudonymizer.withRandomKey(pseudonymSalt)
+                    : new Pseudonymizer(pseudonymKey.getBytes(StandardCharsets.UTF_8), pseudonymSalt,
+                    Pseudonymizer.DEFAULT_CACHE_SIZE)));
+        }
 
+        ConversationExporterConfiguration configuration =
+                new ConversationExporterConfiguration(arguments[0], arguments[1], filters);
+        configuration.setStreaming(streaming);
+        configuration.setParallel(parallel);
+        configuration.setUserLimit(userLimit);
+        configuration.setMessageLimit(messageLimit);
+        configuration.setCount(count);
+        configuration.setBatch(batch);
+        configuration.setMetrics(metrics);
+        configuration.setMetricsFilePath(metricsFilePath);
+        configuration.setOutputFormat(outputFormat);
+        configuration.setOutputCodec(outputCodec);
+        if (from != Long.MIN_VALUE || to != Long.MAX_VALUE) {
+            configuration.setTimeRange(new TimeRange(from, to));
+        }
+        configuration.setTimeIndexInterval(timeIndexInterval);
+        configuration.setBuildSearchIndex(buildSearchIndex);
+        configuration.setSearchIndex(searchIndex);
+        configuration.setMessageMemory(messageMemory);
+        if (messageDirectory != null) {
+            configuration.setMessageDirectory(messageDirectory);
+        }
+        configuration.setFollow(follow);
+        configuration.setCheckpointFilePath(checkpointFilePath);
+        if (pollInterval > 0) {
+            configuration.setPollInterval(pollInterval);
+        }
+        if (workers > 0) {
+            configuration.setWorkers(workers);
+        }
+
+        return configuration;
+
+    }
+
+    /**
+     * Reserves the place of a filter which is created once all the arguments are parsed.
+     * @param filters The filters parsed so far.
+     * @return The index of the filter.
+     */
+    private int reserve(List<Filter> filters) {
+        filters.add(null);
+        return filters.size() - 1;
+    }
+
+    /**
+     * Adds credit card or telephone numbers to the numbers hidden. Consecutive -cco and -to are hidden by
+     * a single scan, the filters given between them keeping their place.
+     * @param filters The filters parsed so far.
+     * @param creditCards Whether credit card numbers are hidden.
+     * @param telephones Whether telephone numbers are hidden.
+     */
+    private void obfuscatePii(List<Filter> filters, boolean creditCards, boolean telephones) {
+        Filter previous = filters.isEmpty() ? null : filters.get(filters.size() - 1);
+        if (previous instanceof PiiObfuscateFilter) {
+            PiiObfuscateFilter pii = (PiiObfuscateFilter) previous;
+            filters.set(filters.size() - 1, new PiiObfuscateFilter(creditCards || pii.isCreditCards(),
+                    telephones || pii.isTelephones()));
+        } else {
+            filters.add(new PiiObfuscateFilter(creditCards, telephones));
+        }
+    }
+
+    /**
+     * Splits a comma separated list of blacklisted words, a regular expression being kept whole since its commas,
+     * as in {@code a{1,3}} or {@code [,;]}, are part of it.
+     * @param argument The words, or a regular expression.
+     * @return The words.
+     */
+    private List<String> splitWords(String argument) {
+        return BlacklistFilter.isLiteral(argument)
+                ? Arrays.asList(argument.split(","))
+                : Collections.singletonList(argument);
+    }
+
+    /**
+     * Parses a positive number, such as the number of users kept in the activity report.
+     * @param argument The number.
+     * @param description What the number stands for.
+     * @return The number.
+     * @throws IllegalArgumentException Thrown when the argument is not a positive number.
+     */
+    private int parsePositiveNumber(String argument, String description) throws IllegalArgumentException {
+        try {
+            int number = Integer.parseInt(argument);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("The " + description + " '" + argument + "' is not a positive number.");
+    }
+
+    /**
+     * Parses a timestamp in seconds since the epoch.
+     * @param argument The timestamp.
+     * @return The timestamp.
+     * @throws IllegalArgumentException Thrown when the argument is not a number.
+     */
+    private long parseTimestamp(String argument) throws IllegalArgumentException {
+        try {
+            return Long.parseLong(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The timestamp '" + argument + "' is not a number.");
+        }
+    }
+
+    /**
+     * Reads a list of terms, one per line, ignoring blank lines.
+     * @param filePath The path of the file listing the terms.
+     * @return The terms.
+     * @throws IllegalArgumentException Thrown when the file cannot be read.
+     */
+    private List<String> readTerms(String filePath) throws IllegalArgumentException {
+        try {
+            List<String> terms = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get(filePath), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    terms.add(line.trim());
+                }
+            }
+            return terms;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The file '" + filePath + "' could not be read.");
+        }
     }
 }
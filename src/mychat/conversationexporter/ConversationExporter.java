@@ -1,22 +1,92 @@
 package mychat.conversationexporter;
 
-import com.google.gson.*;
+import mychat.codec.Codec;
+import mychat.codec.Codecs;
 import mychat.conversation.Conversation;
 import mychat.conversation.Message;
+import mychat.conversation.MessageMemory;
+import mychat.conversation.MessageStore;
 import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.filter.MessageField;
+import mychat.filter.obfuscate.UserPseudonymFilter;
+import mychat.metrics.ExportMetrics;
+import mychat.metrics.MetricsListener;
+import mychat.metrics.Stage;
 
 import java.io.*;
-import java.lang.reflect.Type;
-import java.time.Instant;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents a conversation exporter that can read a conversation and write it out in JSON.
  */
 public class ConversationExporter {
 
+    /**
+     * The arguments used when the application is started without any.
+     */
+    private static final String[] DEFAULT_ARGUMENTS = new String[]{
+            "resources/chat.txt",  // input
+            "resources/chat.json", // output
+            "-u", "bob",           // user id matcher
+            "-kw", "there",        // keyword matcher
+            "-bl", "Hello",        // keyword obfuscator
+            "-uor",                // user id pseudonyms, with a random key
+            "-cco",                // credit card obfuscator
+            "-to"                  // telephone obfuscator
+    };
+
+    /**
+     * The listener told about the measurements of the exports
+     */
+    private MetricsListener metricsListener = MetricsListener.NONE;
+
+    /**
+     * The bytes of the conversation files read by the exports, whether they are measured or not
+     */
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * The format the conversations are written in
+     */
+    private OutputFormat outputFormat = OutputFormat.JSON;
+
+    /**
+     * The codec the conversations are compressed with as they are written, or null
+     */
+    private Codec outputCodec;
+
+    /**
+     * The time range of the messages exported, and the interval of the index used to find it, or 0 without index
+     */
+    private TimeRange timeRange = TimeRange.ALL;
+    private int timeIndexInterval;
+
+    /**
+     * Whether the messages kept by the user and keyword filters are found with the search index of the conversation
+     */
+    private boolean searchIndex;
+
+    /**
+     * The memory the messages of the conversations are held in, and the directory of its files
+     */
+    private MessageMemory messageMemory = MessageMemory.HEAP;
+    private Path messageDirectory;
+
     /**
      * The application entry point.
      * @param args The command line arguments.
@@ -24,21 +94,234 @@ public class ConversationExporter {
      */
     public static void main(String[] args) throws Exception {
 
-        args = new String[]{
-                "resources/chat.txt",  // input
-                "resources/chat.json", // output
-                "-u", "bob",           // user id matcher
-                "-kw", "there",        // keyword matcher
-                "-bl", "Hello",        // keyword obfuscator
-                "-uo",                 // user id obfuscator
-                "-cco",                // credit card obfuscator
-                "-to"                  // telephone obfuscator
-        };
+        if (args.length == 0) {
+            args = DEFAULT_ARGUMENTS;
+        }
 
         ConversationExporter exporter = new ConversationExporter();
         ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
 
-        exporter.exportConversation(conf.getInputFilePath(), conf.getOutputFilePath(), conf.getFilters());
+        exporter.setOutputFormat(conf.getOutputFormat());
+        exporter.setOutputCodec(conf.getOutputCodec());
+        exporter.setTimeRange(conf.getTimeRange(), conf.getTimeIndexInterval());
+        exporter.setSearchIndex(conf.isSearchIndex());
+        exporter.setMessageMemory(conf.getMessageMemory(), Paths.get(conf.getMessageDirectory()));
+
+        ExportMetrics metrics = new ExportMetrics();
+        if (conf.isMetrics()) {
+            exporter.setMetricsListener(metrics);
+        }
+
+        boolean failed = false;
+        if (conf.isBuildSearchIndex()) {
+            exporter.buildSearchIndex(conf);
+        } else if (conf.isBatch()) {
+            BatchExporter.Summary summary = exporter.exportBatch(conf);
+            summary.print(System.out);
+            failed = summary.getFailed() > 0;
+        } else if (conf.isFollow()) {
+            exporter.followConversation(conf);
+        } else {
+            exporter.exportConversation(conf);
+        }
+
+        if (conf.isMetrics()) {
+            writeMetrics(metrics, conf.getMetricsFilePath());
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes the JSON summary of the measurements to the given file, or to standard error.
+     * @param metrics The measurements.
+     * @param metricsFilePath The path of the file, or null for standard error.
+     * @throws IOException Thrown when the file cannot be written.
+     */
+    private static void writeMetrics(ExportMetrics metrics, String metricsFilePath) throws IOException {
+        if (metricsFilePath == null) {
+            System.err.println(metrics.toJson());
+        } else {
+            try {
+                Files.write(Paths.get(metricsFilePath), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IOException("Writing to file failed. Try again.");
+            }
+        }
+    }
+
+    /**
+     * Sets the listener told about the bytes read, the messages parsed, filtered and written, and the time
+     * spent in each stage and filter of the exports.
+     * @param metricsListener The listener, or {@link MetricsListener#NONE} for exports that are not measured.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Sets the format the conversations are written in.
+     * @param outputFormat The format, {@link OutputFormat#JSON} by default.
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Sets the codec the conversations are compressed with as they are written.
+     * @param outputCodec The codec, or null for conversations which are not compressed.
+     */
+    public void setOutputCodec(Codec outputCodec) {
+        this.outputCodec = outputCodec;
+    }
+
+    Codec getOutputCodec() {
+        return outputCodec;
+    }
+
+    /**
+     * Sets the time range of the messages exported. The messages of a conversation are found by searching the file
+     * for the range, so that only the range is read, and a sparse index of the file can be kept next to it to read
+     * even less of the file.
+     * @param timeRange The time range, {@link TimeRange#ALL} by default.
+     * @param timeIndexInterval The number of bytes between two entries of the index, or 0 to search without index.
+     */
+    public void setTimeRange(TimeRange timeRange, int timeIndexInterval) {
+        this.timeRange = timeRange;
+        this.timeIndexInterval = timeIndexInterval;
+    }
+
+    /**
+     * Sets whether the messages kept by the user and keyword filters are found with the search index built next to
+     * the conversation by {@link #buildSearchIndex(ConversationExporterConfiguration)}, so that only those messages
+     * are read. A conversation without index, or which changed since it was indexed, is read whole.
+     * @param searchIndex Whether the search index is used, false by default.
+     */
+    public void setSearchIndex(boolean searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Sets the memory the messages of the conversations are held in while they are filtered. Outside of the heap,
+     * the size of a conversation no longer grows the heap nor the pauses of the garbage collector.
+     * @param messageMemory The memory, {@link MessageMemory#HEAP} by default.
+     * @param messageDirectory The directory of the files of {@link MessageMemory#MAPPED}.
+     */
+    public void setMessageMemory(MessageMemory messageMemory, Path messageDirectory) {
+        this.messageMemory = messageMemory;
+        this.messageDirectory = messageDirectory;
+    }
+
+    /**
+     * Gets the listener told about the measurements of the exports.
+     * @return The listener.
+     */
+    MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Gets the number of bytes of the conversation files read by the exports of this exporter so far,
+     * whether they are measured or not.
+     * @return The number of bytes read.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Counts the bytes read from a conversation file, and tells the metrics listener about them.
+     * @param bytes The number of bytes read.
+     */
+    void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+        metricsListener.bytesRead(bytes);
+    }
+
+    /**
+     * Follows the conversation at the input of the given {@code configuration}, appending the messages added to it
+     * to the output as newline-delimited JSON, until the thread is interrupted.
+     * @param configuration The exporter configuration.
+     * @throws IllegalArgumentException Thrown when the conversation is compressed, or when the checkpoint is not valid
+     * @throws IOException Thrown when file I/O fails.
+     * @throws InterruptedException Thrown when the thread is interrupted.
+     */
+    public void followConversation(ConversationExporterConfiguration configuration)
+            throws IllegalArgumentException, IOException, InterruptedException {
+        System.out.println("Following conversation '" + configuration.getInputFilePath() + "' into '"
+                + configuration.getOutputFilePath() + "'");
+        new ConversationFollower(this, Paths.get(configuration.getInputFilePath()),
+                Paths.get(configuration.getOutputFilePath()), Paths.get(configuration.getCheckpointFilePath()),
+                configuration.getFilters()).follow(configuration.getPollInterval());
+    }
+
+    /**
+     * Builds the search index of the conversation at the input of the given {@code configuration}, or of each
+     * conversation it lists in batch mode.
+     * @param configuration The exporter configuration.
+     * @throws IllegalArgumentException Thrown when the file was not found, or when it is not a valid conversation
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void buildSearchIndex(ConversationExporterConfiguration configuration)
+            throws IllegalArgumentException, IOException {
+        List<Path> inputs = configuration.isBatch()
+                ? BatchExporter.listInputs(configuration.getInputFilePath())
+                : Collections.singletonList(Paths.get(configuration.getInputFilePath()));
+        for (Path input : inputs) {
+            if (isCompressed(input.toString())) {
+                throw new IllegalArgumentException("The compressed conversation '" + input + "' cannot be indexed.");
+            }
+            SearchIndex index;
+            try {
+                index = SearchIndex.build(input);
+            } catch (NoSuchFileException e) {
+                throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+            }
+            System.out.println("Search index of '" + input + "' written to '" + SearchIndex.sidecar(input) + "' ("
+                    + index.getMessageCount() + " messages, " + index.getTermCount() + " words)");
+        }
+    }
+
+    /**
+     * Exports all the conversations listed by the input of the given batch {@code configuration}
+     * to its output directory.
+     * @param configuration The exporter configuration.
+     * @return The summary of the batch.
+     * @throws IllegalArgumentException Thrown when the inputs cannot be listed
+     * @throws IOException Thrown when the output directory cannot be created.
+     * @throws InterruptedException Thrown when the batch is interrupted.
+     */
+    public BatchExporter.Summary exportBatch(ConversationExporterConfiguration configuration)
+            throws IllegalArgumentException, IOException, InterruptedException {
+        return new BatchExporter(this, configuration.getWorkers()).export(configuration);
+    }
+
+    /**
+     * Exports the conversation described by the given {@code configuration}.
+     * @param configuration The exporter configuration.
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void exportConversation(ConversationExporterConfiguration configuration) throws IOException {
+        if (configuration.isCount()) {
+            long count = countMessages(configuration.getInputFilePath(), configuration.getFilters(),
+                    configuration.getMessageLimit());
+            System.out.println(count + " messages kept in '" + configuration.getInputFilePath() + "'");
+        } else if (configuration.isStreaming() || configuration.getMessageLimit() != Integer.MAX_VALUE) {
+            // the first messages are pulled from the log one at a time, which stops as soon as there are enough
+            streamConversation(configuration.getInputFilePath(), configuration.getOutputFilePath(),
+                    configuration.getFilters(), configuration.getUserLimit(), configuration.getMessageLimit());
+        } else if (configuration.isParallel()) {
+            exportConversationInParallel(configuration.getInputFilePath(), configuration.getOutputFilePath(),
+                    configuration.getFilters(), configuration.getUserLimit());
+        } else {
+            exportConversation(configuration.getInputFilePath(), configuration.getOutputFilePath(),
+                    configuration.getFilters(), configuration.getUserLimit());
+        }
     }
 
     /**
@@ -49,72 +332,488 @@ public class ConversationExporter {
      * @throws IOException Thrown when file I/O fails.
      */
     public void exportConversation(String inputFilePath, String outputFilePath, Collection<Filter> filters) throws IOException {
-        Conversation conversation = readConversation(inputFilePath);
+        exportConversation(inputFilePath, outputFilePath, filters, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath}, reporting only
+     * the most active users.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param filters The filters on the file specified by the input file path
+     * @param userLimit The maximum number of users in the activity report
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void exportConversation(String inputFilePath, String outputFilePath, Collection<Filter> filters, int userLimit)
+            throws IOException {
+        try (MessageStore messages = messageMemory.newStore(messageDirectory)) {
+            long start = System.nanoTime();
+            Conversation conversation = readConversation(inputFilePath, filters, messages);
+            long read = System.nanoTime();
+
+            if (hasPseudonyms(filters)) {
+                Set<String> users;
+                if (searchIndex) {
+                    // only the messages found by the index were read, the mentions are the ones of every sender
+                    users = readSenders(inputFilePath);
+                } else {
+                    users = new LinkedHashSet<>();
+                    for (Message message : conversation.getMessages()) {
+                        users.add(message.getSenderId());
+                    }
+                }
+                filters = withMentionsOf(filters, users);
+            }
 
-        conversation.setFilters(filters);
-        conversation.applyFilters(filters);
+            conversation.setFilters(filters);
+            conversation.applyFilters(Collections.singletonList(compile(filters)));
+            long filtered = System.nanoTime();
+            conversation.setUserLimit(userLimit);
+            long reported = System.nanoTime();
 
-        writeConversation(conversation, outputFilePath);
+            writeConversation(conversation, outputFilePath);
+
+            metricsListener.stageCompleted(Stage.READ, read - start);
+            metricsListener.stageCompleted(Stage.FILTER, filtered - read);
+            metricsListener.stageCompleted(Stage.REPORT, reported - filtered);
+            metricsListener.stageCompleted(Stage.WRITE, System.nanoTime() - reported);
+        }
 
         System.out.println("Conversation exported from '" + inputFilePath + "' to '" + outputFilePath);
     }
 
     /**
-     * Helper method to write the given {@code conversation} as JSON to the given {@code outputFilePath}.
-     * @param conversation The conversation to write.
-     * @param outputFilePath The file path where the conversation should be written.
+     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath}, reading and filtering
+     * its messages on all the available cores.
+     * The output is the same as the one of {@link #exportConversation(String, String, Collection)}.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param filters The filters on the file specified by the input file path
      * @throws IllegalArgumentException Thrown when the file was not found
-     * @throws IOException thrown when an I/O error occurs
+     * @throws IOException Thrown when file I/O fails.
      */
-    private void writeConversation(Conversation conversation, String outputFilePath) throws IllegalArgumentException, IOException {
+    public void exportConversationInParallel(String inputFilePath, String outputFilePath, Collection<Filter> filters)
+            throws IllegalArgumentException, IOException {
+        exportConversationInParallel(inputFilePath, outputFilePath, filters, Integer.MAX_VALUE);
+    }
 
-        try (OutputStream os = new FileOutputStream(outputFilePath);
-             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os))) {
+    /**
+     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath} on all the available
+     * cores, reporting only the most active users.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param filters The filters on the file specified by the input file path
+     * @param userLimit The maximum number of users in the activity report
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void exportConversationInParallel(String inputFilePath, String outputFilePath, Collection<Filter> filters,
+                                             int userLimit) throws IllegalArgumentException, IOException {
 
-            GsonBuilder gsonBuilder = new GsonBuilder();
-            gsonBuilder.registerTypeAdapter(Instant.class, new InstantSerializer());
+        // a compressed stream cannot be split, it is read and filtered sequentially, as are the few messages
+        // found by the search index
+        if (isCompressed(inputFilePath) || searchIndex) {
+            exportConversation(inputFilePath, outputFilePath, filters, userLimit);
+            return;
+        }
 
-            Gson g = gsonBuilder.create();
+        long start = System.nanoTime();
+        if (hasPseudonyms(filters)) {
+            filters = withMentionsOf(filters, readSenders(inputFilePath));
+        }
 
-            bw.write(g.toJson(conversation));
-        } catch (FileNotFoundException e) {
+        try (MessageStore messages = messageMemory.newStore(messageDirectory)) {
+            Conversation conversation;
+            try {
+                conversation = new ParallelConversationReader(messageMemory, messageDirectory).read(
+                        Paths.get(inputFilePath), compile(filters), readListener(), timeRange,
+                        openTimeIndex(Paths.get(inputFilePath)), messages);
+            } catch (NoSuchFileException e) {
+                throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+            }
+            long read = System.nanoTime();
+
+            conversation.setFilters(filters);
+            conversation.setUserLimit(userLimit);
+            long reported = System.nanoTime();
+
+            writeConversation(conversation, outputFilePath);
+
+            // messages are read and filtered together, the filters being measured on their own
+            metricsListener.stageCompleted(Stage.READ, read - start);
+            metricsListener.stageCompleted(Stage.REPORT, reported - read);
+            metricsListener.stageCompleted(Stage.WRITE, System.nanoTime() - reported);
+        }
+
+        System.out.println("Conversation exported from '" + inputFilePath + "' to '" + outputFilePath);
+    }
+
+    /**
+     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath} one message at a time,
+     * so that the whole conversation is never held in memory.
+     * The output is the same as the one of {@link #exportConversation(String, String, Collection)}.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param filters The filters on the file specified by the input file path
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void streamConversation(String inputFilePath, String outputFilePath, Collection<Filter> filters)
+            throws IllegalArgumentException, IOException {
+        streamConversation(inputFilePath, outputFilePath, filters, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath} one message at a time,
+     * reporting only the most active users. The activity is counted as messages are written, so only one
+     * counter per user is held in memory.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param filters The filters on the file specified by the input file path
+     * @param userLimit The maximum number of users in the activity report
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void streamConversation(String inputFilePath, String outputFilePath, Collection<Filter> filters,
+                                   int userLimit) throws IllegalArgumentException, IOException {
+        streamConversation(inputFilePath, outputFilePath, filters, userLimit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exports the first messages of the conversation at {@code inputFilePath} as JSON to {@code outputFilePath}
+     * one message at a time, reporting only the most active users among the messages written. The conversation
+     * is read no further than the last message written.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param filters The filters on the file specified by the input file path
+     * @param userLimit The maximum number of users in the activity report
+     * @param messageLimit The maximum number of messages written
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public void streamConversation(String inputFilePath, String outputFilePath, Collection<Filter> filters,
+                                   int userLimit, int messageLimit) throws IllegalArgumentException, IOException {
+
+        StageTimer timer = new StageTimer(metricsListener != MetricsListener.NONE);
+
+        try (ConversationView view = openView(inputFilePath, filters, timer, true);
+             ConversationWriter w = outputFormat.open(openOutput(outputFilePath))) {
+
+            long written = view.limit(messageLimit).writeTo(w, userLimit);
+
+            bytesRead(view.getBytesRead());
+            metricsListener.messagesParsed(view.getMessagesRead());
+            metricsListener.messagesWritten(written);
+        } catch (FileNotFoundException | NoSuchFileException e) {
             throw new IllegalArgumentException("The file was not found. Consider creating the file.");
         } catch (IOException e) {
             throw new IOException("Writing to file failed. Try again.");
         }
+
+        timer.report(metricsListener);
+
+        System.out.println("Conversation exported from '" + inputFilePath + "' to '" + outputFilePath);
     }
 
     /**
-     * Represents a helper to read a conversation from the given {@code inputFilePath}.
+     * Counts the messages of the conversation at {@code inputFilePath} kept by the filters, without writing them.
+     * @param inputFilePath The input file path.
+     * @param filters The filters on the file specified by the input file path
+     * @param messageLimit The number of messages after which the counting stops
+     * @return The number of messages kept, at most {@code messageLimit}.
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException Thrown when file I/O fails.
+     */
+    public long countMessages(String inputFilePath, Collection<Filter> filters, int messageLimit)
+            throws IllegalArgumentException, IOException {
+        // the mentions only change which messages are kept when a filter reads the contents they are rewritten in,
+        // otherwise the senders are not read first, and the counting stops at the limit
+        try (ConversationView view = openView(inputFilePath, filters, new StageTimer(false), readsMentions(filters))) {
+            long count = view.limit(messageLimit).count();
+            metricsListener.messagesParsed(view.getMessagesRead());
+            return count;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+        }
+    }
+
+    /**
+     * Opens a lazy view of the conversation at {@code inputFilePath}, whose messages are read and filtered only
+     * as they are pulled from the view.
+     * @param inputFilePath The input file path.
+     * @param filters The filters on the file specified by the input file path
+     * @return The view, to be closed once it was consumed.
+     * @throws IOException Thrown when the file cannot be opened.
+     */
+    public ConversationView viewConversation(String inputFilePath, Collection<Filter> filters) throws IOException {
+        return openView(inputFilePath, filters, new StageTimer(false), true);
+    }
+
+    /**
+     * Opens a lazy view of the conversation at {@code inputFilePath}. The pseudonym filters replace the mentions
+     * of all the senders of the conversation, which are read first, unless the search index lists them.
+     * @param mentions Whether the pseudonym filters replace the mentions of the users.
+     */
+    private ConversationView openView(String inputFilePath, Collection<Filter> filters, StageTimer timer,
+                                      boolean mentions) throws IOException {
+        if (mentions && hasPseudonyms(filters)) {
+            filters = withMentionsOf(filters, readSenders(inputFilePath));
+        }
+        ChatLogReader reader = openChatLog(inputFilePath, filters);
+        try {
+            return new ConversationView(reader.readConversationName(), reader,
+                    Collections.singletonList(compile(filters)), timer);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the listener of a reader telling the exporter about the bytes it read, the other measurements
+     * going to the metrics listener.
+     * @return The listener.
+     */
+    private MetricsListener readListener() {
+        return new MetricsListener() {
+            @Override
+            public void bytesRead(long bytes) {
+                ConversationExporter.this.bytesRead(bytes);
+            }
+
+            @Override
+            public void messagesParsed(long messages) {
+                metricsListener.messagesParsed(messages);
+            }
+        };
+    }
+
+    /**
+     * Compiles the filters, measuring each of them when the exports are measured.
+     * @param filters The filters.
+     * @return The compiled chain.
+     */
+    FilterChain compile(Collection<Filter> filters) {
+        FilterChain chain = FilterChain.compile(filters);
+        return metricsListener == MetricsListener.NONE ? chain : chain.metered(metricsListener);
+    }
+
+    /**
+     * Checks whether the filters give pseudonyms to the users.
+     * @param filters The filters.
+     * @return true if one of the filters, or of the chains among them, is a {@link UserPseudonymFilter}.
+     */
+    static boolean hasPseudonyms(Collection<Filter> filters) {
+        for (Filter filter : filters) {
+            if (filter instanceof UserPseudonymFilter
+                    || filter instanceof FilterChain && hasPseudonyms(((FilterChain) filter).getFilters())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a filter reads the contents after a pseudonym filter, so that the mentions it replaces
+     * may change what the filter does.
+     * @param filters The filters.
+     * @return true if a filter reading the contents runs after a {@link UserPseudonymFilter}.
+     */
+    static boolean readsMentions(Collection<Filter> filters) {
+        List<Filter> flat = new ArrayList<>();
+        flatten(filters, flat);
+        boolean pseudonyms = false;
+        for (Filter filter : flat) {
+            if (pseudonyms && filter.reads().contains(MessageField.CONTENT)) {
+                return true;
+            }
+            pseudonyms |= filter instanceof UserPseudonymFilter;
+        }
+        return false;
+    }
+
+    private static void flatten(Collection<Filter> filters, List<Filter> flat) {
+        for (Filter filter : filters) {
+            if (filter instanceof FilterChain) {
+                flatten(((FilterChain) filter).getFilters(), flat);
+            } else {
+                flat.add(filter);
+            }
+        }
+    }
+
+    /**
+     * Makes the pseudonym filters replace the mentions of the users of the conversation, keeping the other
+     * filters and the order of the filters.
+     * @param filters The filters.
+     * @param users The users of the conversation.
+     * @return The filters replacing the mentions of the users.
+     */
+    static List<Filter> withMentionsOf(Collection<Filter> filters, Collection<String> users) {
+        List<Filter> result = new ArrayList<>(filters.size());
+        for (Filter filter : filters) {
+            if (filter instanceof UserPseudonymFilter) {
+                filter = ((UserPseudonymFilter) filter).withMentionsOf(users);
+            } else if (filter instanceof FilterChain) {
+                filter = new FilterChain(withMentionsOf(((FilterChain) filter).getFilters(), users));
+            }
+            result.add(filter);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the senders of the conversation at {@code inputFilePath}, without decoding the messages.
      * @param inputFilePath The path to the input file.
-     * @return The {@link Conversation} representing by the input file.
+     * @return The senders, in the order of their first message.
      * @throws IllegalArgumentException Thrown when the file was not found
      * @throws IOException thrown when an I/O error occurs
      */
-    private Conversation readConversation(String inputFilePath) throws IllegalArgumentException, IOException {
-        try(InputStream is = new FileInputStream(inputFilePath);
-            BufferedReader r = new BufferedReader(new InputStreamReader(is))) {
+    private Set<String> readSenders(String inputFilePath) throws IllegalArgumentException, IOException {
+        if (searchIndex && timeRange.isAll() && !isCompressed(inputFilePath)) {
+            SearchIndex index = SearchIndex.load(Paths.get(inputFilePath));
+            if (index != null) {
+                return new LinkedHashSet<>(index.getUsers());
+            }
+        }
+        try (ChatLogReader r = openChatLog(inputFilePath, Collections.emptyList())) {
+            Set<String> senders = new LinkedHashSet<>();
+            r.readConversationName();
+            while (r.next()) {
+                senders.add(r.getSenderId());
+            }
+            return senders;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+        }
+    }
 
-            List<Message> messages = new ArrayList<>();
+    /**
+     * Opens the conversation at {@code inputFilePath}, through a decompressor when it is compressed, or reading only
+     * the messages which may be kept by the filters when the search index is used.
+     * @param inputFilePath The path to the input file.
+     * @param filters The filters applied to the messages read.
+     * @return The reader of the conversation.
+     * @throws IOException thrown when the file cannot be opened
+     */
+    private ChatLogReader openChatLog(String inputFilePath, Collection<Filter> filters) throws IOException {
+        Path path = Paths.get(inputFilePath);
+        Codec codec = Codecs.detect(path);
+        if (codec != null) {
+            CountingInputStream in = new CountingInputStream(
+                    new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+            try {
+                ChatLogReader reader = new StreamChatLogReader(codec.decompress(in), in);
+                // a compressed stream cannot be searched, the messages out of the range are skipped
+                return timeRange.isAll() ? reader : new TimeRangeReader(reader, timeRange);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+        long[] found = findMessages(path, filters);
+        if (timeRange.isAll() && found == null) {
+            return new MappedChatLogReader(path);
+        }
 
-            String conversationName = r.readLine();
-            String line;
+        TimeIndex index = openTimeIndex(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long from = index.seek(channel, timeRange.getFrom());
+            long to = index.seek(channel, timeRange.getTo());
+            MappedChatLogReader reader = MappedChatLogReader.window(channel, from, to);
+            if (found == null) {
+                return reader;
+            }
+            // the offsets of the messages found and of the range are both the ends of the lines before them
+            int first = lowerBound(found, from);
+            return new IndexedChatLogReader(reader, Arrays.copyOfRange(found, first, lowerBound(found, to)));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the messages of the conversation at {@code path} which may be kept by the filters with its search index.
+     * @param path The path to the input file.
+     * @param filters The filters applied to the messages read.
+     * @return The offsets of the messages found, or null when the whole conversation is read.
+     * @throws IOException thrown when the index cannot be read
+     */
+    private long[] findMessages(Path path, Collection<Filter> filters) throws IOException {
+        if (!searchIndex || filters.isEmpty()) {
+            return null;
+        }
+        SearchIndex index = SearchIndex.load(path);
+        if (index == null) {
+            System.err.println("The search index of '" + path + "' is missing or out of date, the conversation is read whole.");
+            return null;
+        }
+        return index.find(filters);
+    }
 
-            while ((line = r.readLine()) != null) {
-                String delimiter = " ";
+    private static int lowerBound(long[] offsets, long offset) {
+        int index = Arrays.binarySearch(offsets, offset);
+        return index < 0 ? -index - 1 : index;
+    }
 
-                int tsIndex = line.indexOf(delimiter);
-                Instant timeStamp = Instant.ofEpochSecond(Long.parseUnsignedLong(line.substring(0, tsIndex)));
+    /**
+     * Opens the index used to find the time range in the conversation at {@code path}.
+     * @param path The path to the input file.
+     * @return The saved index when the exports use one, or an empty index.
+     * @throws IOException thrown when the index cannot be read or saved
+     */
+    private TimeIndex openTimeIndex(Path path) throws IOException {
+        return timeRange.isAll() || timeIndexInterval == 0 ? TimeIndex.empty() : TimeIndex.open(path, timeIndexInterval);
+    }
 
-                int senderIndex = line.indexOf(delimiter, tsIndex + 1);
-                String senderId = line.substring(tsIndex + 1, senderIndex);
+    /**
+     * Checks whether the conversation at {@code inputFilePath} is compressed.
+     * @param inputFilePath The path to the input file.
+     * @return true if the file starts with the magic bytes of a codec.
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException thrown when the file cannot be read
+     */
+    static boolean isCompressed(String inputFilePath) throws IllegalArgumentException, IOException {
+        try {
+            return Codecs.detect(Paths.get(inputFilePath)) != null;
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+        }
+    }
 
-                String content = line.substring(senderIndex + 1, line.length());
+    /**
+     * Opens the output file, through a compressor when the output is compressed.
+     * @param outputFilePath The path to the output file.
+     * @return The stream to write the conversation to.
+     * @throws IOException thrown when the file cannot be opened
+     */
+    private OutputStream openOutput(String outputFilePath) throws IOException {
+        OutputStream out = new FileOutputStream(outputFilePath);
+        if (outputCodec == null) {
+            return out;
+        }
+        try {
+            return outputCodec.compress(out);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
 
-                messages.add(new Message(timeStamp, senderId, content));
-            }
+    /**
+     * Helper method to write the given {@code conversation} in the output format to the given {@code outputFilePath}.
+     * @param conversation The conversation to write.
+     * @param outputFilePath The file path where the conversation should be written.
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException thrown when an I/O error occurs
+     */
+    void writeConversation(Conversation conversation, String outputFilePath) throws IllegalArgumentException, IOException {
 
-            return new Conversation(conversationName, messages);
+        try (ConversationWriter w = outputFormat.open(openOutput(outputFilePath))) {
+            w.write(conversation);
+            metricsListener.messagesWritten(conversation.getMessages().size());
         } catch (FileNotFoundException e) {
             throw new IllegalArgumentException("The file was not found. Consider creating the file.");
         } catch (IOException e) {
@@ -123,12 +822,43 @@ public class ConversationExporter {
     }
 
     /**
-     * A class for JSON serialization of an Instant
+     * Represents a helper to read a conversation from the given {@code inputFilePath}.
+     * @param inputFilePath The path to the input file.
+     * @return The {@link Conversation} representing by the input file.
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException thrown when an I/O error occurs
+     */
+    Conversation readConversation(String inputFilePath) throws IllegalArgumentException, IOException {
+        return readConversation(inputFilePath, Collections.emptyList(), new MessageStore());
+    }
+
+    /**
+     * Reads the conversation at {@code inputFilePath} into a store, or only the messages which may be kept
+     * by the filters when the search index is used.
+     * @param inputFilePath The path to the input file.
+     * @param filters The filters applied to the messages read.
+     * @param messages The store the messages are added to.
+     * @return The {@link Conversation} representing by the input file.
+     * @throws IllegalArgumentException Thrown when the file was not found
+     * @throws IOException thrown when an I/O error occurs
      */
-    private class InstantSerializer implements JsonSerializer<Instant> {
-        @Override
-        public JsonElement serialize(Instant instant, Type type, JsonSerializationContext jsonSerializationContext) {
-            return new JsonPrimitive(instant.getEpochSecond());
+    private Conversation readConversation(String inputFilePath, Collection<Filter> filters, MessageStore messages)
+            throws IllegalArgumentException, IOException {
+        try (ChatLogReader r = openChatLog(inputFilePath, filters)) {
+
+            String conversationName = r.readConversationName();
+
+            while (r.next()) {
+                messages.add(r.getTimestamp(), r.getSenderId(), r.getContent());
+            }
+            bytesRead(r.getBytesRead());
+            metricsListener.messagesParsed(messages.size());
+
+            return new Conversation(conversationName, messages);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+        } catch (IOException e) {
+            throw new IOException("Writing to file failed. Try again.");
         }
     }
 }
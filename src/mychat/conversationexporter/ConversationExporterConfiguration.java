@@ -1,5 +1,7 @@
 package mychat.conversationexporter;
 
+import mychat.codec.Codec;
+import mychat.conversation.MessageMemory;
 import mychat.filter.Filter;
 
 import java.util.Collection;
@@ -25,6 +27,79 @@ public final class ConversationExporterConfiguration {
      */
     private Collection<Filter> filters;
 
+    /**
+     * Whether messages are written out one at a time as they are read
+     */
+    private boolean streaming;
+
+    /**
+     * Whether the conversation is read and filtered on several cores
+     */
+    private boolean parallel;
+
+    /**
+     * Whether the input lists many conversations, exported to the output directory
+     */
+    private boolean batch;
+
+    /**
+     * The number of conversations exported at the same time in a batch
+     */
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether the exports are measured, and the file the measurements are written to, or null for standard error
+     */
+    private boolean metrics;
+    private String metricsFilePath;
+
+    /**
+     * Whether the input is followed as it is appended to, the file keeping the offset reached,
+     * and the longest time between two looks at the input in milliseconds
+     */
+    private boolean follow;
+    private String checkpointFilePath;
+    private long pollInterval = 1000;
+
+    /**
+     * The format the conversations are written in
+     */
+    private OutputFormat outputFormat = OutputFormat.JSON;
+
+    /**
+     * The codec the conversations are compressed with as they are written, or null
+     */
+    private Codec outputCodec;
+
+    /**
+     * The time range of the messages exported, and the interval of the index used to find it, or 0 without index
+     */
+    private TimeRange timeRange = TimeRange.ALL;
+    private int timeIndexInterval;
+
+    /**
+     * Whether the search index of the input is built instead of exporting it, and whether exports use it
+     */
+    private boolean buildSearchIndex;
+    private boolean searchIndex;
+
+    /**
+     * The memory the messages are held in, and the directory of its files
+     */
+    private MessageMemory messageMemory = MessageMemory.HEAP;
+    private String messageDirectory = System.getProperty("java.io.tmpdir");
+
+    /**
+     * The maximum number of users in the activity report
+     */
+    private int userLimit = Integer.MAX_VALUE;
+
+    /**
+     * The maximum number of messages exported, and whether the messages kept are only counted instead of exported
+     */
+    private int messageLimit = Integer.MAX_VALUE;
+    private boolean count;
+
     /**
      * Initializes a new instance of the {@link ConversationExporterConfiguration} class.
      * @param inputFilePath The input file path.
@@ -44,6 +119,40 @@ public final class ConversationExporterConfiguration {
         this.filters = filters;
     }
 
+    /**
+     * Copies the configuration for another conversation, such as one of the conversations of a batch, every
+     * option being kept but the batch itself.
+     * @param inputFilePath The input file path of the conversation.
+     * @param outputFilePath The output file path of the conversation.
+     * @param filters The filters of the conversation.
+     * @return The configuration of the conversation.
+     */
+    ConversationExporterConfiguration forConversation(String inputFilePath, String outputFilePath,
+                                                      Collection<Filter> filters) {
+        ConversationExporterConfiguration copy = new ConversationExporterConfiguration(inputFilePath, outputFilePath,
+                filters);
+        copy.streaming = streaming;
+        copy.parallel = parallel;
+        copy.workers = workers;
+        copy.metrics = metrics;
+        copy.metricsFilePath = metricsFilePath;
+        copy.follow = follow;
+        copy.checkpointFilePath = checkpointFilePath;
+        copy.pollInterval = pollInterval;
+        copy.outputFormat = outputFormat;
+        copy.outputCodec = outputCodec;
+        copy.timeRange = timeRange;
+        copy.timeIndexInterval = timeIndexInterval;
+        copy.buildSearchIndex = buildSearchIndex;
+        copy.searchIndex = searchIndex;
+        copy.messageMemory = messageMemory;
+        copy.messageDirectory = messageDirectory;
+        copy.userLimit = userLimit;
+        copy.messageLimit = messageLimit;
+        copy.count = count;
+        return copy;
+    }
+
     public String getInputFilePath() {
         return inputFilePath;
     }
@@ -55,4 +164,168 @@ public final class ConversationExporterConfiguration {
     public Collection<Filter> getFilters() {
         return filters;
     }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    public String getMetricsFilePath() {
+        return metricsFilePath;
+    }
+
+    void setMetricsFilePath(String metricsFilePath) {
+        this.metricsFilePath = metricsFilePath;
+    }
+
+    public boolean isFollow() {
+        return follow;
+    }
+
+    void setFollow(boolean follow) {
+        this.follow = follow;
+    }
+
+    /**
+     * Gets the checkpoint of a followed input, which defaults to the output path with a {@code .checkpoint} extension.
+     * @return the path of the checkpoint
+     */
+    public String getCheckpointFilePath() {
+        return checkpointFilePath != null ? checkpointFilePath : outputFilePath + ".checkpoint";
+    }
+
+    void setCheckpointFilePath(String checkpointFilePath) {
+        this.checkpointFilePath = checkpointFilePath;
+    }
+
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    public Codec getOutputCodec() {
+        return outputCodec;
+    }
+
+    void setOutputCodec(Codec outputCodec) {
+        this.outputCodec = outputCodec;
+    }
+
+    public TimeRange getTimeRange() {
+        return timeRange;
+    }
+
+    void setTimeRange(TimeRange timeRange) {
+        this.timeRange = timeRange;
+    }
+
+    public int getTimeIndexInterval() {
+        return timeIndexInterval;
+    }
+
+    void setTimeIndexInterval(int timeIndexInterval) {
+        this.timeIndexInterval = timeIndexInterval;
+    }
+
+    public boolean isBuildSearchIndex() {
+        return buildSearchIndex;
+    }
+
+    void setBuildSearchIndex(boolean buildSearchIndex) {
+        this.buildSearchIndex = buildSearchIndex;
+    }
+
+    public boolean isSearchIndex() {
+        return searchIndex;
+    }
+
+    void setSearchIndex(boolean searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    public MessageMemory getMessageMemory() {
+        return messageMemory;
+    }
+
+    void setMessageMemory(MessageMemory messageMemory) {
+        this.messageMemory = messageMemory;
+    }
+
+    public String getMessageDirectory() {
+        return messageDirectory;
+    }
+
+    void setMessageDirectory(String messageDirectory) {
+        this.messageDirectory = messageDirectory;
+    }
+
+    public int getUserLimit() {
+        return userLimit;
+    }
+
+    void setUserLimit(int userLimit) {
+        this.userLimit = userLimit;
+    }
+
+    public int getMessageLimit() {
+        return messageLimit;
+    }
+
+    void setMessageLimit(int messageLimit) {
+        this.messageLimit = messageLimit;
+    }
+
+    public boolean isCount() {
+        return count;
+    }
+
+    void setCount(boolean count) {
+        this.count = count;
+    }
 }
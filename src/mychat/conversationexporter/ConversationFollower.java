@@ -0,0 +1,294 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.ActivityReport;
+import mychat.conversation.Message;
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.metrics.MetricsListener;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a conversation which is appended to, exporting only the messages added since the last time.
+ * The offset of the first line not exported yet is kept in a checkpoint file, so a follower started again
+ * carries on where the previous one stopped. The output is newline-delimited JSON written like
+ * {@link OutputFormat#NDJSON}: a follower appends the record with the name of the conversation, then a record for
+ * each message kept by the filters, and the trailer record with the users of the messages it appended once it
+ * {@link #end() ends}, so that each run of a follower appends a conversation of its own. A line is only exported
+ * once it ends with a new line, and the checkpoint is only moved once the output is on disk, so a message can be
+ * exported twice after a crash but is never lost. A file which gets shorter than the checkpoint is taken as
+ * rotated, and is followed again from its start as another conversation. A compressed conversation cannot be
+ * followed, since the bytes appended to it are not lines of the conversation.
+ */
+public final class ConversationFollower {
+
+    /**
+     * The number of bytes read at once while looking back for the end of the last complete line
+     */
+    private static final int SCAN_SIZE = 4096;
+
+    private final ConversationExporter exporter;
+    private final Path input;
+    private final Path output;
+    private final Path checkpoint;
+    private final Collection<Filter> filters;
+    private final boolean pseudonyms;
+
+    /**
+     * The offset of the first line not exported yet
+     */
+    private long offset;
+
+    /**
+     * The senders seen so far, whose mentions are given pseudonyms, and the offset they were read up to
+     */
+    private final Set<String> senders = new LinkedHashSet<>();
+    private long sendersEnd;
+
+    private FilterChain chain;
+
+    /**
+     * Whether the name record of the conversation was appended, and the activity of the messages appended since
+     */
+    private boolean started;
+    private ActivityReport report = new ActivityReport();
+
+    /**
+     * @param exporter the exporter whose metrics listener measures the filters
+     * @param input the conversation followed
+     * @param output the newline-delimited JSON file the messages are appended to
+     * @param checkpoint the file keeping the offset of the first line not exported yet
+     * @param filters the filters on the messages
+     * @throws IllegalArgumentException Thrown when the conversation is compressed, or when the checkpoint is not valid
+     * @throws IOException Thrown when the checkpoint cannot be read
+     */
+    public ConversationFollower(ConversationExporter exporter, Path input, Path output, Path checkpoint,
+                                Collection<Filter> filters) throws IllegalArgumentException, IOException {
+        if (Files.exists(input) && ConversationExporter.isCompressed(input.toString())) {
+            throw new IllegalArgumentException("The compressed conversation '" + input + "' cannot be followed.");
+        }
+        this.exporter = exporter;
+        this.input = input;
+        this.output = output;
+        this.checkpoint = checkpoint;
+        this.filters = filters;
+        this.pseudonyms = ConversationExporter.hasPseudonyms(filters);
+        this.offset = readCheckpoint(checkpoint);
+        this.chain = exporter.compile(filters);
+    }
+
+    /**
+     * Exports the messages appended since the last time, then waits for the conversation to change, until
+     * the thread is interrupted, which {@link #end() ends} the conversation. Changes are noticed by watching the
+     * directory of the conversation, and by looking at the conversation every {@code pollInterval} milliseconds
+     * on file systems which cannot be watched.
+     * @param pollInterval the longest time between two looks at the conversation, in milliseconds
+     * @throws IllegalArgumentException Thrown when the conversation was not found
+     * @throws IOException Thrown when file I/O fails
+     * @throws InterruptedException Thrown when the thread is interrupted, which is how following stops
+     */
+    public void follow(long pollInterval) throws IllegalArgumentException, IOException, InterruptedException {
+        Path directory = input.toAbsolutePath().getParent();
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                poll();
+                WatchKey key = watcher.poll(pollInterval, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Exports the complete lines appended to the conversation since the last time.
+     * @return the number of messages appended to the output
+     * @throws IllegalArgumentException Thrown when the conversation was not found
+     * @throws IOException Thrown when file I/O fails
+     */
+    public int poll() throws IllegalArgumentException, IOException {
+        long size;
+        try {
+            size = Files.size(input);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("The file was not found. Consider creating the file.");
+        }
+        if (size < offset) {
+            end();
+            offset = 0;
+        }
+
+        long end;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            end = lastLineEnd(channel, offset, size);
+        }
+        if (end == offset) {
+            return 0;
+        }
+
+        if (pseudonyms) {
+            bindMentions(end);
+        }
+
+        MetricsListener listener = exporter.getMetricsListener();
+        long parsed = 0;
+        int written = 0;
+        try (MappedChatLogReader r = new MappedChatLogReader(
+                     FileChannel.open(input, StandardOpenOption.READ), offset, end, MappedChatLogReader.MAPPING_WINDOW);
+             FileOutputStream out = new FileOutputStream(output.toFile(), true);
+             ConversationWriter w = OutputFormat.NDJSON.open(out)) {
+
+            String name = offset == 0 ? r.readConversationName() : null;
+            if (!started) {
+                w.beginConversation(name != null ? name : readConversationName());
+                started = true;
+            }
+            while (r.next()) {
+                parsed++;
+                Message message = chain.apply(r.getMessage());
+                if (message != null) {
+                    w.write(message);
+                    report.record(message.getSenderId());
+                    written++;
+                }
+            }
+            w.flush();
+            out.getChannel().force(false);
+        }
+
+        writeCheckpoint(end);
+        exporter.bytesRead(end - offset);
+        listener.messagesParsed(parsed);
+        listener.messagesWritten(written);
+        offset = end;
+        return written;
+    }
+
+    /**
+     * Ends the conversation appended to the output, appending the trailer record with the users of the messages
+     * appended since it started. The next messages appended start another conversation.
+     * @throws IOException Thrown when the output cannot be written
+     */
+    public void end() throws IOException {
+        if (!started) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(output.toFile(), true);
+             ConversationWriter w = OutputFormat.NDJSON.open(out)) {
+            w.endConversation(report.getUsers());
+            w.flush();
+            out.getChannel().force(false);
+        }
+        started = false;
+        report = new ActivityReport();
+    }
+
+    /**
+     * Gets the offset of the first line not exported yet.
+     * @return the offset in the conversation
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Reads the name of the conversation, when the follower carries on from a checkpoint after it.
+     */
+    private String readConversationName() throws IOException {
+        try (MappedChatLogReader r = new MappedChatLogReader(input)) {
+            return r.readConversationName();
+        }
+    }
+
+    /**
+     * Gives the pseudonym filters the senders of the conversation up to {@code end}, recompiling the chain
+     * when new senders appeared.
+     */
+    private void bindMentions(long end) throws IOException {
+        if (sendersEnd > end) {
+            sendersEnd = 0;
+        }
+        int known = senders.size();
+        try (MappedChatLogReader r = new MappedChatLogReader(
+                FileChannel.open(input, StandardOpenOption.READ), sendersEnd, end, MappedChatLogReader.MAPPING_WINDOW)) {
+            if (sendersEnd == 0) {
+                r.readConversationName();
+            }
+            while (r.next()) {
+                senders.add(r.getSenderId());
+            }
+        }
+        sendersEnd = end;
+        if (senders.size() > known) {
+            chain = exporter.compile(ConversationExporter.withMentionsOf(filters, senders));
+        }
+    }
+
+    /**
+     * Finds the end of the last complete line of {@code [from, size)}.
+     * @return the offset past the last new line, or {@code from} when there is none
+     */
+    private static long lastLineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long to = size;
+        while (to > from) {
+            long start = Math.max(from, to - SCAN_SIZE);
+            buffer.clear();
+            buffer.limit((int) (to - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            to = start;
+        }
+        return from;
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IllegalArgumentException, IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim();
+        try {
+            long offset = Long.parseLong(content);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("The checkpoint '" + checkpoint + "' is not valid.");
+    }
+
+    /**
+     * Replaces the checkpoint at once, so that it is never seen half written.
+     */
+    private void writeCheckpoint(long offset) throws IOException {
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temporary, (offset + "\n").getBytes(StandardCharsets.US_ASCII));
+        try {
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
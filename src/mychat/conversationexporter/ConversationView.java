@@ -0,0 +1,245 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.ActivityReport;
+import mychat.conversation.Message;
+import mychat.conversation.User;
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.metrics.Stage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A conversation read lazily from a chat log. Its filters are composed into a pipeline which only runs as its
+ * messages are pulled, by iterating the view, counting its messages or writing it, so that a consumer needing only
+ * the first messages stops reading the log as soon as it has them, leaving the rest of the log unread and unfiltered.
+ * <p>
+ * The views derived with {@link #filter(Filter)} and {@link #limit(int)} read the log of the view they are derived
+ * from, which can only be read once: only one of them is consumed, and closing any of them closes the log.
+ */
+public final class ConversationView implements Iterable<Message>, Closeable {
+
+    private final Source source;
+    private final List<Filter> filters;
+    private final int limit;
+
+    /**
+     * @param name the name of the conversation, or null
+     * @param reader the log of the conversation, positioned after its name
+     * @param filters the filters of the messages
+     * @param timer the timer charged with the reading and the filtering of the messages
+     */
+    ConversationView(String name, ChatLogReader reader, List<Filter> filters, StageTimer timer) {
+        this(new Source(name, reader, timer), filters, Integer.MAX_VALUE);
+    }
+
+    private ConversationView(Source source, List<Filter> filters, int limit) {
+        this.source = source;
+        this.filters = filters;
+        this.limit = limit;
+    }
+
+    public String getName() {
+        return source.name;
+    }
+
+    /**
+     * Adds a filter to the pipeline of the view, run after its other filters once messages are pulled.
+     * @param filter the filter
+     * @return the view of the messages kept by the filter
+     */
+    public ConversationView filter(Filter filter) {
+        List<Filter> composed = new ArrayList<>(filters.size() + 1);
+        composed.addAll(filters);
+        composed.add(filter);
+        return new ConversationView(source, Collections.unmodifiableList(composed), limit);
+    }
+
+    /**
+     * Limits the number of messages of the view, the log being read no further than the last of them.
+     * @param limit the maximum number of messages kept
+     * @return the view of the first messages kept
+     */
+    public ConversationView limit(int limit) {
+        return new ConversationView(source, filters, Math.min(this.limit, limit));
+    }
+
+    /**
+     * Pulls the messages kept by the filters, up to the limit of the view.
+     * The iterator throws {@link UncheckedIOException} when the log cannot be read.
+     * @return the iterator
+     * @throws IllegalStateException thrown when the log was already read by this view or one it shares its log with
+     */
+    @Override
+    public Iterator<Message> iterator() throws IllegalStateException {
+        source.consume();
+        FilterChain chain = FilterChain.compile(filters);
+
+        return new Iterator<Message>() {
+            private Message next;
+            private int pulled;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && pulled < limit && source.next()) {
+                    Message message = source.reader.getMessage();
+                    source.timer.stop(Stage.READ);
+                    next = chain.apply(message);
+                    source.timer.stop(Stage.FILTER);
+                }
+                return next != null;
+            }
+
+            @Override
+            public Message next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Message message = next;
+                next = null;
+                pulled++;
+                return message;
+            }
+        };
+    }
+
+    /**
+     * Counts the messages kept by the filters, up to the limit of the view. Without filters, the messages are
+     * skipped over without being decoded.
+     * @return the number of messages
+     * @throws IOException thrown when the log cannot be read
+     */
+    public long count() throws IOException {
+        try {
+            if (isEmpty(filters)) {
+                source.consume();
+                long count = 0;
+                while (count < limit && source.next()) {
+                    count++;
+                }
+                return count;
+            }
+
+            long count = 0;
+            for (Iterator<Message> messages = iterator(); messages.hasNext(); messages.next()) {
+                count++;
+            }
+            return count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the messages of the view one at a time, followed by the activity report of the messages written.
+     * @param writer the writer of the conversation
+     * @param userLimit the maximum number of users in the activity report
+     * @return the number of messages written
+     * @throws IOException thrown when the log cannot be read or the conversation cannot be written
+     */
+    public long writeTo(ConversationWriter writer, int userLimit) throws IOException {
+        ActivityReport report = new ActivityReport();
+        long written = 0;
+        try {
+            writer.beginConversation(source.name);
+            for (Message message : this) {
+                report.record(message.getSenderId());
+                writer.write(message);
+                written++;
+                source.timer.stop(Stage.WRITE);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Map<String, User> users = report.getUsers(userLimit);
+        source.timer.stop(Stage.REPORT);
+        writer.endConversation(users);
+        source.timer.stop(Stage.WRITE);
+        return written;
+    }
+
+    /**
+     * Gets the number of messages read from the log so far, which is smaller than the number of messages
+     * of the log when a limit was reached.
+     * @return the number of messages read
+     */
+    public long getMessagesRead() {
+        return source.read;
+    }
+
+    /**
+     * Gets the number of bytes of the conversation file read so far, which is smaller than the size of the file
+     * when a limit was reached.
+     * @return the number of bytes read
+     */
+    public long getBytesRead() {
+        return source.reader.getBytesRead();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.reader.close();
+    }
+
+    /**
+     * Checks whether the filters keep every message unchanged, chains of filters being empty.
+     */
+    private static boolean isEmpty(List<Filter> filters) {
+        for (Filter filter : filters) {
+            if (!(filter instanceof FilterChain) || !isEmpty(((FilterChain) filter).getFilters())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The log shared by a view and the views derived from it.
+     */
+    private static final class Source {
+
+        private final String name;
+        private final ChatLogReader reader;
+        private final StageTimer timer;
+        private boolean consumed;
+        private long read;
+
+        private Source(String name, ChatLogReader reader, StageTimer timer) {
+            this.name = name;
+            this.reader = reader;
+            this.timer = timer;
+        }
+
+        private void consume() throws IllegalStateException {
+            if (consumed) {
+                throw new IllegalStateException("The conversation '" + name + "' was already read.");
+            }
+            consumed = true;
+        }
+
+        /**
+         * Moves to the next message of the log.
+         */
+        private boolean next() {
+            try {
+                boolean next = reader.next();
+                if (next) {
+                    read++;
+                }
+                timer.stop(Stage.READ);
+                return next;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
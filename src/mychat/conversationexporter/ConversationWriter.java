@@ -0,0 +1,52 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.User;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes conversations in one of the {@link OutputFormat}s. A conversation can be written at once with
+ * {@link #write(Conversation)}, or one message at a time between {@link #beginConversation(String)} and
+ * {@link #endConversation(Map)}.
+ */
+public interface ConversationWriter extends Closeable, Flushable {
+
+    /**
+     * Starts a conversation whose messages are then written one at a time.
+     * @param name the name of the conversation, or null
+     * @throws IOException thrown when the stream cannot be written
+     */
+    void beginConversation(String name) throws IOException;
+
+    /**
+     * Writes a message of the conversation.
+     * @param message the message to write
+     * @throws IOException thrown when the stream cannot be written
+     */
+    void write(Message message) throws IOException;
+
+    /**
+     * Ends a conversation started with {@link #beginConversation(String)}.
+     * @param users the users of the conversation
+     * @throws IOException thrown when the stream cannot be written
+     */
+    void endConversation(Map<String, User> users) throws IOException;
+
+    /**
+     * Writes a whole conversation.
+     * @param conversation the conversation to write
+     * @throws IOException thrown when the stream cannot be written
+     */
+    default void write(Conversation conversation) throws IOException {
+        beginConversation(conversation.getName());
+        for (Message message : conversation.getMessages()) {
+            write(message);
+        }
+        endConversation(conversation.getUsers());
+    }
+}
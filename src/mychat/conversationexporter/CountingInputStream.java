@@ -0,0 +1,62 @@
+package mychat.conversationexporter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream, such as the compressed bytes of a conversation file taken by a decompressor.
+ */
+final class CountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    /**
+     * @param in the stream counted, which is closed with this stream
+     */
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    /**
+     * Marks are not supported, so that no byte is counted twice.
+     * @return false
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Gets the number of bytes read or skipped so far.
+     * @return the number of bytes
+     */
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,69 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Message;
+
+import java.io.IOException;
+
+/**
+ * Reads only the messages of a conversation found by its {@link SearchIndex}, moving to the line of each of them
+ * instead of reading the lines in between.
+ */
+final class IndexedChatLogReader implements ChatLogReader {
+
+    private final MappedChatLogReader reader;
+    private final long[] offsets;
+    private int next;
+
+    /**
+     * @param reader the reader of the conversation, which is closed with this reader
+     * @param offsets the offsets of the lines of the messages to read, in increasing order
+     */
+    IndexedChatLogReader(MappedChatLogReader reader, long[] offsets) {
+        this.reader = reader;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public String readConversationName() throws IOException {
+        return reader.readConversationName();
+    }
+
+    @Override
+    public boolean next() throws IOException, IllegalArgumentException {
+        if (next == offsets.length) {
+            return false;
+        }
+        reader.seek(offsets[next++]);
+        return reader.next();
+    }
+
+    @Override
+    public long getTimestamp() {
+        return reader.getTimestamp();
+    }
+
+    @Override
+    public String getSenderId() {
+        return reader.getSenderId();
+    }
+
+    @Override
+    public String getContent() {
+        return reader.getContent();
+    }
+
+    @Override
+    public Message getMessage() {
+        return reader.getMessage();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return reader.getBytesRead();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
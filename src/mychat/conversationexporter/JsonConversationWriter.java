@@ -0,0 +1,361 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes conversations as UTF-8 JSON, encoding strings and numbers straight into a reusable byte buffer.
+ * The output is the same as the one of a default {@code Gson} writing timestamps as epoch seconds:
+ * fields are written in the order they are declared, null fields are left out and strings are escaped
+ * the HTML-safe way.
+ * A conversation can be written at once with {@link #write(Conversation)}, or one message at a time
+ * between {@link #beginConversation(String)} and {@link #endConversation(Map)}. Messages can also be written
+ * as records of newline-delimited JSON with {@link #writeRecord(Message)}, and a {@link #delimited(OutputStream)}
+ * writer writes whole conversations that way: a record with the name, one record per message and a trailer
+ * record with the users.
+ */
+public final class JsonConversationWriter implements ConversationWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    /**
+     * The escape of each ASCII char, or null when it is written as is
+     */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['<'] = "\\u003c";
+        ESCAPES['>'] = "\\u003e";
+        ESCAPES['&'] = "\\u0026";
+        ESCAPES['='] = "\\u003d";
+        ESCAPES['\''] = "\\u0027";
+    }
+
+    private final OutputStream out;
+    private final boolean delimited;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    /**
+     * Whether the next value follows another one in the same object or array
+     */
+    private boolean needsComma;
+
+    /**
+     * @param out the stream written to, which is closed with the writer
+     */
+    public JsonConversationWriter(OutputStream out) {
+        this(out, false);
+    }
+
+    private JsonConversationWriter(OutputStream out, boolean delimited) {
+        this.out = out;
+        this.delimited = delimited;
+    }
+
+    /**
+     * Creates a writer of conversations as newline-delimited JSON.
+     * @param out the stream written to, which is closed with the writer
+     * @return the writer
+     */
+    public static JsonConversationWriter delimited(OutputStream out) {
+        return new JsonConversationWriter(out, true);
+    }
+
+    /**
+     * Writes a whole conversation.
+     * @param conversation the conversation to write
+     * @throws IOException thrown when the stream cannot be written
+     */
+    @Override
+    public void write(Conversation conversation) throws IOException {
+        if (delimited) {
+            ConversationWriter.super.write(conversation);
+            return;
+        }
+        beginObject();
+        stringField("name", conversation.getName());
+
+        List<Message> messages = conversation.getMessages();
+        if (messages != null) {
+            name("messages");
+            beginArray();
+            for (Message message : messages) {
+                write(message);
+            }
+            endArray();
+        }
+
+        if (conversation.getUsers() != null) {
+            users(conversation.getUsers());
+        }
+        endObject();
+    }
+
+    /**
+     * Starts a conversation whose messages are then written one at a time.
+     * @param name the name of the conversation, which is left out when null
+     * @throws IOException thrown when the stream cannot be written
+     */
+    @Override
+    public void beginConversation(String name) throws IOException {
+        beginObject();
+        stringField("name", name);
+        if (delimited) {
+            endRecord();
+            return;
+        }
+        name("messages");
+        beginArray();
+    }
+
+    /**
+     * Writes a message of the conversation.
+     * @param message the message to write
+     * @throws IOException thrown when the stream cannot be written
+     */
+    @Override
+    public void write(Message message) throws IOException {
+        if (delimited) {
+            writeRecord(message);
+        } else {
+            message(message);
+        }
+    }
+
+    /**
+     * Writes a message on a line of its own, as a record of newline-delimited JSON.
+     * @param message the message to write
+     * @throws IOException thrown when the stream cannot be written
+     */
+    public void writeRecord(Message message) throws IOException {
+        needsComma = false;
+        message(message);
+        writeByte('\n');
+        needsComma = false;
+    }
+
+    private void message(Message message) throws IOException {
+        beginObject();
+        stringField("content", message.getContent());
+        Instant timestamp = message.getTimestamp();
+        if (timestamp != null) {
+            name("timestamp");
+            value(timestamp.getEpochSecond());
+        }
+        stringField("senderId", message.getSenderId());
+        endObject();
+    }
+
+    /**
+     * Ends a conversation started with {@link #beginConversation(String)}.
+     * @param users the users of the conversation
+     * @throws IOException thrown when the stream cannot be written
+     */
+    @Override
+    public void endConversation(Map<String, User> users) throws IOException {
+        if (delimited) {
+            needsComma = false;
+            beginObject();
+            users(users);
+            endRecord();
+            return;
+        }
+        endArray();
+        users(users);
+        endObject();
+    }
+
+    /**
+     * Ends the object of a record of newline-delimited JSON, and its line.
+     */
+    private void endRecord() throws IOException {
+        endObject();
+        writeByte('\n');
+        needsComma = false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void users(Map<String, User> users) throws IOException {
+        name("users");
+        beginObject();
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            name(entry.getKey());
+            beginObject();
+            stringField("name", entry.getValue().getName());
+            name("activity");
+            value(entry.getValue().getActivity());
+            endObject();
+        }
+        endObject();
+    }
+
+    private void stringField(String name, String value) throws IOException {
+        if (value != null) {
+            name(name);
+            value(value);
+        }
+    }
+
+    private void beginObject() throws IOException {
+        separate();
+        writeByte('{');
+        needsComma = false;
+    }
+
+    private void endObject() throws IOException {
+        writeByte('}');
+        needsComma = true;
+    }
+
+    private void beginArray() throws IOException {
+        separate();
+        writeByte('[');
+        needsComma = false;
+    }
+
+    private void endArray() throws IOException {
+        writeByte(']');
+        needsComma = true;
+    }
+
+    private void name(String name) throws IOException {
+        separate();
+        string(name);
+        writeByte(':');
+        needsComma = false;
+    }
+
+    private void value(String value) throws IOException {
+        separate();
+        string(value);
+        needsComma = true;
+    }
+
+    private void value(long value) throws IOException {
+        separate();
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+        } else {
+            if (value < 0) {
+                writeByte('-');
+                value = -value;
+            }
+            ensureCapacity(19);
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = count + digits - 1; i >= count; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            count += digits;
+        }
+        needsComma = true;
+    }
+
+    private void separate() throws IOException {
+        if (needsComma) {
+            writeByte(',');
+        }
+    }
+
+    /**
+     * Writes a quoted and escaped string, encoding its chars as UTF-8.
+     */
+    private void string(String s) throws IOException {
+        writeByte('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                String escape = ESCAPES[c];
+                if (escape == null) {
+                    writeByte(c);
+                } else {
+                    ascii(escape);
+                }
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[count++] = (byte) (0xc0 | c >> 6);
+                buffer[count++] = (byte) (0x80 | c & 0x3f);
+            } else if (c == '\u2028' || c == '\u2029') {
+                ensureCapacity(6);
+                buffer[count++] = '\\';
+                buffer[count++] = 'u';
+                buffer[count++] = HEX[c >> 12];
+                buffer[count++] = HEX[c >> 8 & 0xf];
+                buffer[count++] = HEX[c >> 4 & 0xf];
+                buffer[count++] = HEX[c & 0xf];
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                ensureCapacity(4);
+                buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate cannot be encoded, and is replaced like the JDK encoder does
+                writeByte('?');
+            } else {
+                ensureCapacity(3);
+                buffer[count++] = (byte) (0xe0 | c >> 12);
+                buffer[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[count++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        writeByte('"');
+    }
+
+    private void ascii(String s) throws IOException {
+        ensureCapacity(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (count + length > buffer.length) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
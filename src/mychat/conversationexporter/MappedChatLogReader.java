@@ -0,0 +1,393 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Reads a conversation in the {@code <timestamp> <user> <message>} format by memory mapping the file
+ * and scanning its bytes directly.
+ * The reader is a cursor: {@link #next()} moves to the next message, whose timestamp is parsed from
+ * its digits while the sender id and content stay as slices of the mapping until they are asked for.
+ */
+public final class MappedChatLogReader implements ChatLogReader {
+
+    /**
+     * The largest region of the file mapped at once
+     */
+    static final int MAPPING_WINDOW = 1 << 26;
+
+    /**
+     * The number of distinct sender ids remembered while decoding
+     */
+    private static final int SENDER_CACHE_SIZE = 256;
+
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte DELIMITER = ' ';
+
+    private final FileChannel channel;
+    private final long end;
+
+    /**
+     * The offset of the first message read after the conversation name, or 0 to read every message
+     */
+    private long messagesStart;
+    private final int windowSize;
+
+    /**
+     * The currently mapped region of the file and its absolute start
+     */
+    private MappedByteBuffer window;
+    private ByteBuffer slicer;
+    private long windowStart;
+
+    /**
+     * The position of the next line, relative to the window
+     */
+    private int position;
+
+    /**
+     * The number of bytes of the lines read, which skips the lines moved over
+     */
+    private long bytesRead;
+
+    /**
+     * The current message, relative to the window
+     */
+    private long timestamp;
+    private int senderStart;
+    private int senderEnd;
+    private int contentStart;
+    private int contentEnd;
+    private String senderId;
+    private String content;
+
+    private byte[] scratch = new byte[256];
+    private final byte[][] cachedSenderBytes = new byte[SENDER_CACHE_SIZE][];
+    private final String[] cachedSenders = new String[SENDER_CACHE_SIZE];
+
+    /**
+     * Opens the conversation at the given {@code path}.
+     * @param path the path of the conversation file
+     * @throws IOException thrown when the file cannot be opened
+     */
+    public MappedChatLogReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), 0, -1, MAPPING_WINDOW);
+    }
+
+    /**
+     * Opens the byte range {@code [start, end)} of the given {@code channel}, which must begin at the
+     * start of a line. The reader takes ownership of the channel.
+     * @param channel the channel of the conversation file
+     * @param start the offset of the first line to read
+     * @param end the offset past the last line to read, or -1 for the end of the file
+     * @param windowSize the largest region of the file mapped at once
+     * @throws IOException thrown when the file cannot be mapped
+     */
+    MappedChatLogReader(FileChannel channel, long start, long end, int windowSize) throws IOException {
+        this.channel = channel;
+        this.end = end < 0 ? channel.size() : end;
+        this.windowSize = windowSize;
+        map(start);
+    }
+
+    /**
+     * Opens a conversation to read its name and then only the messages in {@code [messagesStart, messagesEnd)}.
+     * The reader takes ownership of the channel.
+     * @param channel the channel of the conversation file
+     * @param messagesStart the offset of the first message to read, which is the start of a line after the name
+     * @param messagesEnd the offset past the last message to read
+     * @return the reader
+     * @throws IOException thrown when the file cannot be mapped
+     */
+    static MappedChatLogReader window(FileChannel channel, long messagesStart, long messagesEnd) throws IOException {
+        MappedChatLogReader reader = new MappedChatLogReader(channel, 0, messagesEnd, MAPPING_WINDOW);
+        reader.messagesStart = messagesStart;
+        return reader;
+    }
+
+    /**
+     * Reads the conversation name, which is the first line of the file.
+     * @return the conversation name or null if the file is empty
+     * @throws IOException thrown when the file cannot be mapped
+     */
+    @Override
+    public String readConversationName() throws IOException {
+        int lineEnd = nextLineEnd();
+        if (lineEnd < 0) {
+            return null;
+        }
+        String name = decode(position, trimCarriageReturn(position, lineEnd));
+        consumeLine(position, lineEnd);
+        if (messagesStart > getPosition()) {
+            map(messagesStart);
+        }
+        return name;
+    }
+
+    /**
+     * Moves to the next message of the conversation, skipping blank lines.
+     * @return true if there is a message, false at the end of the file
+     * @throws IOException thrown when the file cannot be mapped
+     * @throws IllegalArgumentException thrown when the line is not a valid message
+     */
+    @Override
+    public boolean next() throws IOException, IllegalArgumentException {
+        while (true) {
+            int lineEnd = nextLineEnd();
+            if (lineEnd < 0) {
+                return false;
+            }
+            int lineStart = position;
+            consumeLine(lineStart, lineEnd);
+
+            lineEnd = trimCarriageReturn(lineStart, lineEnd);
+            if (lineEnd > lineStart) {
+                parseLine(lineStart, lineEnd);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the timestamp of the current message in seconds since the epoch.
+     * @return the timestamp of the current message
+     */
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the sender id of the current message.
+     * @return the sender id of the current message
+     */
+    @Override
+    public String getSenderId() {
+        if (senderId == null) {
+            senderId = decodeSender(senderStart, senderEnd);
+        }
+        return senderId;
+    }
+
+    /**
+     * Gets the content of the current message.
+     * @return the content of the current message
+     */
+    @Override
+    public String getContent() {
+        if (content == null) {
+            content = decode(contentStart, contentEnd);
+        }
+        return content;
+    }
+
+    /**
+     * Creates a {@link Message} from the current message.
+     * @return the current message
+     */
+    @Override
+    public Message getMessage() {
+        return new Message(Instant.ofEpochSecond(timestamp), getSenderId(), getContent());
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Gets the absolute offset in the file of the next line to read.
+     * @return the offset of the next line
+     */
+    long getPosition() {
+        return windowStart + position;
+    }
+
+    /**
+     * Moves to the line at the given absolute {@code offset}, which is read by the next call to {@link #next()}.
+     * @param offset the offset of the start of a line
+     * @throws IOException thrown when the file cannot be mapped
+     */
+    void seek(long offset) throws IOException {
+        if (offset >= windowStart && offset <= windowStart + window.limit()) {
+            position = (int) (offset - windowStart);
+        } else {
+            map(offset);
+        }
+    }
+
+    /**
+     * Gets the absolute offset past the last line to read, which is the size of the file
+     * unless a range of it is read.
+     * @return the end of the data
+     */
+    long getEnd() {
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Finds the end of the line starting at {@link #position}, remapping the window when the line
+     * crosses its end.
+     * @return the index of the new line (or of the end of the data) relative to the window,
+     * or -1 when there are no more lines
+     * @throws IOException thrown when the file cannot be mapped
+     */
+    private int nextLineEnd() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            if (position >= limit) {
+                if (windowStart + limit >= end) {
+                    return -1;
+                }
+                map(windowStart + position);
+                continue;
+            }
+
+            for (int i = position; i < limit; i++) {
+                if (window.get(i) == NEW_LINE) {
+                    return i;
+                }
+            }
+
+            if (windowStart + limit >= end) {
+                return limit;
+            }
+            if (position == 0) {
+                throw new IOException("A line of the conversation is longer than " + windowSize + " bytes.");
+            }
+            map(windowStart + position);
+        }
+    }
+
+    /**
+     * Moves past the line in {@code [lineStart, lineEnd)} and its new line, if the data does not end first.
+     */
+    private void consumeLine(int lineStart, int lineEnd) {
+        position = lineEnd + 1;
+        bytesRead += Math.min(position, window.limit()) - lineStart;
+    }
+
+    /**
+     * Parses the {@code <timestamp> <user> <message>} line in {@code [lineStart, lineEnd)}.
+     */
+    private void parseLine(int lineStart, int lineEnd) {
+        long ts = 0;
+        int i = lineStart;
+        for (; i < lineEnd; i++) {
+            byte b = window.get(i);
+            if (b == DELIMITER) {
+                break;
+            }
+            if (b < '0' || b > '9' || i - lineStart >= 18) {
+                throw malformedLine(lineStart);
+            }
+            ts = ts * 10 + (b - '0');
+        }
+        if (i == lineStart || i == lineEnd) {
+            throw malformedLine(lineStart);
+        }
+
+        int start = ++i;
+        while (i < lineEnd && window.get(i) != DELIMITER) {
+            i++;
+        }
+
+        timestamp = ts;
+        senderStart = start;
+        senderEnd = i;
+        contentStart = Math.min(i + 1, lineEnd);
+        contentEnd = lineEnd;
+        senderId = null;
+        content = null;
+    }
+
+    private IllegalArgumentException malformedLine(int lineStart) {
+        return new IllegalArgumentException("Malformed message at offset " + (windowStart + lineStart) + ".");
+    }
+
+    private int trimCarriageReturn(int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == CARRIAGE_RETURN) {
+            return lineEnd - 1;
+        }
+        return lineEnd;
+    }
+
+    /**
+     * Decodes a sender id, reusing the string of a previous message sent by the same user.
+     */
+    private String decodeSender(int from, int to) {
+        int length = copy(from, to);
+
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + scratch[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SENDER_CACHE_SIZE - 1);
+
+        byte[] cached = cachedSenderBytes[slot];
+        if (cached != null && cached.length == length && regionEquals(cached, length)) {
+            return cachedSenders[slot];
+        }
+
+        String sender = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        byte[] bytes = new byte[length];
+        System.arraycopy(scratch, 0, bytes, 0, length);
+        cachedSenderBytes[slot] = bytes;
+        cachedSenders[slot] = sender;
+        return sender;
+    }
+
+    private boolean regionEquals(byte[] cached, int length) {
+        for (int i = 0; i < length; i++) {
+            if (cached[i] != scratch[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int from, int to) {
+        int length = copy(from, to);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies {@code [from, to)} of the window into the scratch buffer.
+     * @return the number of bytes copied
+     */
+    private int copy(int from, int to) {
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        slicer.limit(to);
+        slicer.position(from);
+        slicer.get(scratch, 0, length);
+        return length;
+    }
+
+    /**
+     * Maps the window starting at the given absolute {@code offset}.
+     */
+    private void map(long offset) throws IOException {
+        long size = Math.min(windowSize, end - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.max(size, 0));
+        slicer = window.duplicate();
+        windowStart = offset;
+        position = 0;
+    }
+}
@@ -0,0 +1,77 @@
+package mychat.conversationexporter;
+
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * The formats a conversation can be exported in.
+ */
+public enum OutputFormat {
+
+    /**
+     * A single JSON document holding the whole conversation
+     */
+    JSON("json") {
+        @Override
+        public ConversationWriter open(OutputStream out) {
+            return new JsonConversationWriter(out);
+        }
+    },
+
+    /**
+     * Newline-delimited JSON: a record with the name of the conversation, one record per message and a trailer
+     * record with the users, so that the messages can be read one at a time
+     */
+    NDJSON("ndjson") {
+        @Override
+        public ConversationWriter open(OutputStream out) {
+            return JsonConversationWriter.delimited(out);
+        }
+    },
+
+    /**
+     * The compact binary format read by {@link BinaryConversationReader}
+     */
+    BINARY("bin") {
+        @Override
+        public ConversationWriter open(OutputStream out) {
+            return new BinaryConversationWriter(out);
+        }
+    };
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Opens a writer of conversations in this format.
+     * @param out the stream written to, which is closed with the writer
+     * @return the writer
+     */
+    public abstract ConversationWriter open(OutputStream out);
+
+    /**
+     * Gets the extension of the files in this format.
+     * @return the extension, without the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Gets a format from its name, regardless of its case.
+     * @param name the name of the format
+     * @return the format
+     * @throws IllegalArgumentException Thrown when there is no format with this name
+     */
+    public static OutputFormat of(String name) throws IllegalArgumentException {
+        for (OutputFormat format : values()) {
+            if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("The output format '" + name + "' is not one of json, ndjson or binary.");
+    }
+}
@@ -0,0 +1,328 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.ActivityReport;
+import mychat.conversation.Conversation;
+import mychat.conversation.MessageBlock;
+import mychat.conversation.MessageMemory;
+import mychat.conversation.MessageStore;
+import mychat.conversation.SymbolTable;
+import mychat.filter.BatchFilter;
+import mychat.filter.Selection;
+import mychat.metrics.MetricsListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads and filters a conversation on several cores.
+ * The messages after the conversation name are split into byte ranges that start and end on line
+ * boundaries; each range is parsed and filtered by its own fork/join task and the results are joined
+ * back in file order, so the conversation is the same as the one read sequentially.
+ * Each task parses its messages into {@link MessageBlock}s and filters a whole block at once, keeping the messages
+ * in a store of the {@link MessageMemory} of the reader until they are joined.
+ */
+public final class ParallelConversationReader {
+
+    /**
+     * The smallest range of bytes worth parsing on its own task
+     */
+    private static final long MINIMUM_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The number of ranges given to each worker, so that a slow range does not hold back the others
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * The number of messages filtered together
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final long minimumChunkSize;
+    private final MessageMemory memory;
+    private final Path directory;
+
+    public ParallelConversationReader() {
+        this(MessageMemory.HEAP, null);
+    }
+
+    /**
+     * @param memory the memory the messages kept by each task are held in
+     * @param directory the directory of the files of {@link MessageMemory#MAPPED}
+     */
+    public ParallelConversationReader(MessageMemory memory, Path directory) {
+        this(ForkJoinPool.commonPool(), MINIMUM_CHUNK_SIZE, memory, directory);
+    }
+
+    /**
+     * @param pool the pool running the tasks
+     * @param minimumChunkSize the smallest range of bytes parsed by a task
+     */
+    public ParallelConversationReader(ForkJoinPool pool, long minimumChunkSize) {
+        this(pool, minimumChunkSize, MessageMemory.HEAP, null);
+    }
+
+    /**
+     * @param pool the pool running the tasks
+     * @param minimumChunkSize the smallest range of bytes parsed by a task
+     * @param memory the memory the messages kept by each task are held in
+     * @param directory the directory of the files of {@link MessageMemory#MAPPED}
+     */
+    public ParallelConversationReader(ForkJoinPool pool, long minimumChunkSize, MessageMemory memory, Path directory) {
+        this.pool = pool;
+        this.minimumChunkSize = minimumChunkSize;
+        this.memory = memory;
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the conversation at the given {@code path}, applying the {@code filter} to its messages.
+     * The activity of the users is counted over the messages that are kept, as in {@link Conversation#applyFilters}.
+     * @param path the path of the conversation file
+     * @param filter the filter applied to each message
+     * @return the filtered conversation
+     * @throws IOException thrown when the file cannot be read
+     */
+    public Conversation read(Path path, BatchFilter filter) throws IOException {
+        return read(path, filter, MetricsListener.NONE);
+    }
+
+    /**
+     * Reads the conversation at the given {@code path}, applying the {@code filter} to its messages and telling
+     * the {@code listener} how many bytes were read and messages parsed.
+     * @param path the path of the conversation file
+     * @param filter the filter applied to each message
+     * @param listener the listener of the measurements
+     * @return the filtered conversation
+     * @throws IOException thrown when the file cannot be read
+     */
+    public Conversation read(Path path, BatchFilter filter, MetricsListener listener) throws IOException {
+        return read(path, filter, listener, TimeRange.ALL, TimeIndex.empty());
+    }
+
+    /**
+     * Reads the messages of a time range of the conversation at the given {@code path}, applying the {@code filter}
+     * to them. Only the range of the file holding them is read, once it was found with the {@code index}.
+     * @param path the path of the conversation file
+     * @param filter the filter applied to each message
+     * @param listener the listener of the measurements
+     * @param range the time range of the messages read
+     * @param index the index finding the range in the file
+     * @return the filtered conversation
+     * @throws IOException thrown when the file cannot be read
+     */
+    public Conversation read(Path path, BatchFilter filter, MetricsListener listener, TimeRange range, TimeIndex index)
+            throws IOException {
+        return read(path, filter, listener, range, index, new MessageStore());
+    }
+
+    /**
+     * Reads the messages of a time range of the conversation at the given {@code path} into the {@code messages}
+     * store, applying the {@code filter} to them.
+     * @param path the path of the conversation file
+     * @param filter the filter applied to each message
+     * @param listener the listener of the measurements
+     * @param range the time range of the messages read
+     * @param index the index finding the range in the file
+     * @param messages the store the messages kept are joined in, held in the memory chosen by its owner
+     * @return the filtered conversation, holding the {@code messages}
+     * @throws IOException thrown when the file cannot be read, or when the store of a task cannot be created
+     */
+    public Conversation read(Path path, BatchFilter filter, MetricsListener listener, TimeRange range, TimeIndex index,
+                             MessageStore messages) throws IOException {
+        String name;
+        long nameBytes;
+        long start;
+        long end;
+        List<Long> boundaries;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            end = channel.size();
+            try (MappedChatLogReader header = new MappedChatLogReader(path)) {
+                name = header.readConversationName();
+                nameBytes = header.getBytesRead();
+                start = Math.min(header.getPosition(), end);
+            }
+            if (!range.isAll()) {
+                start = index.seek(channel, range.getFrom());
+                end = index.seek(channel, range.getTo());
+            }
+            boundaries = split(channel, start, end);
+        }
+
+        try {
+            List<Chunk> chunks = pool.invoke(new ChunkTask(path, filter, memory, directory, boundaries, 0,
+                    boundaries.size() - 1));
+
+            // the chunks are joined once, in file order, each message being copied a single time
+            ActivityReport report = new ActivityReport();
+            long parsed = 0;
+            try {
+                for (Chunk chunk : chunks) {
+                    messages.addAll(chunk.messages);
+                    report.merge(chunk.report);
+                    parsed += chunk.parsed;
+                }
+            } finally {
+                for (Chunk chunk : chunks) {
+                    chunk.messages.close();
+                }
+            }
+            // only the name and the range of the messages are read
+            listener.bytesRead(nameBytes + end - start);
+            listener.messagesParsed(parsed);
+            return new Conversation(name, messages, report);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Splits {@code [start, end)} into ranges of about the same size, moving each boundary past the end
+     * of the line it falls in.
+     * @return the boundaries of the ranges, starting with {@code start} and ending with {@code end}
+     */
+    private List<Long> split(FileChannel channel, long start, long end) throws IOException {
+        int chunks = pool.getParallelism() * CHUNKS_PER_WORKER;
+        long chunkSize = Math.max(minimumChunkSize, (end - start + chunks - 1) / chunks);
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long boundary = start;
+        while (boundary + chunkSize < end) {
+            boundary = nextLineStart(channel, buffer, boundary + chunkSize, end);
+            if (boundary >= end) {
+                break;
+            }
+            boundaries.add(boundary);
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+
+    /**
+     * Finds the start of the first line after {@code offset}.
+     */
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long offset, long end) throws IOException {
+        long position = offset;
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+     * The messages kept from a range of the file, and the activity of their senders
+     */
+    private static final class Chunk {
+        private final MessageStore messages;
+        private final ActivityReport report = new ActivityReport();
+        private long parsed;
+
+        private Chunk(MessageStore messages) {
+            this.messages = messages;
+        }
+    }
+
+    /**
+     * Parses and filters the ranges {@code [from, to)}, splitting them between subtasks, and gives the chunk
+     * of each range in file order
+     */
+    private static final class ChunkTask extends RecursiveTask<List<Chunk>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final BatchFilter filter;
+        private final MessageMemory memory;
+        private final Path directory;
+        private final List<Long> boundaries;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(Path path, BatchFilter filter, MessageMemory memory, Path directory, List<Long> boundaries,
+                          int from, int to) {
+            this.path = path;
+            this.filter = filter;
+            this.memory = memory;
+            this.directory = directory;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask right = new ChunkTask(path, filter, memory, directory, boundaries, middle, to);
+                right.fork();
+                List<Chunk> chunks = new ChunkTask(path, filter, memory, directory, boundaries, from, middle).compute();
+                chunks.addAll(right.join());
+                return chunks;
+            }
+
+            Chunk chunk;
+            try {
+                chunk = new Chunk(memory.newStore(directory));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            MessageBlock block = new MessageBlock(new SymbolTable(), BLOCK_SIZE);
+            try (MappedChatLogReader reader = new MappedChatLogReader(FileChannel.open(path, StandardOpenOption.READ),
+                    boundaries.get(from), boundaries.get(to), MappedChatLogReader.MAPPING_WINDOW)) {
+                while (reader.next()) {
+                    chunk.parsed++;
+                    block.add(reader.getTimestamp(), reader.getSenderId(), reader.getContent());
+
+                    if (block.isFull()) {
+                        filter(block, chunk);
+                    }
+                }
+                filter(block, chunk);
+            } catch (IOException e) {
+                chunk.messages.close();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                chunk.messages.close();
+                throw e;
+            }
+            List<Chunk> chunks = new ArrayList<>();
+            chunks.add(chunk);
+            return chunks;
+        }
+
+        /**
+         * Filters the messages of the block, adds the selected ones to the chunk and empties the block.
+         */
+        private void filter(MessageBlock block, Chunk chunk) {
+            long[] selection = filter.apply(block, Selection.all(block.size()));
+            for (int i = Selection.next(selection, 0); i >= 0; i = Selection.next(selection, i + 1)) {
+                chunk.messages.add(block.getTimestamps()[i], block.getSenderId(i), block.getContents()[i]);
+                chunk.report.record(block.getSenderId(i));
+            }
+            block.clear();
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package mychat.conversationexporter;
+
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.filter.KeywordFinderFilter;
+import mychat.filter.MessageField;
+import mychat.filter.UserFilter;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * An inverted index of a conversation, mapping each sender id and each word of the messages to the ordinals of the
+ * messages holding it, so that the exports keeping the messages of a user or with a keyword read only the messages
+ * which may be kept instead of the whole conversation.
+ * <p>
+ * Words are the runs of letters, digits and underscores, lower cased. A keyword is looked up by the words it is
+ * made of, each of which must be part of a word of the message, so that the messages found are a superset of the
+ * ones holding the keyword whatever its case and whether it is a whole word. A word with a boundary on both sides in
+ * the keyword, such as the inner words of a phrase or the words of a whole word keyword, must be a word of the
+ * message, and one with a boundary before it must start one, both of which are looked up by a binary search of the
+ * sorted words. Only a word which may be in the middle of a word of the message is looked up by scanning every word
+ * of the index. The filters are still applied to the messages found, which keeps the exports the same as the ones
+ * scanning the conversation.
+ * <p>
+ * The index is saved next to the conversation with an {@code .inv} extension. The ordinals of each posting list
+ * and the offsets of the messages are delta encoded as varints, and the posting lists are decoded only when a
+ * query needs them. An index made before the conversation changed is not used.
+ */
+public final class SearchIndex {
+
+    private static final String EXTENSION = ".inv";
+    private static final int MAGIC = 0x4d434858; // MCHX
+    private static final int VERSION = 1;
+
+    /**
+     * The number of messages between two offsets kept decoded, the offsets in between being decoded from them
+     */
+    private static final int OFFSET_SAMPLE_INTERVAL = 64;
+
+    private final int messageCount;
+    private final byte[] offsetDeltas;
+    private final long[] sampleOffsets;
+    private final int[] samplePositions;
+
+    /**
+     * The posting lists of the senders, in the order of their first message, and of the words, in sorted order
+     */
+    private final Map<String, byte[]> users;
+    private final String[] terms;
+    private final byte[][] termPostings;
+
+    private SearchIndex(int messageCount, byte[] offsetDeltas, Map<String, byte[]> users, String[] terms,
+                        byte[][] termPostings) {
+        this.messageCount = messageCount;
+        this.offsetDeltas = offsetDeltas;
+        this.users = users;
+        this.terms = terms;
+        this.termPostings = termPostings;
+
+        int samples = (messageCount + OFFSET_SAMPLE_INTERVAL - 1) / OFFSET_SAMPLE_INTERVAL;
+        this.sampleOffsets = new long[samples];
+        this.samplePositions = new int[samples];
+        int[] position = {0};
+        long offset = 0;
+        for (int ordinal = 0; ordinal < messageCount; ordinal++) {
+            if (ordinal % OFFSET_SAMPLE_INTERVAL == 0) {
+                sampleOffsets[ordinal / OFFSET_SAMPLE_INTERVAL] = offset;
+                samplePositions[ordinal / OFFSET_SAMPLE_INTERVAL] = position[0];
+            }
+            offset += readVarint(offsetDeltas, position);
+        }
+    }
+
+    /**
+     * Builds the index of a conversation and saves it next to the conversation.
+     * @param conversation the path of the conversation
+     * @return the index
+     * @throws IOException thrown when the conversation cannot be read or the index cannot be saved
+     * @throws IllegalArgumentException thrown when a line of the conversation is not a valid message
+     */
+    public static SearchIndex build(Path conversation) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(conversation, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long fingerprint = TimeIndex.fingerprint(channel, size);
+
+            VarintBuffer offsets = new VarintBuffer();
+            Map<String, Postings> users = new LinkedHashMap<>();
+            Map<String, Postings> terms = new HashMap<>();
+            int ordinal = 0;
+            try (MappedChatLogReader reader = new MappedChatLogReader(conversation)) {
+                reader.readConversationName();
+                long previous = 0;
+                long offset = reader.getPosition();
+                while (reader.next()) {
+                    offsets.write(offset - previous);
+                    previous = offset;
+                    offset = reader.getPosition();
+
+                    users.computeIfAbsent(reader.getSenderId(), u -> new Postings()).add(ordinal);
+                    for (String term : tokenize(reader.getContent())) {
+                        terms.computeIfAbsent(term, t -> new Postings()).add(ordinal);
+                    }
+                    ordinal++;
+                }
+            }
+
+            Map<String, byte[]> userPostings = new LinkedHashMap<>();
+            for (Map.Entry<String, Postings> user : users.entrySet()) {
+                userPostings.put(user.getKey(), user.getValue().toByteArray());
+            }
+            String[] sortedTerms = terms.keySet().toArray(new String[0]);
+            Arrays.sort(sortedTerms);
+            byte[][] termPostings = new byte[sortedTerms.length][];
+            for (int i = 0; i < sortedTerms.length; i++) {
+                termPostings[i] = terms.get(sortedTerms[i]).toByteArray();
+            }
+
+            SearchIndex index = new SearchIndex(ordinal, offsets.toByteArray(), userPostings, sortedTerms, termPostings);
+            index.save(sidecar(conversation), size, fingerprint);
+            return index;
+        }
+    }
+
+    /**
+     * Loads the saved index of a conversation.
+     * @param conversation the path of the conversation
+     * @return the index, or null when there is none or when the conversation changed since it was made
+     * @throws IOException thrown when the conversation or the index cannot be read
+     */
+    public static SearchIndex load(Path conversation) throws IOException {
+        Path path = sidecar(conversation);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        long size;
+        long fingerprint;
+        try (FileChannel channel = FileChannel.open(conversation, StandardOpenOption.READ)) {
+            size = channel.size();
+            fingerprint = TimeIndex.fingerprint(channel, size);
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != size
+                    || in.readLong() != fingerprint) {
+                return null;
+            }
+            int messageCount = in.readInt();
+            byte[] offsetDeltas = readBytes(in);
+
+            int userCount = in.readInt();
+            Map<String, byte[]> users = new LinkedHashMap<>();
+            for (int i = 0; i < userCount; i++) {
+                users.put(new String(readBytes(in), StandardCharsets.UTF_8), readBytes(in));
+            }
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            byte[][] termPostings = new byte[termCount][];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = new String(readBytes(in), StandardCharsets.UTF_8);
+                termPostings[i] = readBytes(in);
+            }
+            return new SearchIndex(messageCount, offsetDeltas, users, terms, termPostings);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the path of the index of a conversation.
+     * @param conversation the path of the conversation
+     * @return the path of its index
+     */
+    public static Path sidecar(Path conversation) {
+        return conversation.resolveSibling(conversation.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Gets the number of messages of the indexed conversation.
+     * @return the number of messages
+     */
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Gets the number of distinct words of the indexed conversation.
+     * @return the number of words
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Gets the senders of the indexed conversation.
+     * @return the senders, in the order of their first message
+     */
+    public Set<String> getUsers() {
+        return Collections.unmodifiableSet(users.keySet());
+    }
+
+    /**
+     * Finds the messages which may be kept by the filters. The user and keyword filters narrow the messages down,
+     * unless they come after a filter rewriting the field they read, the other filters keeping every message.
+     * @param filters the filters of the export
+     * @return the offsets of the lines of the messages found in increasing order, each being the start of the line
+     * of the message or of the blank lines before it, or null when none of the filters narrows the messages down
+     */
+    public long[] find(Collection<Filter> filters) {
+        BitSet found = null;
+        Set<MessageField> written = EnumSet.noneOf(MessageField.class);
+        for (Filter filter : FilterChain.compile(flatten(filters, new ArrayList<>())).getFilters()) {
+            BitSet messages = null;
+            if (filter instanceof UserFilter && !written.contains(MessageField.SENDER)) {
+                messages = decode(users.get(((UserFilter) filter).getUser()));
+            } else if (filter instanceof KeywordFinderFilter && !written.contains(MessageField.CONTENT)) {
+                KeywordFinderFilter keywordFinder = (KeywordFinderFilter) filter;
+                messages = findAny(keywordFinder.getKeywords(), keywordFinder.isWholeWords());
+            }
+            if (messages != null) {
+                if (found == null) {
+                    found = messages;
+                } else {
+                    found.and(messages);
+                }
+            }
+            written.addAll(filter.writes());
+        }
+        return found == null ? null : offsetsOf(found);
+    }
+
+    /**
+     * Finds the messages which may hold any of the keywords.
+     * @return the messages, or null when a keyword has no word to look up
+     */
+    private BitSet findAny(List<String> keywords, boolean wholeWords) {
+        BitSet found = new BitSet(messageCount);
+        for (String keyword : keywords) {
+            BitSet messages = null;
+            String text = fold(keyword);
+            for (int start = 0, end = 0, n = text.length(); start < n; start = end) {
+                if (!isWordChar(text.charAt(start))) {
+                    end = start + 1;
+                    continue;
+                }
+                end = start;
+                while (end < n && isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                String word = text.substring(start, end);
+                BitSet holding = new BitSet(messageCount);
+                if (start > 0 || wholeWords) {
+                    int i = Arrays.binarySearch(terms, word);
+                    if (end < n || wholeWords) {
+                        // the word is a word of the message
+                        if (i >= 0) {
+                            decode(termPostings[i], holding);
+                        }
+                    } else {
+                        // the word starts a word of the message, the words starting with it being sorted from it
+                        for (i = i < 0 ? -i - 1 : i; i < terms.length && terms[i].startsWith(word); i++) {
+                            decode(termPostings[i], holding);
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < terms.length; i++) {
+                        if (terms[i].contains(word)) {
+                            decode(termPostings[i], holding);
+                        }
+                    }
+                }
+                if (messages == null) {
+                    messages = holding;
+                } else {
+                    messages.and(holding);
+                }
+            }
+            if (messages == null) {
+                return null;
+            }
+            found.or(messages);
+        }
+        return found;
+    }
+
+    /**
+     * Decodes the offsets of the messages in increasing order, starting from the closest sampled offset.
+     */
+    private long[] offsetsOf(BitSet messages) {
+        long[] offsets = new long[messages.cardinality()];
+        int[] position = {0};
+        long offset = 0;
+        int current = -1;
+        int count = 0;
+        for (int ordinal = messages.nextSetBit(0); ordinal >= 0; ordinal = messages.nextSetBit(ordinal + 1)) {
+            int sample = ordinal / OFFSET_SAMPLE_INTERVAL;
+            if (current < sample * OFFSET_SAMPLE_INTERVAL - 1) {
+                current = sample * OFFSET_SAMPLE_INTERVAL - 1;
+                offset = sampleOffsets[sample];
+                position[0] = samplePositions[sample];
+            }
+            while (current < ordinal) {
+                offset += readVarint(offsetDeltas, position);
+                current++;
+            }
+            offsets[count++] = offset;
+        }
+        return offsets;
+    }
+
+    private BitSet decode(byte[] postings) {
+        BitSet messages = new BitSet(messageCount);
+        if (postings != null) {
+            decode(postings, messages);
+        }
+        return messages;
+    }
+
+    private static void decode(byte[] postings, BitSet messages) {
+        int[] position = {0};
+        int ordinal = -1;
+        while (position[0] < postings.length) {
+            ordinal += (int) readVarint(postings, position) + 1;
+            messages.set(ordinal);
+        }
+    }
+
+    private static List<Filter> flatten(Collection<Filter> filters, List<Filter> flattened) {
+        for (Filter filter : filters) {
+            if (filter instanceof FilterChain) {
+                flatten(((FilterChain) filter).getFilters(), flattened);
+            } else {
+                flattened.add(filter);
+            }
+        }
+        return flattened;
+    }
+
+    /**
+     * Splits a text into its distinct words. Characters are folded the way keywords are matched regardless of
+     * their case, so that a character and its folded form are always both part of a word or both not.
+     */
+    static List<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? fold(text.charAt(i)) : ' ';
+            if (isWordChar(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    private static String fold(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(text.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Replaces the saved index at once, so that it is never seen half written.
+     */
+    private void save(Path path, long size, long fingerprint) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeLong(fingerprint);
+            out.writeInt(messageCount);
+            writeBytes(out, offsetDeltas);
+            out.writeInt(users.size());
+            for (Map.Entry<String, byte[]> user : users.entrySet()) {
+                writeBytes(out, user.getKey().getBytes(StandardCharsets.UTF_8));
+                writeBytes(out, user.getValue());
+            }
+            out.writeInt(terms.length);
+            for (int i = 0; i < terms.length; i++) {
+                writeBytes(out, terms[i].getBytes(StandardCharsets.UTF_8));
+                writeBytes(out, termPostings[i]);
+            }
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = bytes[position[0]++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * The ordinals of the messages holding a sender or a word, each written as the gap from the previous one
+     */
+    private static final class Postings {
+
+        private final VarintBuffer buffer = new VarintBuffer();
+        private int last = -1;
+
+        void add(int ordinal) {
+            if (ordinal != last) {
+                buffer.write(ordinal - last - 1);
+                last = ordinal;
+            }
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    private static final class VarintBuffer {
+
+        private byte[] bytes = new byte[4];
+        private int count;
+
+        void write(long value) {
+            if (bytes.length - count < 10) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + 10));
+            }
+            while ((value & ~0x7fL) != 0) {
+                bytes[count++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[count++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package mychat.conversationexporter;
+
+import mychat.metrics.MetricsListener;
+import mychat.metrics.Stage;
+
+/**
+ * Adds up the time spent in each stage of an export whose stages are interleaved, message by message.
+ * Each call to {@link #stop(Stage)} charges the time since the previous call to the given stage.
+ */
+final class StageTimer {
+
+    private final boolean enabled;
+    private final long[] nanos = new long[Stage.values().length];
+    private long last;
+
+    /**
+     * @param enabled whether the time is measured at all
+     */
+    StageTimer(boolean enabled) {
+        this.enabled = enabled;
+        this.last = enabled ? System.nanoTime() : 0;
+    }
+
+    void stop(Stage stage) {
+        if (enabled) {
+            long now = System.nanoTime();
+            nanos[stage.ordinal()] += now - last;
+            last = now;
+        }
+    }
+
+    /**
+     * Tells the listener about the time spent in each stage.
+     */
+    void report(MetricsListener listener) {
+        if (enabled) {
+            for (Stage stage : Stage.values()) {
+                listener.stageCompleted(stage, nanos[stage.ordinal()]);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Message;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Reads a conversation from a stream, such as the output of a decompressor, which cannot be memory mapped
+ * like the files read by {@link MappedChatLogReader}. Lines are parsed the same way.
+ */
+public final class StreamChatLogReader implements ChatLogReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char DELIMITER = ' ';
+
+    private final BufferedReader reader;
+
+    /**
+     * The stream of the conversation file, whose bytes read are reported
+     */
+    private final CountingInputStream file;
+
+    /**
+     * The number of lines read, to report malformed messages
+     */
+    private long lineNumber;
+
+    private long timestamp;
+    private String senderId;
+    private String content;
+
+    /**
+     * @param in the UTF-8 stream of the conversation, which is closed with the reader
+     */
+    public StreamChatLogReader(InputStream in) {
+        this(new CountingInputStream(in));
+    }
+
+    private StreamChatLogReader(CountingInputStream in) {
+        this(in, in);
+    }
+
+    /**
+     * @param in the UTF-8 stream of the conversation, which is closed with the reader
+     * @param file the stream of the conversation file {@code in} is read from, such as the input of a decompressor
+     */
+    StreamChatLogReader(InputStream in, CountingInputStream file) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.file = file;
+    }
+
+    @Override
+    public String readConversationName() throws IOException {
+        String name = reader.readLine();
+        lineNumber++;
+        return name;
+    }
+
+    @Override
+    public boolean next() throws IOException, IllegalArgumentException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return false;
+            }
+        } while (line.isEmpty());
+
+        parseLine(line);
+        return true;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String getSenderId() {
+        return senderId;
+    }
+
+    @Override
+    public String getContent() {
+        return content;
+    }
+
+    @Override
+    public Message getMessage() {
+        return new Message(Instant.ofEpochSecond(timestamp), senderId, content);
+    }
+
+    /**
+     * Gets the number of bytes of the conversation file read so far, which includes the bytes buffered
+     * ahead of the messages read.
+     * @return the number of bytes read
+     */
+    @Override
+    public long getBytesRead() {
+        return file.getCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Parses a {@code <timestamp> <user> <message>} line.
+     */
+    private void parseLine(String line) {
+        long ts = 0;
+        int i = 0;
+        for (; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == DELIMITER) {
+                break;
+            }
+            if (c < '0' || c > '9' || i >= 18) {
+                throw malformedLine();
+            }
+            ts = ts * 10 + (c - '0');
+        }
+        if (i == 0 || i == line.length()) {
+            throw malformedLine();
+        }
+
+        int start = ++i;
+        int end = line.indexOf(DELIMITER, start);
+        if (end < 0) {
+            end = line.length();
+        }
+
+        timestamp = ts;
+        senderId = line.substring(start, end);
+        content = line.substring(Math.min(end + 1, line.length()));
+    }
+
+    private IllegalArgumentException malformedLine() {
+        return new IllegalArgumentException("Malformed message at line " + lineNumber + ".");
+    }
+}
@@ -0,0 +1,322 @@
+package mychat.conversationexporter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Finds the offset of the first message of a conversation sent at or after a timestamp, the timestamps of
+ * the messages being non decreasing. The file is binary searched by offset, reading the timestamp of the line
+ * following each offset looked at.
+ * <p>
+ * A sparse index keeps the offset and the timestamp of the first line after every {@code interval} bytes, so that
+ * the search only reads the file within one interval. The index is saved next to the conversation with an
+ * {@code .idx} extension and reused by later exports, being extended when the conversation was appended to and
+ * built again when the start of the conversation changed.
+ */
+public final class TimeIndex {
+
+    /**
+     * The number of bytes between two entries of an index by default
+     */
+    public static final int DEFAULT_INTERVAL = 1 << 16;
+
+    private static final String EXTENSION = ".idx";
+    private static final int MAGIC = 0x4d434849; // MCHI
+    private static final int VERSION = 1;
+
+    /**
+     * The number of bytes of the start of the conversation whose checksum tells whether it is the indexed one
+     */
+    private static final int FINGERPRINT_SIZE = 4096;
+
+    private static final int SCAN_SIZE = 4096;
+
+    private final int interval;
+    private long[] offsets;
+    private long[] timestamps;
+    private int count;
+
+    /**
+     * The size of the conversation when it was indexed
+     */
+    private long indexedLength;
+
+    private TimeIndex(int interval) {
+        this.interval = interval;
+        this.offsets = new long[16];
+        this.timestamps = new long[16];
+    }
+
+    /**
+     * Creates an index without entries, which binary searches the whole conversation.
+     * @return the index
+     */
+    public static TimeIndex empty() {
+        return new TimeIndex(0);
+    }
+
+    /**
+     * Opens the index of a conversation, building it or extending it and saving it when needed.
+     * @param conversation the path of the conversation
+     * @param interval the number of bytes between two entries
+     * @return the index
+     * @throws IOException thrown when the conversation cannot be read or the index cannot be saved
+     */
+    public static TimeIndex open(Path conversation, int interval) throws IOException {
+        Path path = sidecar(conversation);
+        try (FileChannel channel = FileChannel.open(conversation, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long fingerprint = fingerprint(channel, size);
+
+            TimeIndex index = load(path, interval, fingerprint);
+            if (index == null || index.indexedLength > size) {
+                index = new TimeIndex(interval);
+            }
+            if (index.indexedLength < size) {
+                index.extend(channel, size);
+                index.save(path, fingerprint);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Gets the path of the index of a conversation.
+     * @param conversation the path of the conversation
+     * @return the path of its index
+     */
+    public static Path sidecar(Path conversation) {
+        return conversation.resolveSibling(conversation.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Gets the number of entries of the index.
+     * @return the number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the first message sent at or after a timestamp.
+     * @param channel the channel of the conversation
+     * @param timestamp the timestamp in seconds since the epoch
+     * @return the offset of the line of the message, or the size of the conversation when there is none,
+     * which is never before the first message
+     * @throws IOException thrown when the conversation cannot be read
+     * @throws IllegalArgumentException thrown when a line looked at is not a valid message
+     */
+    public long seek(FileChannel channel, long timestamp) throws IOException, IllegalArgumentException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long size = channel.size();
+        long dataStart = lineStart(channel, buffer, 1, size);
+        if (timestamp == Long.MIN_VALUE) {
+            return dataStart;
+        }
+        if (timestamp == Long.MAX_VALUE) {
+            return size;
+        }
+
+        // the entries narrow the search to the lines between the last entry before the timestamp and the next one
+        long low = dataStart;
+        long high = size;
+        int entry = firstEntryAtOrAfter(timestamp);
+        if (entry > 0) {
+            low = offsets[entry - 1];
+        }
+        if (entry < count) {
+            high = Math.min(offsets[entry], size);
+        }
+
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            long line = lineStart(channel, buffer, middle, size);
+            if (line >= high || readTimestamp(channel, buffer, line, size) >= timestamp) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return Math.max(lineStart(channel, buffer, low, size), dataStart);
+    }
+
+    /**
+     * Finds the first entry whose timestamp is at or after the given one.
+     */
+    private int firstEntryAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] >= timestamp) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds the entries of the intervals appended since the conversation was last indexed.
+     */
+    private void extend(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long boundary = count == 0 ? 1 : (indexedLength / interval) * interval;
+        for (; boundary < size; boundary = (boundary / interval + 1) * interval) {
+            long line = lineStart(channel, buffer, boundary, size);
+            if (line >= size || count > 0 && line <= offsets[count - 1]) {
+                continue;
+            }
+            long timestamp = readTimestamp(channel, buffer, line, size);
+            if (timestamp == Long.MAX_VALUE) {
+                break;
+            }
+            add(line, timestamp);
+        }
+        indexedLength = size;
+    }
+
+    private void add(long offset, long timestamp) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            timestamps = Arrays.copyOf(timestamps, count * 2);
+        }
+        offsets[count] = offset;
+        timestamps[count] = timestamp;
+        count++;
+    }
+
+    /**
+     * Loads a saved index, if it was made for the conversation with the same interval.
+     * @return the index, or null when it must be built again
+     */
+    private static TimeIndex load(Path path, int interval, long fingerprint) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != interval
+                    || in.readLong() != fingerprint) {
+                return null;
+            }
+            TimeIndex index = new TimeIndex(interval);
+            index.indexedLength = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.add(in.readLong(), in.readLong());
+            }
+            return index;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the saved index at once, so that it is never seen half written.
+     */
+    private void save(Path path, long fingerprint) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(interval);
+            out.writeLong(fingerprint);
+            out.writeLong(indexedLength);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+                out.writeLong(timestamps[i]);
+            }
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Computes the checksum of the start of the conversation, which changes when it is replaced by another one.
+     */
+    static long fingerprint(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(FINGERPRINT_SIZE, size));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // read the whole start
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        return checksum.getValue();
+    }
+
+    /**
+     * Finds the start of the first line starting at or after {@code offset}.
+     * @return the offset of the line, or {@code size} when there is none
+     */
+    private static long lineStart(FileChannel channel, ByteBuffer buffer, long offset, long size) throws IOException {
+        if (offset <= 0) {
+            return 0;
+        }
+        long position = offset - 1;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the timestamp of the first message starting at or after the line at {@code offset}, skipping blank lines.
+     * @return the timestamp, or {@link Long#MAX_VALUE} when there is no message
+     */
+    private static long readTimestamp(FileChannel channel, ByteBuffer buffer, long offset, long size) throws IOException {
+        long line = offset;
+        while (line < size) {
+            buffer.clear();
+            int read = channel.read(buffer, line);
+            if (read <= 0) {
+                break;
+            }
+            int i = 0;
+            while (i < read && (buffer.get(i) == '\n' || buffer.get(i) == '\r')) {
+                i++;
+            }
+            if (i == read) {
+                line += read;
+                continue;
+            }
+
+            long timestamp = 0;
+            int start = i;
+            for (; i < read && buffer.get(i) != ' '; i++) {
+                byte b = buffer.get(i);
+                if (b < '0' || b > '9' || i - start >= 18) {
+                    throw new IllegalArgumentException("Malformed message at offset " + (line + start) + ".");
+                }
+                timestamp = timestamp * 10 + (b - '0');
+            }
+            if (i == read && line + read >= size) {
+                // the last line is still being written
+                return Long.MAX_VALUE;
+            }
+            if (i == start || i == read) {
+                throw new IllegalArgumentException("Malformed message at offset " + (line + start) + ".");
+            }
+            return timestamp;
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,53 @@
+package mychat.conversationexporter;
+
+/**
+ * A window of time, from a first second included to a last second excluded, in seconds since the epoch.
+ */
+public final class TimeRange {
+
+    /**
+     * The range of all the messages
+     */
+    public static final TimeRange ALL = new TimeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final long from;
+    private final long to;
+
+    /**
+     * @param from the first second of the range
+     * @param to the second after the range
+     * @throws IllegalArgumentException Thrown when the range is empty
+     */
+    public TimeRange(long from, long to) throws IllegalArgumentException {
+        if (from >= to) {
+            throw new IllegalArgumentException("The time range from " + from + " to " + to + " is empty.");
+        }
+        this.from = from;
+        this.to = to;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * Checks whether a timestamp falls in the range.
+     * @param timestamp the timestamp in seconds since the epoch
+     * @return true if the timestamp is in the range
+     */
+    public boolean contains(long timestamp) {
+        return timestamp >= from && timestamp < to;
+    }
+
+    /**
+     * Checks whether the range holds every timestamp, so that it does not need to be looked for.
+     * @return true if the range is not bounded
+     */
+    public boolean isAll() {
+        return from == Long.MIN_VALUE && to == Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,75 @@
+package mychat.conversationexporter;
+
+import mychat.conversation.Message;
+
+import java.io.IOException;
+
+/**
+ * Reads the messages of a time range from a conversation which cannot be searched, such as a compressed one,
+ * by skipping the messages before the range and stopping at the first message after it.
+ */
+final class TimeRangeReader implements ChatLogReader {
+
+    private final ChatLogReader reader;
+    private final TimeRange range;
+    private boolean ended;
+
+    /**
+     * @param reader the reader of the whole conversation, which is closed with this reader
+     * @param range the time range of the messages read
+     */
+    TimeRangeReader(ChatLogReader reader, TimeRange range) {
+        this.reader = reader;
+        this.range = range;
+    }
+
+    @Override
+    public String readConversationName() throws IOException {
+        return reader.readConversationName();
+    }
+
+    @Override
+    public boolean next() throws IOException, IllegalArgumentException {
+        while (!ended && reader.next()) {
+            long timestamp = reader.getTimestamp();
+            if (timestamp >= range.getTo()) {
+                break;
+            }
+            if (timestamp >= range.getFrom()) {
+                return true;
+            }
+        }
+        ended = true;
+        return false;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return reader.getTimestamp();
+    }
+
+    @Override
+    public String getSenderId() {
+        return reader.getSenderId();
+    }
+
+    @Override
+    public String getContent() {
+        return reader.getContent();
+    }
+
+    @Override
+    public Message getMessage() {
+        return reader.getMessage();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return reader.getBytesRead();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
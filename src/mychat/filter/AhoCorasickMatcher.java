@@ -0,0 +1,323 @@
+package mychat.filter;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Finds many literal words in a text in a single pass, using an Aho-Corasick automaton
+ * compiled into a transition table when the matcher is created.
+ */
+public final class AhoCorasickMatcher {
+
+    private static final int ROOT = 0;
+    private static final int NARROW_CHARS = 256;
+
+    /**
+     * The alphabet of the words: chars below 256 are looked up directly,
+     * others by binary search. Chars outside the alphabet have the class 0
+     */
+    private final int[] narrowClasses = new int[NARROW_CHARS];
+    private final char[] wideChars;
+    private final int[] wideClasses;
+    private final int alphabetSize;
+    private final boolean ignoreCase;
+
+    /**
+     * The transitions of each state, {@code alphabetSize} entries per state
+     */
+    private final int[] transitions;
+
+    /**
+     * The length of the longest word ending at each state, or 0
+     */
+    private final int[] matchLengths;
+
+    /**
+     * The depth of each state, i.e. the length of the text it stands for
+     */
+    private final int[] depths;
+
+    /**
+     * Whether a word ends at each state, and the next state of its failure chain where one does, or -1
+     */
+    private final boolean[] terminals;
+    private final int[] outputLinks;
+
+    /**
+     * The index of the word ending at each state, in the words the matcher was compiled for, or -1
+     */
+    private final int[] wordIndexes;
+
+    /**
+     * Compiles the matcher for the given words. Empty words are ignored.
+     * @param words the words to find
+     */
+    public AhoCorasickMatcher(Collection<String> words) {
+        this(words, false);
+    }
+
+    /**
+     * Compiles the matcher for the given words. Empty words are ignored.
+     * @param words the words to find
+     * @param ignoreCase whether the words are found regardless of their case
+     */
+    public AhoCorasickMatcher(Collection<String> words, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+
+        // number the distinct chars of the words
+        SortedSet<Character> wide = new TreeSet<>();
+        int classes = 1;
+        int totalLength = 0;
+        for (String word : words) {
+            totalLength += word.length();
+            for (int i = 0; i < word.length(); i++) {
+                char c = fold(word.charAt(i));
+                if (c < NARROW_CHARS) {
+                    if (narrowClasses[c] == 0) {
+                        narrowClasses[c] = classes++;
+                    }
+                } else {
+                    wide.add(c);
+                }
+            }
+        }
+        wideChars = new char[wide.size()];
+        wideClasses = new int[wide.size()];
+        int index = 0;
+        for (char c : wide) {
+            wideChars[index] = c;
+            wideClasses[index++] = classes++;
+        }
+        alphabetSize = classes;
+
+        // build the trie, with -1 for missing transitions
+        int maxStates = totalLength + 1;
+        int[] table = new int[maxStates * alphabetSize];
+        Arrays.fill(table, -1);
+        int[] lengths = new int[maxStates];
+        int[] stateDepths = new int[maxStates];
+        boolean[] ends = new boolean[maxStates];
+        int[] indexes = new int[maxStates];
+        Arrays.fill(indexes, -1);
+        int states = 1;
+
+        int wordIndex = 0;
+        for (String word : words) {
+            int state = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                int slot = state * alphabetSize + classOf(word.charAt(i));
+                if (table[slot] < 0) {
+                    stateDepths[states] = stateDepths[state] + 1;
+                    table[slot] = states++;
+                }
+                state = table[slot];
+            }
+            if (state != ROOT && !ends[state]) {
+                lengths[state] = word.length();
+                ends[state] = true;
+                indexes[state] = wordIndex;
+            }
+            wordIndex++;
+        }
+
+        // turn the trie into a DFA, following failure links breadth first
+        int[] failures = new int[states];
+        int[] links = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        links[ROOT] = -1;
+        for (int c = 0; c < alphabetSize; c++) {
+            int next = table[c];
+            if (next < 0) {
+                table[c] = ROOT;
+            } else {
+                failures[next] = ROOT;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int failure = failures[state];
+            if (lengths[state] == 0) {
+                lengths[state] = lengths[failure];
+            }
+            links[state] = ends[failure] ? failure : links[failure];
+            for (int c = 0; c < alphabetSize; c++) {
+                int slot = state * alphabetSize + c;
+                int next = table[slot];
+                int fallback = table[failures[state] * alphabetSize + c];
+                if (next < 0) {
+                    table[slot] = fallback;
+                } else {
+                    failures[next] = fallback;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(table, states * alphabetSize);
+        matchLengths = Arrays.copyOf(lengths, states);
+        depths = Arrays.copyOf(stateDepths, states);
+        terminals = Arrays.copyOf(ends, states);
+        outputLinks = links;
+        wordIndexes = Arrays.copyOf(indexes, states);
+    }
+
+    /**
+     * Checks whether the text contains any of the words.
+     * @param text the text to search
+     * @return true if one of the words was found
+     */
+    public boolean find(CharSequence text) {
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+            if (matchLengths[state] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the text contains any of the words.
+     * @param text the text to search
+     * @param wholeWords whether the words only match when they are not part of a longer word
+     * @return true if one of the words was found
+     */
+    public boolean find(CharSequence text, boolean wholeWords) {
+        if (!wholeWords) {
+            return find(text);
+        }
+
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+
+            for (int output = terminals[state] ? state : outputLinks[state]; output > ROOT; output = outputLinks[output]) {
+                int start = i - depths[output] + 1;
+                if (isBoundary(text, start) && isBoundary(text, i + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces every occurrence of the words in the content, the content being copied only once a word is found.
+     * Matches do not overlap: the leftmost match wins, and the longest one when several start at the same place.
+     * @param content the content to search, rewritten in a single pass
+     * @param replacement the replacement of each match
+     */
+    public void replaceAll(ContentBuffer content, String replacement) {
+        CharSequence text = content.content();
+        int matchStart = -1;
+        int matchEnd = -1;
+
+        int state = ROOT;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+
+            int length = matchLengths[state];
+            if (length > 0) {
+                int start = i - length + 1;
+                if (matchStart < 0 || start <= matchStart) {
+                    matchStart = start;
+                    matchEnd = i + 1;
+                }
+            }
+
+            // the match is final once no longer match can start at or before it,
+            // scanning then starts again right after it
+            if (matchStart >= 0 && (i - depths[state] + 1 > matchStart || i == n - 1)) {
+                content.replace(matchStart, matchEnd, replacement);
+
+                i = matchEnd - 1;
+                state = ROOT;
+                matchStart = -1;
+            }
+        }
+    }
+
+    /**
+     * Replaces every occurrence of the words in the text with a replacement that depends on the word found.
+     * Matches do not overlap: the leftmost match wins, and the longest one when several start at the same place.
+     * @param text the text to search
+     * @param wholeWords whether the words only match when they are not part of a longer word
+     * @param replacements gives the replacement of a match from the index of its word, in the order
+     * the words were given to the matcher
+     * @return the text with its matches replaced, or {@code text} itself when nothing matched
+     */
+    public String replaceAll(String text, boolean wholeWords, IntFunction<String> replacements) {
+        StringBuilder result = null;
+        int copied = 0;
+        int matchStart = -1;
+        int matchEnd = -1;
+        int matchWord = -1;
+
+        int state = ROOT;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+
+            // the words ending here, from the longest to the shortest
+            for (int output = terminals[state] ? state : outputLinks[state]; output > ROOT; output = outputLinks[output]) {
+                int start = i - depths[output] + 1;
+                if (wholeWords && !(isBoundary(text, start) && isBoundary(text, i + 1))) {
+                    continue;
+                }
+                if (matchStart < 0 || start < matchStart || start == matchStart && i + 1 > matchEnd) {
+                    matchStart = start;
+                    matchEnd = i + 1;
+                    matchWord = wordIndexes[output];
+                }
+                break;
+            }
+
+            if (matchStart >= 0 && (i - depths[state] + 1 > matchStart || i == n - 1)) {
+                if (result == null) {
+                    result = new StringBuilder(n + 16);
+                }
+                result.append(text, copied, matchStart).append(replacements.apply(matchWord));
+                copied = matchEnd;
+
+                i = matchEnd - 1;
+                state = ROOT;
+                matchStart = -1;
+            }
+        }
+
+        if (result == null) {
+            return text;
+        }
+        return result.append(text, copied, n).toString();
+    }
+
+    /**
+     * Checks whether a word cannot continue across the given position of the text
+     */
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index == 0 || index == text.length()
+                || !isWordChar(text.charAt(index - 1)) || !isWordChar(text.charAt(index));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    private int classOf(char c) {
+        c = fold(c);
+        if (c < NARROW_CHARS) {
+            return narrowClasses[c];
+        }
+        int index = Arrays.binarySearch(wideChars, c);
+        return index < 0 ? 0 : wideClasses[index];
+    }
+}
@@ -0,0 +1,18 @@
+package mychat.filter;
+
+import mychat.conversation.MessageBlock;
+
+/**
+ * An interface for filters which process a whole block of messages at once
+ */
+public interface BatchFilter {
+
+    /**
+     * Applies a filter to the selected messages of a block, rewriting them
+     * in place and deselecting the ones to be deleted
+     * @param block the messages to process
+     * @param selection the messages still selected, see {@link Selection}
+     * @return the updated selection
+     */
+    long[] apply(MessageBlock block, long[] selection);
+}
@@ -0,0 +1,39 @@
+package mychat.filter;
+
+import mychat.conversation.Message;
+import mychat.conversation.MessageBlock;
+
+/**
+ * Applies a per message {@link Filter} to a block of messages
+ */
+public final class BatchFilterAdapter implements BatchFilter {
+
+    private final Filter filter;
+
+    public BatchFilterAdapter(Filter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Gets the batch version of a filter.
+     * @param filter the filter
+     * @return the filter itself when it supports blocks, otherwise an adapter
+     */
+    public static BatchFilter of(Filter filter) {
+        return filter instanceof BatchFilter ? (BatchFilter) filter : new BatchFilterAdapter(filter);
+    }
+
+    @Override
+    public long[] apply(MessageBlock block, long[] selection) {
+
+        for (int i = Selection.next(selection, 0); i >= 0; i = Selection.next(selection, i + 1)) {
+            Message message = filter.apply(block.getMessage(i));
+            if (message == null) {
+                Selection.deselect(selection, i);
+            } else {
+                block.setMessage(i, message);
+            }
+        }
+        return selection;
+    }
+}
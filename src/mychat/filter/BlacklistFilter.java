@@ -0,0 +1,86 @@
+package mychat.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces every blacklisted word of a message with a replacement string in a single pass.
+ * Plain words are found with an {@link AhoCorasickMatcher}; when some of the words are regular
+ * expressions, they are all compiled once into a single pattern instead.
+ */
+public class BlacklistFilter implements ContentRewritingFilter {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final String replacementString = "\\*redacted\\*";
+
+    private final AhoCorasickMatcher matcher;
+    private final Pattern pattern;
+
+    /**
+     * Matchers of the pattern are not thread safe, each thread has its own, reset for each message
+     */
+    private final ThreadLocal<Matcher> regexMatchers = new ThreadLocal<Matcher>() {
+        @Override
+        protected Matcher initialValue() {
+            return pattern.matcher("");
+        }
+    };
+
+    public BlacklistFilter(Collection<String> words) {
+
+        List<String> blacklist = new ArrayList<>();
+        boolean literal = true;
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                blacklist.add(word);
+                literal &= isLiteral(word);
+            }
+        }
+
+        if (literal) {
+            matcher = new AhoCorasickMatcher(blacklist);
+            pattern = null;
+        } else {
+            StringBuilder regex = new StringBuilder();
+            for (String word : blacklist) {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                regex.append("(?:").append(word).append(')');
+            }
+            matcher = null;
+            pattern = Pattern.compile(regex.toString());
+        }
+    }
+
+    @Override
+    public void rewrite(ContentBuffer content) {
+
+        if (matcher != null) {
+            matcher.replaceAll(content, replacementString);
+            return;
+        }
+        Matcher regex = regexMatchers.get().reset(content.content());
+        while (regex.find()) {
+            content.replace(regex.start(), regex.end(), replacementString);
+        }
+    }
+
+    /**
+     * Checks whether a word is matched literally, holding none of the metacharacters of regular expressions.
+     * @param word the word
+     * @return true if the word is a plain word
+     */
+    public static boolean isLiteral(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (REGEX_METACHARACTERS.indexOf(word.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
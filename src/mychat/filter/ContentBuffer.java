@@ -0,0 +1,137 @@
+package mychat.filter;
+
+/**
+ * The content of a message rewritten by a sequence of {@link ContentRewritingFilter}s, copied only once one of them
+ * replaces part of it. Each filter scans the content left by the previous ones, {@link #content()}, and replaces
+ * parts of it from left to right with {@link #replace(int, int, CharSequence)}. The replacements of a pass are
+ * written to a second buffer, the two buffers being swapped by {@link #endPass()}, so that a String is made once,
+ * by {@link #toString()}, and only when something was replaced.
+ * A buffer is {@link #reset(CharSequence) reset} for each message, keeping its two buffers, so that the filters of
+ * a thread rewrite every message with the same buffer, see {@link #local(CharSequence)}.
+ */
+public final class ContentBuffer {
+
+    /**
+     * The buffer of the filters of each thread
+     */
+    private static final ThreadLocal<ContentBuffer> LOCAL = new ThreadLocal<ContentBuffer>() {
+        @Override
+        protected ContentBuffer initialValue() {
+            return new ContentBuffer("");
+        }
+    };
+
+    private CharSequence original;
+
+    /**
+     * The content left by the passes so far, valid once something was replaced
+     */
+    private StringBuilder current;
+    private boolean changed;
+
+    /**
+     * The content written by the pass, and the end of the content copied to it, or -1 while the pass did not
+     * replace anything
+     */
+    private StringBuilder next;
+    private int copied = -1;
+
+    /**
+     * @param content the content of the message
+     */
+    public ContentBuffer(CharSequence content) {
+        this.original = content;
+    }
+
+    /**
+     * Gets the buffer of the current thread, reset to the given content. The buffer is shared by every
+     * rewriting of the thread, so its content must be copied out before another message is rewritten.
+     * @param content the content of the message
+     * @return the buffer of the thread
+     */
+    static ContentBuffer local(CharSequence content) {
+        ContentBuffer buffer = LOCAL.get();
+        buffer.reset(content);
+        return buffer;
+    }
+
+    /**
+     * Starts rewriting the content of another message, keeping the buffers of the previous ones.
+     * @param content the content of the message
+     */
+    public void reset(CharSequence content) {
+        if (next == null) {
+            // the content left by the previous message is free to be written by the next pass
+            next = current;
+            current = null;
+        }
+        original = content;
+        changed = false;
+        copied = -1;
+    }
+
+    /**
+     * Gets the content left by the previous passes, which the pass scans.
+     * @return the content, which must not be kept once the pass ends
+     */
+    public CharSequence content() {
+        return changed ? current : original;
+    }
+
+    /**
+     * Replaces a part of the content, the parts replaced by a pass being given from left to right without overlapping.
+     * @param start the start of the part, in the content scanned by the pass
+     * @param end the end of the part
+     * @param replacement the replacement of the part
+     */
+    public void replace(int start, int end, CharSequence replacement) {
+        CharSequence content = content();
+        if (copied < 0) {
+            if (next == null) {
+                next = new StringBuilder(content.length() + replacement.length());
+            } else {
+                next.setLength(0);
+            }
+            copied = 0;
+        }
+        next.append(content, copied, start).append(replacement);
+        copied = end;
+    }
+
+    /**
+     * Ends the pass of a filter, the content it rewrote being the one the next pass scans.
+     * @return true if the pass replaced a part of the content
+     */
+    public boolean endPass() {
+        if (copied < 0) {
+            return false;
+        }
+        CharSequence content = content();
+        next.append(content, copied, content.length());
+
+        // the content of the previous pass is the buffer of the next one
+        StringBuilder previous = current;
+        current = next;
+        next = previous;
+        changed = true;
+        copied = -1;
+        return true;
+    }
+
+    /**
+     * Checks whether a part of the content was replaced by one of the passes ended.
+     * @return true if the content changed
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Gets the content left by the passes ended.
+     * @return the rewritten content, or the original content itself when nothing was replaced
+     */
+    @Override
+    public String toString() {
+        return changed ? current.toString() : original.toString();
+    }
+}
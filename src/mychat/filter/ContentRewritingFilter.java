@@ -0,0 +1,46 @@
+package mychat.filter;
+
+import mychat.conversation.Message;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A filter which only replaces parts of the content of messages, such as redacted words or numbers.
+ * A {@link FilterChain} runs its consecutive rewriting filters on a single {@link ContentBuffer}, so that
+ * the content of a message is copied when the first of them replaces something, and set once after the last.
+ */
+public interface ContentRewritingFilter extends Filter {
+
+    /**
+     * Replaces parts of the content in a single pass, from left to right.
+     * @param content the content of the message
+     */
+    void rewrite(ContentBuffer content);
+
+    /**
+     * Rewrites the content of a message on its own with the buffer of the thread, setting it only when
+     * a part of it was replaced
+     * @param message the message to process
+     * @return the message, never dropped
+     */
+    @Override
+    default Message apply(Message message) {
+        ContentBuffer content = ContentBuffer.local(message.getContent());
+        rewrite(content);
+        if (content.endPass()) {
+            message.setContent(content.toString());
+        }
+        return message;
+    }
+
+    @Override
+    default Set<MessageField> reads() {
+        return EnumSet.of(MessageField.CONTENT);
+    }
+
+    @Override
+    default Set<MessageField> writes() {
+        return EnumSet.of(MessageField.CONTENT);
+    }
+}
@@ -2,11 +2,19 @@ package mychat.filter;
 
 import mychat.conversation.Message;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * An interface for different filters to implement
  */
 public interface Filter {
 
+    /**
+     * The cost of a filter which does not tell its own
+     */
+    int DEFAULT_COST = 100;
+
     /**
      * Applies a filter to a message and returns the
      * modified message or null if the message is to
@@ -15,4 +23,30 @@ public interface Filter {
      * @return the Message object result
      */
     Message apply(Message message);
+
+    /**
+     * Gets the parts of a message the filter looks at
+     * to decide whether to keep it or how to change it
+     * @return the fields read by the filter
+     */
+    default Set<MessageField> reads() {
+        return EnumSet.allOf(MessageField.class);
+    }
+
+    /**
+     * Gets the parts of a message the filter may change
+     * @return the fields written by the filter
+     */
+    default Set<MessageField> writes() {
+        return EnumSet.allOf(MessageField.class);
+    }
+
+    /**
+     * Gets the relative cost of applying the filter to a message,
+     * used to run cheaper filters first
+     * @return the cost of the filter
+     */
+    default int cost() {
+        return DEFAULT_COST;
+    }
 }
@@ -0,0 +1,220 @@
+package mychat.filter;
+
+import mychat.conversation.Message;
+import mychat.conversation.MessageBlock;
+import mychat.metrics.MetricsListener;
+
+import java.util.*;
+
+/**
+ * Applies a sequence of filters to a message, stopping
+ * as soon as one of them drops it, or to a block of messages.
+ * Consecutive {@link ContentRewritingFilter}s share the {@link ContentBuffer}
+ * of the thread, the content being set once after the last of them
+ */
+public final class FilterChain implements Filter, BatchFilter {
+
+    private final Filter[] filters;
+    private final BatchFilter[] batchFilters;
+
+    /**
+     * The filters rewriting the content, null for the other filters, and the end of the run of rewriting filters
+     * starting at each filter, the filter itself for the other filters
+     */
+    private final ContentRewritingFilter[] rewriters;
+    private final int[] runEnds;
+
+    public FilterChain(Collection<Filter> filters) {
+        this.filters = filters.toArray(new Filter[filters.size()]);
+
+        int n = this.filters.length;
+        this.rewriters = new ContentRewritingFilter[n];
+        this.runEnds = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            rewriters[i] = rewriterOf(this.filters[i]);
+            runEnds[i] = rewriters[i] == null ? i : i + 1 < n && rewriters[i + 1] != null ? runEnds[i + 1] : i + 1;
+        }
+
+        // a run of rewriting filters rewrites the content column of a block in place, sharing the content
+        // buffer of each message
+        List<BatchFilter> stages = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (runEnds[i] > i) {
+                int from = i;
+                int to = runEnds[i];
+                stages.add((block, selection) -> rewrite(block, selection, from, to));
+                i = to - 1;
+            } else {
+                stages.add(BatchFilterAdapter.of(this.filters[i]));
+            }
+        }
+        this.batchFilters = stages.toArray(new BatchFilter[stages.size()]);
+    }
+
+    /**
+     * Compiles the filters into a chain which drops messages as early and as cheaply as possible.
+     * A filter which does not change messages is moved before the filters that do not change what
+     * it reads, and before the more expensive filters of its kind, so that content rewriting only
+     * happens on the messages that are kept. The messages coming out of the chain are the same as
+     * with the filters in their original order.
+     * @param filters the filters in the order they were given
+     * @return the compiled chain
+     */
+    public static FilterChain compile(Collection<Filter> filters) {
+
+        List<Filter> plan = new ArrayList<>(filters.size());
+        for (Filter filter : filters) {
+            int position = plan.size();
+            if (filter.writes().isEmpty()) {
+                while (position > 0 && canRunBefore(filter, plan.get(position - 1))) {
+                    position--;
+                }
+            }
+            plan.add(position, filter);
+        }
+        return new FilterChain(plan);
+    }
+
+    /**
+     * Checks whether a filter which does not change messages can run before another filter
+     * without changing the result of the chain, and should.
+     */
+    private static boolean canRunBefore(Filter filter, Filter previous) {
+        if (!Collections.disjoint(previous.writes(), filter.reads())) {
+            return false;
+        }
+        return !previous.writes().isEmpty() || previous.cost() > filter.cost();
+    }
+
+    /**
+     * Measures each filter of the chain, keeping their order. The filters of the chains among them are measured
+     * on their own, in their place.
+     * @param listener the listener told about each call of a filter
+     * @return the measured chain
+     */
+    public FilterChain metered(MetricsListener listener) {
+        List<Filter> metered = new ArrayList<>(filters.length);
+        meter(filters, listener, metered);
+        return new FilterChain(metered);
+    }
+
+    private static void meter(Filter[] filters, MetricsListener listener, List<Filter> metered) {
+        for (Filter filter : filters) {
+            if (filter instanceof FilterChain) {
+                meter(((FilterChain) filter).filters, listener, metered);
+            } else {
+                metered.add(new MeteredFilter(filter, listener));
+            }
+        }
+    }
+
+    /**
+     * Gets the filters in the order they are applied
+     * @return the filters of the chain
+     */
+    public List<Filter> getFilters() {
+        return Collections.unmodifiableList(Arrays.asList(filters));
+    }
+
+    @Override
+    public Message apply(Message message) {
+
+        for (int i = 0; i < filters.length; i++) {
+            if (runEnds[i] > i) {
+                message = rewrite(message, i, runEnds[i]);
+                i = runEnds[i] - 1;
+            } else {
+                message = filters[i].apply(message);
+                if (message == null) {
+                    return null;
+                }
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Rewrites the content of a message with a run of rewriting filters on the buffer of the thread,
+     * copying it out once after the last of them, and only when one of them replaced something.
+     */
+    private Message rewrite(Message message, int from, int to) {
+        ContentBuffer content = ContentBuffer.local(message.getContent());
+        for (int i = from; i < to; i++) {
+            rewriters[i].rewrite(content);
+            content.endPass();
+        }
+        if (content.isChanged()) {
+            message.setContent(content.toString());
+        }
+        return message;
+    }
+
+    /**
+     * Rewrites the contents of the selected messages of a block with a run of rewriting filters, in place in the
+     * content column, without making messages of them.
+     */
+    private long[] rewrite(MessageBlock block, long[] selection, int from, int to) {
+        String[] contents = block.getContents();
+        for (int m = Selection.next(selection, 0); m >= 0; m = Selection.next(selection, m + 1)) {
+            ContentBuffer content = ContentBuffer.local(contents[m]);
+            for (int i = from; i < to; i++) {
+                rewriters[i].rewrite(content);
+                content.endPass();
+            }
+            if (content.isChanged()) {
+                contents[m] = content.toString();
+            }
+        }
+        return selection;
+    }
+
+    @Override
+    public long[] apply(MessageBlock block, long[] selection) {
+
+        for (BatchFilter filter : batchFilters) {
+            if (Selection.isEmpty(selection)) {
+                break;
+            }
+            selection = filter.apply(block, selection);
+        }
+        return selection;
+    }
+
+    /**
+     * Gets a filter as a rewriting filter sharing the content buffer of the chain, measured filters included.
+     * @return the rewriting filter, or null when the filter is not one
+     */
+    private static ContentRewritingFilter rewriterOf(Filter filter) {
+        if (filter instanceof ContentRewritingFilter) {
+            return (ContentRewritingFilter) filter;
+        }
+        return filter instanceof MeteredFilter ? ((MeteredFilter) filter).asRewriter() : null;
+    }
+
+    @Override
+    public Set<MessageField> reads() {
+        Set<MessageField> fields = EnumSet.noneOf(MessageField.class);
+        for (Filter filter : filters) {
+            fields.addAll(filter.reads());
+        }
+        return fields;
+    }
+
+    @Override
+    public Set<MessageField> writes() {
+        Set<MessageField> fields = EnumSet.noneOf(MessageField.class);
+        for (Filter filter : filters) {
+            fields.addAll(filter.writes());
+        }
+        return fields;
+    }
+
+    @Override
+    public int cost() {
+        int cost = 0;
+        for (Filter filter : filters) {
+            cost += filter.cost();
+        }
+        return cost;
+    }
+}
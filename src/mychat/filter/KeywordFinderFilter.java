@@ -1,24 +1,111 @@
 package mychat.filter;
 
 import mychat.conversation.Message;
+import mychat.conversation.MessageBlock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 /**
- * Discards entries that do not have the desired keyword
+ * Discards entries that do not have any of the desired keywords
  */
-public class KeywordFinderFilter implements Filter {
+public class KeywordFinderFilter implements Filter, BatchFilter {
+
+    /**
+     * Searching the content costs more than comparing a sender id
+     */
+    private static final int COST = 10;
 
-    private String keyword;
+    private final String keyword;
+    private final List<String> keywords;
+    private final AhoCorasickMatcher matcher;
+    private final boolean wholeWords;
 
     public KeywordFinderFilter(String keyword) {
         this.keyword = keyword;
+        this.keywords = Collections.singletonList(keyword);
+        this.matcher = null;
+        this.wholeWords = false;
+    }
+
+    /**
+     * @param keywords the keywords, any of which keeps a message
+     * @param ignoreCase whether the keywords are found regardless of their case
+     * @param wholeWords whether the keywords only match when they are not part of a longer word
+     */
+    public KeywordFinderFilter(Collection<String> keywords, boolean ignoreCase, boolean wholeWords) {
+        this.keyword = null;
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+        this.matcher = new AhoCorasickMatcher(keywords, ignoreCase);
+        this.wholeWords = wholeWords;
+    }
+
+    /**
+     * @param keyword the keyword to find
+     * @param ignoreCase whether the keyword is found regardless of its case
+     * @param wholeWords whether the keyword only matches when it is not part of a longer word
+     */
+    public KeywordFinderFilter(String keyword, boolean ignoreCase, boolean wholeWords) {
+        this(Collections.singletonList(keyword), ignoreCase, wholeWords);
+    }
+
+    /**
+     * Gets the keywords, any of which keeps a message
+     * @return the keywords
+     */
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * Gets whether the keywords only match when they are not part of a longer word
+     * @return whether the keywords are whole words
+     */
+    public boolean isWholeWords() {
+        return wholeWords;
     }
 
     @Override
     public Message apply(Message message) {
 
-        if (!message.getContent().contains(keyword)) {
+        if (!matches(message.getContent())) {
             return null;
         }
         return message;
     }
+
+    @Override
+    public long[] apply(MessageBlock block, long[] selection) {
+
+        String[] contents = block.getContents();
+        for (int i = Selection.next(selection, 0); i >= 0; i = Selection.next(selection, i + 1)) {
+            if (!matches(contents[i])) {
+                Selection.deselect(selection, i);
+            }
+        }
+        return selection;
+    }
+
+    private boolean matches(String content) {
+        return matcher != null ? matcher.find(content, wholeWords) : content.contains(keyword);
+    }
+
+    @Override
+    public Set<MessageField> reads() {
+        return EnumSet.of(MessageField.CONTENT);
+    }
+
+    @Override
+    public Set<MessageField> writes() {
+        return EnumSet.noneOf(MessageField.class);
+    }
+
+    @Override
+    public int cost() {
+        return COST;
+    }
 }
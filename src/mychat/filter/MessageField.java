@@ -0,0 +1,10 @@
+package mychat.filter;
+
+/**
+ * The parts of a message a filter can read or change
+ */
+public enum MessageField {
+    TIMESTAMP,
+    SENDER,
+    CONTENT
+}
@@ -0,0 +1,126 @@
+package mychat.filter;
+
+import mychat.conversation.Message;
+import mychat.conversation.MessageBlock;
+import mychat.metrics.MetricsListener;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Measures a filter, telling a {@link MetricsListener} how many messages it was given, kept and changed,
+ * and how long it took. The filter is otherwise unchanged, so a chain of metered filters runs in the same
+ * order as the chain they come from.
+ */
+public final class MeteredFilter implements Filter, BatchFilter {
+
+    private final Filter filter;
+    private final BatchFilter batchFilter;
+    private final String name;
+    private final MetricsListener listener;
+
+    /**
+     * The measured filter rewriting the content buffer of a chain, or null when the filter does not rewrite contents
+     */
+    private final ContentRewritingFilter rewriter;
+
+    /**
+     * @param filter the filter to measure
+     * @param listener the listener told about each call of the filter
+     */
+    public MeteredFilter(Filter filter, MetricsListener listener) {
+        this.filter = filter;
+        this.batchFilter = BatchFilterAdapter.of(filter);
+        this.name = filter.getClass().getSimpleName();
+        this.listener = listener;
+        this.rewriter = filter instanceof ContentRewritingFilter ? this::rewrite : null;
+    }
+
+    /**
+     * Gets the measured filter as a filter rewriting the content buffer of a chain.
+     * @return the measured rewriting filter, or null when the filter does not rewrite contents
+     */
+    ContentRewritingFilter asRewriter() {
+        return rewriter;
+    }
+
+    @Override
+    public Message apply(Message message) {
+        String content = message.getContent();
+        String senderId = message.getSenderId();
+
+        long start = System.nanoTime();
+        Message result = filter.apply(message);
+        long nanos = System.nanoTime() - start;
+
+        boolean kept = result != null;
+        boolean rewritten = kept
+                && (!Objects.equals(content, result.getContent()) || !Objects.equals(senderId, result.getSenderId()));
+        listener.filterApplied(name, 1, kept ? 1 : 0, rewritten ? 1 : 0, nanos);
+        return result;
+    }
+
+    /**
+     * Rewrites a content buffer shared with other filters, ending the pass of the filter to tell whether it
+     * rewrote the content.
+     */
+    private void rewrite(ContentBuffer content) {
+        long start = System.nanoTime();
+        ((ContentRewritingFilter) filter).rewrite(content);
+        boolean rewritten = content.endPass();
+        long nanos = System.nanoTime() - start;
+
+        listener.filterApplied(name, 1, 1, rewritten ? 1 : 0, nanos);
+    }
+
+    /**
+     * Measures a filter on a block. A filter which does not change messages runs on the whole block, and only
+     * rewrites nothing; a filter which changes them runs on one message at a time, like the adapter of a per message
+     * filter, counting the messages it changed as it goes.
+     */
+    @Override
+    public long[] apply(MessageBlock block, long[] selection) {
+        int messagesIn = Selection.count(selection);
+        int rewritten = 0;
+
+        long start = System.nanoTime();
+        if (filter.writes().isEmpty()) {
+            selection = batchFilter.apply(block, selection);
+        } else {
+            for (int i = Selection.next(selection, 0); i >= 0; i = Selection.next(selection, i + 1)) {
+                Message message = block.getMessage(i);
+                String content = message.getContent();
+                String senderId = message.getSenderId();
+
+                Message result = filter.apply(message);
+                if (result == null) {
+                    Selection.deselect(selection, i);
+                } else {
+                    block.setMessage(i, result);
+                    if (!Objects.equals(content, result.getContent()) || !Objects.equals(senderId, result.getSenderId())) {
+                        rewritten++;
+                    }
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+
+        listener.filterApplied(name, messagesIn, Selection.count(selection), rewritten, nanos);
+        return selection;
+    }
+
+    @Override
+    public Set<MessageField> reads() {
+        return filter.reads();
+    }
+
+    @Override
+    public Set<MessageField> writes() {
+        return filter.writes();
+    }
+
+    @Override
+    public int cost() {
+        return filter.cost();
+    }
+}
@@ -0,0 +1,76 @@
+package mychat.filter;
+
+/**
+ * Helpers for the bitmaps selecting the messages of a {@link mychat.conversation.MessageBlock},
+ * where bit {@code i % 64} of word {@code i / 64} is set when message {@code i} is selected
+ */
+public final class Selection {
+
+    private Selection() {
+    }
+
+    /**
+     * Creates a selection of all the messages of a block.
+     * @param size the number of messages
+     * @return the selection
+     */
+    public static long[] all(int size) {
+        long[] selection = new long[(size + 63) >>> 6];
+        for (int word = 0; word < selection.length; word++) {
+            int bits = Math.min(64, size - (word << 6));
+            selection[word] = bits == 64 ? -1L : (1L << bits) - 1;
+        }
+        return selection;
+    }
+
+    public static boolean isSelected(long[] selection, int index) {
+        return (selection[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public static void deselect(long[] selection, int index) {
+        selection[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Gets the first selected message at or after the given index.
+     * @param selection the selection
+     * @param from the index to start from
+     * @return the index of the selected message, or -1 if there is none
+     */
+    public static int next(long[] selection, int from) {
+        int word = from >>> 6;
+        if (word >= selection.length) {
+            return -1;
+        }
+        long bits = selection[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == selection.length) {
+                return -1;
+            }
+            bits = selection[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Counts the selected messages.
+     * @param selection the selection
+     * @return the number of selected messages
+     */
+    public static int count(long[] selection) {
+        int count = 0;
+        for (long word : selection) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static boolean isEmpty(long[] selection) {
+        for (long word : selection) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,24 +1,36 @@
 package mychat.filter;
 
-import mychat.conversation.Message;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Replaces substrings (banned keyword) of a string with a replacement string
  */
-public class StringReplacer implements Filter {
+public class StringReplacer implements ContentRewritingFilter {
 
-    private String keyword;
-    private final String replacementString = "\\\\*redacted\\\\*";
+    private final Pattern keyword;
+    private final String replacementString = "\\*redacted\\*";
+
+    /**
+     * Matchers are not thread safe, each thread has its own, reset for each message
+     */
+    private final ThreadLocal<Matcher> matchers = new ThreadLocal<Matcher>() {
+        @Override
+        protected Matcher initialValue() {
+            return keyword.matcher("");
+        }
+    };
 
     public StringReplacer(String keyword) {
-        this.keyword = keyword;
+        this.keyword = Pattern.compile(keyword);
     }
 
     @Override
-    public Message apply(Message message) {
-
-        message.setContent(message.getContent().replaceAll(keyword, replacementString));
+    public void rewrite(ContentBuffer content) {
 
-        return message;
+        Matcher matcher = matchers.get().reset(content.content());
+        while (matcher.find()) {
+            content.replace(matcher.start(), matcher.end(), replacementString);
+        }
     }
 }
@@ -1,24 +1,104 @@
 package mychat.filter;
 
 import mychat.conversation.Message;
+import mychat.conversation.MessageBlock;
+import mychat.conversation.SymbolTable;
+
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Filter for messages by user id
  */
-public class UserFilter implements Filter {
+public class UserFilter implements Filter, BatchFilter {
+
+    /**
+     * Comparing the sender id is the cheapest check of a message
+     */
+    private static final int COST = 1;
 
     private final String user;
 
+    /**
+     * The ordinal of the user in the table of the sender ids of the last messages filtered
+     */
+    private volatile Lookup lookup;
+
     public UserFilter(String user) {
         this.user = user;
     }
 
+    public String getUser() {
+        return user;
+    }
+
     @Override
     public Message apply(Message message) {
 
-        if (!message.getSenderId().equals(user)) {
+        SymbolTable senders = message.getSenders();
+        if (senders == null) {
+            return message.getSenderId().equals(user) ? message : null;
+        }
+
+        // the messages of a store are compared by the ordinals of their senders
+        Lookup current = lookup;
+        if (current == null || current.senders != senders || current.ordinal < 0 && current.size != senders.size()) {
+            current = new Lookup(senders, senders.find(user), senders.size());
+            lookup = current;
+        }
+        if (message.getSenderOrdinal() != current.ordinal || current.ordinal < 0) {
             return null;
         }
         return message;
     }
+
+    @Override
+    public long[] apply(MessageBlock block, long[] selection) {
+
+        int ordinal = block.getSenders().find(user);
+        int[] senders = block.getSenderOrdinals();
+        int size = block.size();
+
+        // build each word of the selection without branches, so the loop can be vectorised
+        for (int word = 0; word < selection.length; word++) {
+            int base = word << 6;
+            int bits = Math.min(64, size - base);
+            long matches = 0;
+            for (int bit = 0; bit < bits; bit++) {
+                matches |= (senders[base + bit] == ordinal ? 1L : 0L) << bit;
+            }
+            selection[word] &= matches;
+        }
+        return selection;
+    }
+
+    @Override
+    public Set<MessageField> reads() {
+        return EnumSet.of(MessageField.SENDER);
+    }
+
+    @Override
+    public Set<MessageField> writes() {
+        return EnumSet.noneOf(MessageField.class);
+    }
+
+    @Override
+    public int cost() {
+        return COST;
+    }
+
+    /**
+     * The ordinal of the user in a table, found again when the user was not in the table and the table grew
+     */
+    private static final class Lookup {
+        private final SymbolTable senders;
+        private final int ordinal;
+        private final int size;
+
+        private Lookup(SymbolTable senders, int ordinal, int size) {
+            this.senders = senders;
+            this.ordinal = ordinal;
+            this.size = size;
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package mychat.filter.obfuscate;
+
+import mychat.filter.ContentBuffer;
+import mychat.filter.ContentRewritingFilter;
+
+/**
+ * Filter for obfuscating credit card and telephone numbers in a single scan of the content.
+ * A credit card number is a run of 12 to 19 digits, optionally grouped with single spaces or
+ * hyphens, that passes the Luhn check; a telephone number is a run of 6 to 14 digits.
+ */
+public class PiiObfuscateFilter implements ContentRewritingFilter {
+
+    private static final int MIN_CARD_DIGITS = 12;
+    private static final int MAX_CARD_DIGITS = 19;
+    private static final int MIN_TELEPHONE_DIGITS = 6;
+    private static final int MAX_TELEPHONE_DIGITS = 14;
+
+    /**
+     * The text replacing a number
+     */
+    private final String replacement = "*redacted*";
+
+    private final boolean creditCards;
+    private final boolean telephones;
+
+    /**
+     * @param creditCards whether credit card numbers are obfuscated
+     * @param telephones whether telephone numbers are obfuscated
+     */
+    public PiiObfuscateFilter(boolean creditCards, boolean telephones) {
+        this.creditCards = creditCards;
+        this.telephones = telephones;
+    }
+
+    public boolean isCreditCards() {
+        return creditCards;
+    }
+
+    public boolean isTelephones() {
+        return telephones;
+    }
+
+    /**
+     * Replaces the numbers found in the content in a single scan.
+     * @param content the content to scan
+     */
+    @Override
+    public void rewrite(ContentBuffer content) {
+        CharSequence text = content.content();
+
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            if (!isDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            int runEnd = i + 1;
+            while (runEnd < n && isDigit(text.charAt(runEnd))) {
+                runEnd++;
+            }
+
+            int end = -1;
+            if (creditCards) {
+                end = cardEnd(text, i, runEnd);
+            }
+            int digits = runEnd - i;
+            if (end < 0 && telephones && digits >= MIN_TELEPHONE_DIGITS && digits <= MAX_TELEPHONE_DIGITS) {
+                end = runEnd;
+            }
+
+            if (end < 0) {
+                i = runEnd;
+                continue;
+            }
+
+            content.replace(i, end, replacement);
+            i = end;
+        }
+    }
+
+    /**
+     * Finds the end of the credit card number starting with the digits {@code [start, runEnd)}.
+     * When the digits alone are not a card number, the longest valid number made of the following
+     * groups of digits is used.
+     * @return the end of the card number, or -1 if there is none
+     */
+    private static int cardEnd(CharSequence content, int start, int runEnd) {
+        int n = content.length();
+        int best = -1;
+
+        int digits = runEnd - start;
+        int end = runEnd;
+        while (true) {
+            if (digits >= MIN_CARD_DIGITS && digits <= MAX_CARD_DIGITS && luhn(content, start, end)) {
+                if (end == runEnd) {
+                    return end;
+                }
+                best = end;
+            }
+            if (end + 1 >= n || !isSeparator(content.charAt(end)) || !isDigit(content.charAt(end + 1))) {
+                return best;
+            }
+
+            int groupEnd = end + 1;
+            while (groupEnd < n && isDigit(content.charAt(groupEnd))) {
+                groupEnd++;
+            }
+            digits += groupEnd - end - 1;
+            if (digits > MAX_CARD_DIGITS) {
+                return best;
+            }
+            end = groupEnd;
+        }
+    }
+
+    /**
+     * Checks the Luhn checksum of the digits in {@code [start, end)}, skipping separators.
+     */
+    private static boolean luhn(CharSequence content, int start, int end) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = end - 1; i >= start; i--) {
+            char c = content.charAt(i);
+            if (!isDigit(c)) {
+                continue;
+            }
+            int digit = c - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-';
+    }
+}
@@ -0,0 +1,156 @@
+package mychat.filter.obfuscate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps user ids to stable pseudonyms, using a keyed HMAC-SHA256 of the id and an optional salt.
+ * The same id always gets the same pseudonym for the same key and salt, and the pseudonym cannot be
+ * turned back into the id without the key. Pseudonyms are cached, so each user is hashed only once
+ * as long as the cache holds it; once the cache is full, the least recently used pseudonyms are evicted.
+ * The cache is split into stripes of their own lock, so that the threads of a parallel export rarely wait.
+ */
+public final class Pseudonymizer {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String PREFIX = "user-";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * The number of bytes of the HMAC kept in a pseudonym
+     */
+    private static final int PSEUDONYM_BYTES = 8;
+
+    /**
+     * The number of pseudonyms cached by default
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    /**
+     * The number of stripes of the cache, a power of two
+     */
+    private static final int STRIPES = 16;
+
+    private final SecretKeySpec key;
+    private final byte[] salt;
+
+    /**
+     * The stripes of the cache, chosen by the hash of the id, or none when nothing is cached
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Macs are not thread safe, each thread has its own
+     */
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available.", e);
+            }
+        }
+    };
+
+    /**
+     * @param key the secret key of the HMAC
+     * @param salt the salt hashed with each id, or null
+     * @param cacheSize the largest number of pseudonyms cached
+     */
+    public Pseudonymizer(byte[] key, String salt, int cacheSize) {
+        if (key.length == 0) {
+            throw new IllegalArgumentException("The pseudonym key must not be empty.");
+        }
+        this.key = new SecretKeySpec(key.clone(), ALGORITHM);
+        this.salt = salt == null ? new byte[0] : salt.getBytes(StandardCharsets.UTF_8);
+
+        int count = cacheSize <= 0 ? 0 : cacheSize < STRIPES ? 1 : STRIPES;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe((cacheSize + count - 1) / count);
+        }
+    }
+
+    /**
+     * Creates a pseudonymizer with a random key, whose pseudonyms are only stable while it lives.
+     * @param salt the salt hashed with each id, or null
+     * @return the pseudonymizer
+     */
+    public static Pseudonymizer withRandomKey(String salt) {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new Pseudonymizer(key, salt, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Gets the pseudonym of a user.
+     * @param userId the id of the user, or null for a message without a sender
+     * @return the pseudonym, or null when there is no user
+     */
+    public String pseudonym(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        if (stripes.length == 0) {
+            return hash(userId);
+        }
+
+        int h = userId.hashCode();
+        Stripe stripe = stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+        String pseudonym;
+        synchronized (stripe) {
+            pseudonym = stripe.get(userId);
+        }
+        if (pseudonym == null) {
+            // hashed outside of the lock, two threads may hash the same new user, giving the same pseudonym
+            pseudonym = hash(userId);
+            synchronized (stripe) {
+                stripe.put(userId, pseudonym);
+            }
+        }
+        return pseudonym;
+    }
+
+    private String hash(String userId) {
+        Mac mac = macs.get();
+        mac.update(salt);
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(userId.getBytes(StandardCharsets.UTF_8));
+
+        char[] pseudonym = new char[PREFIX.length() + 2 * PSEUDONYM_BYTES];
+        PREFIX.getChars(0, PREFIX.length(), pseudonym, 0);
+        for (int i = 0; i < PSEUDONYM_BYTES; i++) {
+            pseudonym[PREFIX.length() + 2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            pseudonym[PREFIX.length() + 2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(pseudonym);
+    }
+
+    /**
+     * A stripe of the cache, in access order, evicting its least recently used pseudonym once it is full
+     */
+    private static final class Stripe extends LinkedHashMap<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+}
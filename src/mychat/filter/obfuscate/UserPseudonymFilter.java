@@ -0,0 +1,76 @@
+package mychat.filter.obfuscate;
+
+import mychat.conversation.Message;
+import mychat.filter.AhoCorasickMatcher;
+import mychat.filter.Filter;
+import mychat.filter.MessageField;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replaces the id of every sender with its pseudonym, and the mentions of the users of the conversation
+ * in the content of the messages with the same pseudonyms. Mentions are found as whole words, regardless
+ * of their case.
+ */
+public final class UserPseudonymFilter implements Filter {
+
+    private final Pseudonymizer pseudonymizer;
+
+    /**
+     * The users whose mentions are replaced, and the matcher finding them, or null when there are none
+     */
+    private final List<String> users;
+    private final AhoCorasickMatcher mentions;
+
+    /**
+     * Creates a filter replacing the sender ids only, until the users of a conversation are known.
+     * @param pseudonymizer the pseudonyms of the users
+     */
+    public UserPseudonymFilter(Pseudonymizer pseudonymizer) {
+        this(pseudonymizer, new ArrayList<String>());
+    }
+
+    private UserPseudonymFilter(Pseudonymizer pseudonymizer, List<String> users) {
+        this.pseudonymizer = pseudonymizer;
+        this.users = users;
+        this.mentions = users.isEmpty() ? null : new AhoCorasickMatcher(users, true);
+    }
+
+    /**
+     * Creates a filter with the same pseudonyms which also replaces the mentions of the given users.
+     * @param users the users of the conversation
+     * @return the filter
+     */
+    public UserPseudonymFilter withMentionsOf(Collection<String> users) {
+        return new UserPseudonymFilter(pseudonymizer, new ArrayList<>(users));
+    }
+
+    @Override
+    public Message apply(Message message) {
+
+        message.setSenderId(pseudonymizer.pseudonym(message.getSenderId()));
+
+        if (mentions != null) {
+            String content = message.getContent();
+            String replaced = mentions.replaceAll(content, true, user -> pseudonymizer.pseudonym(users.get(user)));
+            if (replaced != content) {
+                message.setContent(replaced);
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public Set<MessageField> reads() {
+        return EnumSet.of(MessageField.SENDER, MessageField.CONTENT);
+    }
+
+    @Override
+    public Set<MessageField> writes() {
+        return EnumSet.of(MessageField.SENDER, MessageField.CONTENT);
+    }
+}
@@ -0,0 +1,181 @@
+package mychat.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the measurements of one or more exports, and summarises them as JSON.
+ */
+public final class ExportMetrics implements MetricsListener {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder messagesParsed = new LongAdder();
+    private final LongAdder messagesWritten = new LongAdder();
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final ConcurrentMap<String, FilterMetrics> filters = new ConcurrentHashMap<>();
+
+    public ExportMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    @Override
+    public void messagesParsed(long messages) {
+        messagesParsed.add(messages);
+    }
+
+    @Override
+    public void messagesWritten(long messages) {
+        messagesWritten.add(messages);
+    }
+
+    @Override
+    public void stageCompleted(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    @Override
+    public void filterApplied(String filter, long messagesIn, long messagesOut, long rewritten, long nanos) {
+        FilterMetrics metrics = filters.computeIfAbsent(filter, name -> new FilterMetrics());
+        metrics.messagesIn.add(messagesIn);
+        metrics.messagesOut.add(messagesOut);
+        metrics.rewritten.add(rewritten);
+        metrics.latency.record(nanos);
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getMessagesParsed() {
+        return messagesParsed.sum();
+    }
+
+    public long getMessagesWritten() {
+        return messagesWritten.sum();
+    }
+
+    /**
+     * Gets the durations of a stage, one per export.
+     * @param stage the stage
+     * @return the histogram of the stage
+     */
+    public LatencyHistogram getStage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Gets the measurements of the filters, by name.
+     * @return the filters measured so far
+     */
+    public Map<String, FilterMetrics> getFilters() {
+        return new TreeMap<>(filters);
+    }
+
+    /**
+     * Summarises the measurements as a JSON object.
+     * @return the JSON summary
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"bytesRead\":").append(getBytesRead())
+                .append(",\"messagesParsed\":").append(getMessagesParsed())
+                .append(",\"messagesWritten\":").append(getMessagesWritten())
+                .append(",\"stages\":{");
+
+        String separator = "";
+        for (Stage stage : Stage.values()) {
+            json.append(separator);
+            name(json, stage.name().toLowerCase(Locale.ROOT));
+            histogram(json, stages.get(stage));
+            separator = ",";
+        }
+
+        json.append("},\"filters\":{");
+        separator = "";
+        for (Map.Entry<String, FilterMetrics> entry : getFilters().entrySet()) {
+            FilterMetrics metrics = entry.getValue();
+            json.append(separator);
+            name(json, entry.getKey());
+            json.append("{\"messagesIn\":").append(metrics.getMessagesIn())
+                    .append(",\"messagesOut\":").append(metrics.getMessagesOut())
+                    .append(",\"dropped\":").append(metrics.getDropped())
+                    .append(",\"rewritten\":").append(metrics.getRewritten())
+                    .append(",\"latency\":");
+            histogram(json, metrics.getLatency());
+            json.append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void name(StringBuilder json, String name) {
+        json.append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\');
+            }
+            json.append(c);
+        }
+        json.append("\":");
+    }
+
+    private static void histogram(StringBuilder json, LatencyHistogram histogram) {
+        json.append("{\"count\":").append(histogram.getCount())
+                .append(",\"totalNanos\":").append(histogram.getTotal())
+                .append(",\"maxNanos\":").append(histogram.getMax());
+        for (double percentile : PERCENTILES) {
+            json.append(",\"p").append((int) percentile).append("Nanos\":").append(histogram.getPercentile(percentile));
+        }
+        json.append('}');
+    }
+
+    /**
+     * The measurements of one kind of filter
+     */
+    public static final class FilterMetrics {
+
+        private final LongAdder messagesIn = new LongAdder();
+        private final LongAdder messagesOut = new LongAdder();
+        private final LongAdder rewritten = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        public long getMessagesIn() {
+            return messagesIn.sum();
+        }
+
+        public long getMessagesOut() {
+            return messagesOut.sum();
+        }
+
+        public long getDropped() {
+            return getMessagesIn() - getMessagesOut();
+        }
+
+        public long getRewritten() {
+            return rewritten.sum();
+        }
+
+        /**
+         * Gets the durations of the filter, one per message, or per block of messages in a parallel export.
+         * @return the histogram of the filter
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    }
+}
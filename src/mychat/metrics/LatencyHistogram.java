@@ -0,0 +1,67 @@
+package mychat.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in buckets of powers of two nanoseconds, which can be recorded from several threads.
+ * Percentiles are given as the upper bound of the bucket they fall in, so they are at most twice the real value.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    /**
+     * The number of durations in {@code [2^(i-1), 2^i)}, bucket 0 counting the durations of 0
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets a percentile of the recorded durations.
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket of the percentile in nanoseconds, or 0 when nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(bucket == 0 ? 0 : (1L << bucket) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+}
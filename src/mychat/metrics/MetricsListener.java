@@ -0,0 +1,55 @@
+package mychat.metrics;
+
+/**
+ * Receives the measurements of the export pipeline.
+ * Every method does nothing by default, so a listener only overrides what it is interested in.
+ * Filters may be applied on several threads at once, so a listener must be thread safe.
+ */
+public interface MetricsListener {
+
+    /**
+     * The listener of an export which is not measured
+     */
+    MetricsListener NONE = new MetricsListener() {
+    };
+
+    /**
+     * Called when the bytes of a conversation file were read.
+     * @param bytes the number of bytes
+     */
+    default void bytesRead(long bytes) {
+    }
+
+    /**
+     * Called when messages were parsed from a conversation file.
+     * @param messages the number of messages
+     */
+    default void messagesParsed(long messages) {
+    }
+
+    /**
+     * Called when messages were written to the output.
+     * @param messages the number of messages
+     */
+    default void messagesWritten(long messages) {
+    }
+
+    /**
+     * Called when a stage of an export is over.
+     * @param stage the stage
+     * @param nanos the time spent in the stage
+     */
+    default void stageCompleted(Stage stage, long nanos) {
+    }
+
+    /**
+     * Called when a filter was applied to a message, or to a block of messages.
+     * @param filter the name of the filter
+     * @param messagesIn the number of messages given to the filter
+     * @param messagesOut the number of messages it kept
+     * @param rewritten the number of kept messages it changed
+     * @param nanos the time spent in the filter
+     */
+    default void filterApplied(String filter, long messagesIn, long messagesOut, long rewritten, long nanos) {
+    }
+}
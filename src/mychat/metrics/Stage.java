@@ -0,0 +1,23 @@
+package mychat.metrics;
+
+/**
+ * The stages of an export
+ */
+public enum Stage {
+    /**
+     * Reading and parsing the conversation file
+     */
+    READ,
+    /**
+     * Applying the filters to the messages
+     */
+    FILTER,
+    /**
+     * Ranking the users by activity
+     */
+    REPORT,
+    /**
+     * Writing the conversation out
+     */
+    WRITE
+}
@@ -0,0 +1,59 @@
+import mychat.conversation.ActivityReport;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link ActivityReport}.
+ */
+public class ActivityReportTests {
+
+    /**
+     * Tests that users are sorted from the most to the least active, then by id
+     * @throws Exception
+     */
+    @Test
+    public void testUsersAreSortedByActivity() throws Exception {
+        ActivityReport report = record("mike", "bob", "angus", "bob", "mike", "bob", "zoe");
+
+        assertEquals(Arrays.asList("bob", "mike", "angus", "zoe"), new ArrayList<>(report.getUsers().keySet()));
+        assertEquals(3, report.getUsers().get("bob").getActivity());
+    }
+
+    /**
+     * Tests that only the most active users are kept when a limit is given
+     * @throws Exception
+     */
+    @Test
+    public void testMostActiveUsers() throws Exception {
+        ActivityReport report = record("mike", "bob", "angus", "bob", "mike", "bob", "zoe", "zoe", "zoe", "zoe");
+
+        assertEquals(Arrays.asList("zoe", "bob"), new ArrayList<>(report.getUsers(2).keySet()));
+        assertEquals(4, report.getUsers(10).size());
+        assertEquals(0, report.getUsers(0).size());
+    }
+
+    /**
+     * Tests that merged reports add up the activity of their users
+     * @throws Exception
+     */
+    @Test
+    public void testMerge() throws Exception {
+        ActivityReport report = record("bob", "mike");
+        report.merge(record("mike", "mike", "angus"));
+
+        assertEquals(Arrays.asList("mike", "angus", "bob"), new ArrayList<>(report.getUsers().keySet()));
+        assertEquals(3, report.getUsers().get("mike").getActivity());
+    }
+
+    private static ActivityReport record(String... senderIds) {
+        ActivityReport report = new ActivityReport();
+        for (String senderId : senderIds) {
+            report.record(senderId);
+        }
+        return report;
+    }
+}
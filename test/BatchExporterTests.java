@@ -0,0 +1,144 @@
+import mychat.conversationexporter.BatchExporter;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import mychat.metrics.ExportMetrics;
+import mychat.metrics.Stage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for the {@link BatchExporter}.
+ */
+public class BatchExporterTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that every conversation of a directory is exported
+     * @throws Exception
+     */
+    @Test
+    public void testDirectory() throws Exception {
+        File inputs = folder.newFolder("inputs");
+        copyChat(inputs, "first.txt");
+        copyChat(inputs, "second.txt");
+        File outputs = new File(folder.getRoot(), "outputs");
+
+        BatchExporter.Summary summary = export(inputs.getPath(), outputs.getPath(), "-w", "2");
+
+        assertEquals(2, summary.getSucceeded());
+        assertEquals(0, summary.getFailed());
+        assertExported(outputs, "first.json", "test_resources/11.json");
+        assertExported(outputs, "second.json", "test_resources/11.json");
+    }
+
+    /**
+     * Tests that the conversations matching a glob are exported with the filters
+     * @throws Exception
+     */
+    @Test
+    public void testGlob() throws Exception {
+        File inputs = folder.newFolder("inputs");
+        copyChat(inputs, "first.txt");
+        copyChat(inputs, "second.log");
+        File outputs = new File(folder.getRoot(), "outputs");
+
+        BatchExporter.Summary summary = export(inputs.getPath() + "/*.txt", outputs.getPath(), "-u", "bob");
+
+        assertEquals(1, summary.getSucceeded());
+        assertExported(outputs, "first.json", "test_resources/2.json");
+        assertFalse(new File(outputs, "second.json").exists());
+    }
+
+    /**
+     * Tests that the conversations of a manifest are exported, a missing one failing on its own
+     * @throws Exception
+     */
+    @Test
+    public void testManifest() throws Exception {
+        File inputs = folder.newFolder("inputs");
+        copyChat(inputs, "first.txt");
+        File manifest = folder.newFile("manifest.txt");
+        Files.write(manifest.toPath(), Arrays.asList("# nightly export", "inputs/first.txt", "", "inputs/missing.txt"),
+                StandardCharsets.UTF_8);
+        File outputs = new File(folder.getRoot(), "outputs");
+
+        BatchExporter.Summary summary = export(manifest.getPath(), outputs.getPath(), "-s");
+
+        assertEquals(1, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertExported(outputs, "first.json", "test_resources/11.json");
+    }
+
+    /**
+     * Tests that the options of the batch apply to each conversation, here the parallel export which filters
+     * while it reads, and that the summary counts the bytes read
+     * @throws Exception
+     */
+    @Test
+    public void testOptionsApplyToEachConversation() throws Exception {
+        File inputs = folder.newFolder("inputs");
+        copyChat(inputs, "first.txt");
+        copyChat(inputs, "second.txt");
+        File outputs = new File(folder.getRoot(), "outputs");
+
+        ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(
+                new String[]{inputs.getPath(), outputs.getPath(), "-b", "-p", "-u", "bob"});
+        ExportMetrics metrics = new ExportMetrics();
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setMetricsListener(metrics);
+        BatchExporter.Summary summary = exporter.exportBatch(conf);
+
+        assertEquals(2, summary.getSucceeded());
+        assertExported(outputs, "first.json", "test_resources/2.json");
+        assertEquals(2, metrics.getStage(Stage.READ).getCount());
+        assertEquals(0, metrics.getStage(Stage.FILTER).getCount());
+        assertEquals(2 * Files.size(Paths.get("resources/chat.txt")), summary.getBytes());
+    }
+
+    /**
+     * Tests that two inputs cannot be exported to the same file
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConflictingOutputs() throws Exception {
+        File inputs = folder.newFolder("inputs");
+        copyChat(inputs, "chat.txt");
+        copyChat(inputs, "chat.log");
+
+        export(inputs.getPath(), new File(folder.getRoot(), "outputs").getPath());
+    }
+
+    private static BatchExporter.Summary export(String inputs, String outputs, String... options) throws Exception {
+        String[] args = new String[options.length + 3];
+        args[0] = inputs;
+        args[1] = outputs;
+        args[2] = "-b";
+        System.arraycopy(options, 0, args, 3, options.length);
+
+        ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        return new ConversationExporter().exportBatch(conf);
+    }
+
+    private static void copyChat(File directory, String name) throws Exception {
+        Files.copy(Paths.get("resources/chat.txt"), new File(directory, name).toPath());
+    }
+
+    private static void assertExported(File outputs, String name, String expected) throws Exception {
+        Path output = new File(outputs, name).toPath();
+        assertEquals(new String(Files.readAllBytes(Paths.get(expected))), new String(Files.readAllBytes(output)));
+    }
+}
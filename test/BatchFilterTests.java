@@ -0,0 +1,111 @@
+import mychat.conversation.MessageBlock;
+import mychat.conversation.SymbolTable;
+import mychat.filter.*;
+import mychat.metrics.ExportMetrics;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BatchFilter}s.
+ */
+public class BatchFilterTests {
+
+    private static final String[] USERS = {"bob", "mike", "angus"};
+
+    private static MessageBlock block(int size) {
+        MessageBlock block = new MessageBlock(new SymbolTable(), size);
+        for (int i = 0; i < size; i++) {
+            block.add(i, USERS[i % USERS.length], i % 2 == 0 ? "Hello there" : "how are you?");
+        }
+        return block;
+    }
+
+    /**
+     * Tests that the user filter keeps the messages of the user across several words of the selection
+     * @throws Exception
+     */
+    @Test
+    public void testUserFilter() throws Exception {
+        MessageBlock block = block(150);
+
+        long[] selection = new UserFilter("mike").apply(block, Selection.all(block.size()));
+
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(i % 3 == 1, Selection.isSelected(selection, i));
+        }
+        assertEquals(-1, Selection.next(selection, 149));
+    }
+
+    /**
+     * Tests that a user missing from the block deselects every message
+     * @throws Exception
+     */
+    @Test
+    public void testUnknownUserFilter() throws Exception {
+        MessageBlock block = block(10);
+
+        assertTrue(Selection.isEmpty(new UserFilter("nobody").apply(block, Selection.all(block.size()))));
+    }
+
+    /**
+     * Tests that a chain mixing batch filters and per message filters keeps and rewrites the right messages
+     * @throws Exception
+     */
+    @Test
+    public void testChainWithAdaptedFilters() throws Exception {
+        MessageBlock block = block(100);
+        FilterChain chain = FilterChain.compile(Arrays.<Filter>asList(
+                new BlacklistFilter(Arrays.asList("Hello")),
+                new KeywordFinderFilter("there"),
+                new UserFilter("bob")));
+
+        long[] selection = chain.apply(block, Selection.all(block.size()));
+
+        for (int i = 0; i < block.size(); i++) {
+            boolean kept = i % 6 == 0;
+            assertEquals(kept, Selection.isSelected(selection, i));
+            if (kept) {
+                assertEquals("\\*redacted\\* there", block.getContents()[i]);
+            }
+        }
+        assertFalse(Selection.isSelected(selection, 1));
+    }
+
+    /**
+     * Tests that a measured chain rewrites the content column of a block in place, and counts the messages
+     * each filter kept and changed
+     * @throws Exception
+     */
+    @Test
+    public void testMeteredChainOnBlock() throws Exception {
+        MessageBlock block = block(100);
+        String unchanged = block.getContents()[1];
+        ExportMetrics metrics = new ExportMetrics();
+        FilterChain chain = FilterChain.compile(Arrays.<Filter>asList(
+                new BlacklistFilter(Arrays.asList("Hello")),
+                new StringReplacer("you"),
+                new UserFilter("bob"))).metered(metrics);
+
+        long[] selection = chain.apply(block, Selection.all(block.size()));
+
+        assertEquals(34, Selection.count(selection));
+        assertEquals("\\*redacted\\* there", block.getContents()[0]);
+        assertEquals("how are \\*redacted\\*?", block.getContents()[3]);
+        // the messages dropped first are not rewritten
+        assertSame(unchanged, block.getContents()[1]);
+
+        ExportMetrics.FilterMetrics user = metrics.getFilters().get("UserFilter");
+        assertEquals(100, user.getMessagesIn());
+        assertEquals(34, user.getMessagesOut());
+        ExportMetrics.FilterMetrics blacklist = metrics.getFilters().get("BlacklistFilter");
+        assertEquals(34, blacklist.getMessagesIn());
+        assertEquals(17, blacklist.getRewritten());
+        assertEquals(17, metrics.getFilters().get("StringReplacer").getRewritten());
+    }
+}
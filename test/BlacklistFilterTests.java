@@ -0,0 +1,107 @@
+import mychat.conversation.Message;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.filter.BlacklistFilter;
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.filter.KeywordFinderFilter;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BlacklistFilter}.
+ */
+public class BlacklistFilterTests {
+
+    private static final String REDACTED = "\\*redacted\\*";
+
+    private String redact(String content, String... words) {
+        Message message = new Message(Instant.EPOCH, "bob", content);
+        return new BlacklistFilter(Arrays.asList(words)).apply(message).getContent();
+    }
+
+    /**
+     * Tests that every occurrence of every word is redacted
+     * @throws Exception
+     */
+    @Test
+    public void testRedactsAllWords() throws Exception {
+        assertEquals(REDACTED + " there! " + REDACTED + " card, " + REDACTED,
+                redact("Hello there! Credit card, Hello", "Hello", "Credit"));
+    }
+
+    /**
+     * Tests that the longest of the words starting at the same place is redacted
+     * @throws Exception
+     */
+    @Test
+    public void testPrefersLongestMatch() throws Exception {
+        assertEquals(REDACTED + "o " + REDACTED + "o", redact("Hello Hello", "He", "Hell", "ll"));
+        assertEquals("a" + REDACTED + REDACTED, redact("abcd", "bcde", "b", "cd"));
+        assertEquals(REDACTED + "d", redact("abcd", "bc", "abc"));
+    }
+
+    /**
+     * Tests that a message without blacklisted words is left as it is
+     * @throws Exception
+     */
+    @Test
+    public void testLeavesCleanMessageUntouched() throws Exception {
+        String content = "how are you?";
+        assertSame(content, redact(content, "Hello", "Credit"));
+    }
+
+    /**
+     * Tests that words which are regular expressions are still supported
+     * @throws Exception
+     */
+    @Test
+    public void testRegularExpressionWords() throws Exception {
+        assertEquals(REDACTED + " " + REDACTED + "! yes", redact("pie pies! yes", "p.es", "pie"));
+    }
+
+    /**
+     * Tests that a regular expression given to -bl is kept whole, commas included, while plain words are split
+     * @throws Exception
+     */
+    @Test
+    public void testArgumentRegularExpressionWithCommas() throws Exception {
+        List<Filter> filters = parse("-bl", "p{1,2}ie", "-bl", "[,;]");
+        assertEquals(1, filters.size());
+        assertEquals("I like " + REDACTED + REDACTED + " and " + REDACTED + REDACTED + " p" + REDACTED,
+                filters.get(0).apply(new Message(Instant.EPOCH, "bob", "I like pie, and ppie; pppie")).getContent());
+
+        filters = parse("-bl", "Hello,there");
+        assertEquals(REDACTED + " " + REDACTED + "!",
+                filters.get(0).apply(new Message(Instant.EPOCH, "bob", "Hello there!")).getContent());
+    }
+
+    /**
+     * Tests that a -bl given after another filter keeps its place after it
+     * @throws Exception
+     */
+    @Test
+    public void testArgumentsKeepTheirOrder() throws Exception {
+        List<Filter> filters = parse("-bl", "Hello", "-bl", "Credit", "-kw", "pie", "-bl", "pie");
+
+        assertEquals(3, filters.size());
+        assertTrue(filters.get(0) instanceof BlacklistFilter);
+        assertTrue(filters.get(1) instanceof KeywordFinderFilter);
+        assertEquals("I'm good thanks, do you like " + REDACTED + "?", new FilterChain(filters)
+                .apply(new Message(Instant.EPOCH, "bob", "I'm good thanks, do you like pie?")).getContent());
+    }
+
+    private static List<Filter> parse(String... options) {
+        List<String> args = new ArrayList<>(Arrays.asList("resources/chat.txt", "resources/chat.json"));
+        args.addAll(Arrays.asList(options));
+        return new ArrayList<>(new CommandLineArgumentParser().parseCommandLineArguments(args.toArray(new String[0]))
+                .getFilters());
+    }
+}
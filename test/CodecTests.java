@@ -0,0 +1,153 @@
+import mychat.codec.Codec;
+import mychat.codec.Codecs;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link Codec}s and compressed exports.
+ */
+public class CodecTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that compressed conversations are detected by their magic bytes, and exported like plain ones
+     * @throws Exception
+     */
+    @Test
+    public void testCompressedInput() throws Exception {
+        byte[] expected = Files.readAllBytes(Paths.get("test_resources/2.json"));
+
+        for (Codec codec : Codecs.all()) {
+            File input = compress(codec, Files.readAllBytes(Paths.get("resources/chat.txt")), "chat.txt");
+            assertEquals(codec, Codecs.detect(input.toPath()));
+
+            for (String mode : new String[]{"", "-s", "-p"}) {
+                File output = new File(folder.getRoot(), codec.getName() + mode + ".json");
+                export(input.getPath(), output.getPath(), "-u", "bob", mode);
+                assertArrayEquals(codec.getName() + mode, expected, Files.readAllBytes(output.toPath()));
+            }
+        }
+        assertNull(Codecs.detect(Paths.get("resources/chat.txt")));
+    }
+
+    /**
+     * Tests that the output is compressed as it is written
+     * @throws Exception
+     */
+    @Test
+    public void testCompressedOutput() throws Exception {
+        byte[] expected = Files.readAllBytes(Paths.get("test_resources/2.json"));
+
+        for (String mode : new String[]{"", "-s"}) {
+            File output = new File(folder.getRoot(), "chat" + mode + ".json.gz");
+            export("resources/chat.txt", output.getPath(), "-u", "bob", "-oc", "gzip", mode);
+
+            Codec codec = Codecs.detect(output.toPath());
+            assertEquals("gzip", codec.getName());
+            assertArrayEquals(expected, decompress(codec, output));
+        }
+    }
+
+    /**
+     * Tests that plain conversations whose first bytes look like a zlib header are not taken for compressed ones
+     * @throws Exception
+     */
+    @Test
+    public void testPlainTextLookingLikeDeflate() throws Exception {
+        String messages = "\n1448470901 bob Hello there!\n1448470905 mike how are you?\n";
+
+        // "80" and "x " ask for a preset dictionary, "8O" does not but is no valid deflate data
+        for (String name : new String[]{"80s music", "x chat", "8Os and 90s"}) {
+            File input = folder.newFile();
+            Files.write(input.toPath(), (name + messages).getBytes(StandardCharsets.UTF_8));
+            assertNull(name, Codecs.detect(input.toPath()));
+
+            File output = new File(folder.getRoot(), "plain.json");
+            export(input.getPath(), output.getPath());
+            String json = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+            assertTrue(json, json.startsWith("{\"name\":\"" + name + "\",\"messages\":[{"));
+        }
+    }
+
+    /**
+     * Tests that a zlib stream asking for a preset dictionary fails to decompress instead of looking empty
+     * @throws Exception
+     */
+    @Test(expected = ZipException.class)
+    public void testDeflateWithPresetDictionaryFails() throws Exception {
+        Deflater deflater = new Deflater();
+        deflater.setDictionary("chat".getBytes(StandardCharsets.UTF_8));
+        File file = folder.newFile();
+        try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(file.toPath()), deflater)) {
+            out.write(Files.readAllBytes(Paths.get("resources/chat.txt")));
+        }
+        decompress(Codecs.of("deflate"), file);
+    }
+
+    /**
+     * Tests that an unknown codec is reported
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCodec() throws Exception {
+        Codecs.of("lzma");
+    }
+
+    private File compress(Codec codec, byte[] data, String name) throws Exception {
+        File file = new File(folder.getRoot(), name + "." + codec.getExtension());
+        try (OutputStream out = codec.compress(Files.newOutputStream(file.toPath()))) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static byte[] decompress(Codec codec, File file) throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (InputStream in = codec.decompress(Files.newInputStream(file.toPath()))) {
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                data.write(buffer, 0, read);
+            }
+        }
+        return data.toByteArray();
+    }
+
+    private static void export(String input, String output, String... options) throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList(input, output));
+        for (String option : options) {
+            if (!option.isEmpty()) {
+                args.add(option);
+            }
+        }
+
+        ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(args.toArray(new String[0]));
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setOutputCodec(conf.getOutputCodec());
+        exporter.exportConversation(conf);
+    }
+}
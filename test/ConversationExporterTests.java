@@ -117,7 +117,8 @@ public class ConversationExporterTests {
                 "-u", "bob",           // user id matcher
                 "-kw", "there",        // keyword matcher
                 "-bl", "Hello",        // keyword obfuscator
-                "-uo",                 // user id obfuscator
+                "-uo",                 // user id pseudonyms
+                "-uok", "test-key",    // key of the pseudonyms
                 "-cco",                // credit card obfuscator
                 "-to"                  // telephone obfuscator
         };
@@ -157,7 +158,7 @@ public class ConversationExporterTests {
 
 
     /**
-     * Tests the user obfuscator filter when no user is provided
+     * Tests that every user gets a pseudonym when no user is provided
      * @throws Exception
      */
     @Test
@@ -166,7 +167,8 @@ public class ConversationExporterTests {
         String[] args = new String[]{
                 "resources/chat.txt",  // input
                 "resources/chat.json", // output
-                "-uo",                 // user id obfuscator
+                "-uo",                 // user id pseudonyms
+                "-uok", "test-key",    // key of the pseudonyms
         };
 
         conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
@@ -180,7 +182,7 @@ public class ConversationExporterTests {
 
 
     /**
-     * Tests credit card obfuscator filter
+     * Tests telephone obfuscator filter
      * @throws Exception
      */
     @Test
@@ -203,13 +205,13 @@ public class ConversationExporterTests {
 
 
     /**
-     * Tests credit card obfuscator filter
+     * Tests credit card obfuscator filter, which leaves numbers failing the Luhn check alone
      * @throws Exception
      */
     @Test
     public void testCreditCardObfuscatorFilter() throws Exception {
         String[] args = new String[]{
-                "resources/chat.txt",  // input
+                "test_resources/cards.txt", // input, with a valid card number and an invalid one
                 "resources/chat.json", // output
                 "-cco",                // credit card obfuscator
         };
@@ -234,7 +236,8 @@ public class ConversationExporterTests {
                 "resources/chat.txt",  // input
                 "resources/chat.json", // output
                 "-u", "bob",           // user id matcher
-                "-uo"                  // user id obfuscator
+                "-uo",                 // user id pseudonyms
+                "-uok", "test-key"     // key of the pseudonyms
         };
 
         conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
@@ -309,6 +312,158 @@ public class ConversationExporterTests {
         assertEquals(s1, s2);
     }
 
+    /**
+     * Tests keyword filter with a list of keywords read from a file, regardless of their case
+     * @throws Exception
+     */
+    @Test
+    public void testKeywordFileFilter() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-kwf", "test_resources/watchlist.txt", // keyword list matcher
+                "-ci"                  // case insensitive keywords
+        };
+
+        conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        exporter.exportConversation(conf);
+
+        String s1 = new String(Files.readAllBytes(Paths.get(outputPath)));
+        String s2 = new String(Files.readAllBytes(Paths.get("test_resources/1.json")));
+
+        assertEquals(s1, s2);
+    }
+
+    /**
+     * Tests that only the most active users are reported
+     * @throws Exception
+     */
+    @Test
+    public void testTopUsers() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-top", "2"            // most active users
+        };
+
+        conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        exporter.exportConversation(conf);
+
+        String s1 = new String(Files.readAllBytes(Paths.get(outputPath)));
+        String s2 = new String(Files.readAllBytes(Paths.get("test_resources/12.json")));
+
+        assertEquals(s1, s2);
+    }
+
+    /**
+     * Tests that a streaming export reports the most active users like a regular export
+     * @throws Exception
+     */
+    @Test
+    public void testStreamingTopUsers() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-top", "2",           // most active users
+                "-s"                   // streaming
+        };
+
+        conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        exporter.exportConversation(conf);
+
+        String s1 = new String(Files.readAllBytes(Paths.get(outputPath)));
+        String s2 = new String(Files.readAllBytes(Paths.get("test_resources/12.json")));
+
+        assertEquals(s1, s2);
+    }
+
+    /**
+     * Tests that the number of users must be a positive number
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTopUsers() throws Exception {
+        new CommandLineArgumentParser().parseCommandLineArguments(new String[]{
+                "resources/chat.txt", "resources/chat.json", "-top", "none"});
+    }
+
+    /**
+     * Tests that a streaming export without filters writes the same output as a regular export
+     * @throws Exception
+     */
+    @Test
+    public void testStreamingExecution() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-s"                   // streaming
+        };
+
+        conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        exporter.exportConversation(conf);
+
+        String s1 = new String(Files.readAllBytes(Paths.get(outputPath)));
+        String s2 = new String(Files.readAllBytes(Paths.get("test_resources/11.json")));
+
+        assertEquals(s1, s2);
+    }
+
+    /**
+     * Tests that a streaming export applies the filters like a regular export
+     * @throws Exception
+     */
+    @Test
+    public void testStreamingCombinationOfFilters() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-u", "bob",           // user id matcher
+                "-kw", "there",        // keyword matcher
+                "-bl", "Hello",        // keyword obfuscator
+                "-uo",                 // user id pseudonyms
+                "-uok", "test-key",    // key of the pseudonyms
+                "-cco",                // credit card obfuscator
+                "-to",                 // telephone obfuscator
+                "-s"                   // streaming
+        };
+
+        conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        exporter.exportConversation(conf);
+
+        String s1 = new String(Files.readAllBytes(Paths.get(outputPath)));
+        String s2 = new String(Files.readAllBytes(Paths.get("test_resources/9.json")));
+
+        assertEquals(s1, s2);
+    }
+
+    /**
+     * Tests that a parallel export applies the filters like a regular export
+     * @throws Exception
+     */
+    @Test
+    public void testParallelCombinationOfFilters() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-u", "bob",           // user id matcher
+                "-kw", "there",        // keyword matcher
+                "-bl", "Hello",        // keyword obfuscator
+                "-uo",                 // user id pseudonyms
+                "-uok", "test-key",    // key of the pseudonyms
+                "-cco",                // credit card obfuscator
+                "-to",                 // telephone obfuscator
+                "-p"                   // parallel
+        };
+
+        conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        exporter.exportConversation(conf);
+
+        String s1 = new String(Files.readAllBytes(Paths.get(outputPath)));
+        String s2 = new String(Files.readAllBytes(Paths.get("test_resources/9.json")));
+
+        assertEquals(s1, s2);
+    }
+
     /**
      * Tests that exporting a conversation will export the conversation correctly.
      * @throws Exception When something bad happens.
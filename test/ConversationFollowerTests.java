@@ -0,0 +1,132 @@
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationFollower;
+import mychat.filter.Filter;
+import mychat.filter.UserFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link ConversationFollower}.
+ */
+public class ConversationFollowerTests {
+
+    private static final String BOB = "{\"content\":\"Hello there!\",\"timestamp\":1448470901,\"senderId\":\"bob\"}";
+    private static final String MIKE = "{\"content\":\"how are you?\",\"timestamp\":1448470905,\"senderId\":\"mike\"}";
+    private static final String ANGUS = "{\"content\":\"Hell yes!\",\"timestamp\":1448470912,\"senderId\":\"angus\"}";
+    private static final String NAME = "{\"name\":\"My Conversation\"}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that only complete lines are exported, and that a new follower carries on from the checkpoint
+     * with a conversation of its own
+     * @throws Exception
+     */
+    @Test
+    public void testAppendedLines() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("chat.txt");
+        Path output = folder.getRoot().toPath().resolve("chat.ndjson");
+        Path checkpoint = folder.getRoot().toPath().resolve("chat.checkpoint");
+
+        append(input, "My Conversation\n1448470901 bob Hello there!\n1448470905 mi");
+        ConversationFollower follower = follower(input, output, checkpoint, Collections.<Filter>emptyList());
+        assertEquals(1, follower.poll());
+        assertEquals(Arrays.asList(NAME, BOB), Files.readAllLines(output, StandardCharsets.UTF_8));
+        follower.end();
+
+        append(input, "ke how are you?\n1448470912 angus Hell yes!\n");
+        follower = follower(input, output, checkpoint, Collections.<Filter>emptyList());
+        assertEquals(2, follower.poll());
+        assertEquals(0, follower.poll());
+        follower.end();
+
+        assertEquals(Arrays.asList(
+                NAME, BOB, "{\"users\":{\"bob\":{\"name\":\"bob\",\"activity\":1}}}",
+                NAME, MIKE, ANGUS, "{\"users\":{\"angus\":{\"name\":\"angus\",\"activity\":1},"
+                        + "\"mike\":{\"name\":\"mike\",\"activity\":1}}}"),
+                Files.readAllLines(output, StandardCharsets.UTF_8));
+        assertEquals(Files.size(input), follower.getOffset());
+    }
+
+    /**
+     * Tests that the appended messages go through the filters
+     * @throws Exception
+     */
+    @Test
+    public void testFilters() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("chat.txt");
+        Path output = folder.getRoot().toPath().resolve("chat.ndjson");
+        Path checkpoint = folder.getRoot().toPath().resolve("chat.checkpoint");
+
+        append(input, "My Conversation\n1448470901 bob Hello there!\n1448470905 mike how are you?\n");
+        ConversationFollower follower = follower(input, output, checkpoint,
+                Collections.<Filter>singletonList(new UserFilter("mike")));
+
+        assertEquals(1, follower.poll());
+        assertEquals(Arrays.asList(NAME, MIKE), Files.readAllLines(output, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that a conversation getting shorter than the checkpoint is ended, and followed again from its start
+     * @throws Exception
+     */
+    @Test
+    public void testRotatedConversation() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("chat.txt");
+        Path output = folder.getRoot().toPath().resolve("chat.ndjson");
+        Path checkpoint = folder.getRoot().toPath().resolve("chat.checkpoint");
+
+        append(input, "My Conversation\n1448470901 bob Hello there!\n1448470905 mike how are you?\n");
+        ConversationFollower follower = follower(input, output, checkpoint, Collections.<Filter>emptyList());
+        assertEquals(2, follower.poll());
+
+        Files.delete(input);
+        append(input, "Next\n1448470912 angus Hell yes!\n");
+        assertEquals(1, follower.poll());
+
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(
+                NAME, BOB, MIKE, "{\"users\":{\"bob\":{\"name\":\"bob\",\"activity\":1},"
+                        + "\"mike\":{\"name\":\"mike\",\"activity\":1}}}",
+                "{\"name\":\"Next\"}", ANGUS), lines);
+    }
+
+    /**
+     * Tests that a compressed conversation is rejected up front, since it cannot be followed line by line
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompressedConversation() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("chat.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(input))) {
+            out.write("My Conversation\n1448470901 bob Hello there!\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        follower(input, folder.getRoot().toPath().resolve("chat.ndjson"),
+                folder.getRoot().toPath().resolve("chat.checkpoint"), Collections.<Filter>emptyList());
+    }
+
+    private static ConversationFollower follower(Path input, Path output, Path checkpoint, Collection<Filter> filters)
+            throws Exception {
+        return new ConversationFollower(new ConversationExporter(), input, output, checkpoint, filters);
+    }
+
+    private static void append(Path file, String lines) throws Exception {
+        Files.write(file, lines.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
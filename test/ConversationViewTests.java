@@ -0,0 +1,138 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import mychat.conversation.Message;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationView;
+import mychat.filter.Filter;
+import mychat.filter.KeywordFinderFilter;
+import mychat.filter.UserFilter;
+import mychat.filter.obfuscate.Pseudonymizer;
+import mychat.filter.obfuscate.UserPseudonymFilter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link ConversationView}.
+ */
+public class ConversationViewTests {
+
+    private final String inputPath = "resources/chat.txt";
+    private final String outputPath = "resources/chat.json";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConversationExporter exporter;
+
+    @Before
+    public void setUp() {
+        exporter = new ConversationExporter();
+    }
+
+    /**
+     * Tests that the log is read no further than the last message of a limited view
+     * @throws Exception
+     */
+    @Test
+    public void testLimitStopsReading() throws Exception {
+        List<Filter> filters = Collections.singletonList(new KeywordFinderFilter("pie"));
+        try (ConversationView view = exporter.viewConversation(inputPath, filters)) {
+            List<String> contents = new ArrayList<>();
+            for (Message message : view.limit(2)) {
+                contents.add(message.getContent());
+            }
+
+            assertEquals("My Conversation", view.getName());
+            assertEquals(2, contents.size());
+            assertEquals("I'm good thanks, do you like pie?", contents.get(0));
+            assertEquals("Hell yes! Are we buying some pie?", contents.get(1));
+            // the fifth message is the second one with pie, the last two are never read
+            assertEquals(5, view.getMessagesRead());
+        }
+    }
+
+    /**
+     * Tests that the filters added to a view run after its filters, and that its log is read only once
+     * @throws Exception
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFilterComposesPipeline() throws Exception {
+        List<Filter> filters = Collections.singletonList(new KeywordFinderFilter("pie"));
+        try (ConversationView view = exporter.viewConversation(inputPath, filters)) {
+            ConversationView angus = view.filter(new UserFilter("angus"));
+
+            assertEquals(2, angus.count());
+            assertEquals(7, view.getMessagesRead());
+
+            view.iterator();
+        }
+    }
+
+    /**
+     * Tests that counting stops at the limit, and counts every message without filters
+     * @throws Exception
+     */
+    @Test
+    public void testCount() throws Exception {
+        List<Filter> filters = Collections.singletonList(new KeywordFinderFilter("pie"));
+        assertEquals(4, exporter.countMessages(inputPath, filters, Integer.MAX_VALUE));
+        assertEquals(3, exporter.countMessages(inputPath, filters, 3));
+        assertEquals(7, exporter.countMessages(inputPath, Collections.emptyList(), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Tests that counting with pseudonyms stops at the limit, without reading the senders of the whole log first
+     * @throws Exception
+     */
+    @Test
+    public void testCountWithPseudonymsStopsAtLimit() throws Exception {
+        File input = folder.newFile("chat.txt");
+        // the malformed last line fails any reading of the whole log
+        Files.write(input.toPath(), Arrays.asList("My Conversation", "1448470901 bob Hello mike",
+                "1448470905 mike how are you?", "1448470906 bob fine", "not a message"), StandardCharsets.UTF_8);
+        List<Filter> filters = Collections.singletonList(new UserPseudonymFilter(
+                new Pseudonymizer("test-key".getBytes(StandardCharsets.UTF_8), null, 0)));
+
+        assertEquals(2, exporter.countMessages(input.getPath(), filters, 2));
+    }
+
+    /**
+     * Tests that an export limited to its first messages reports the activity of the messages written
+     * @throws Exception
+     */
+    @Test
+    public void testExportWithLimit() throws Exception {
+        String[] args = new String[]{
+                inputPath,             // input
+                outputPath,            // output
+                "-kw", "pie",          // keyword matcher
+                "--limit", "3"         // first messages
+        };
+
+        exporter.exportConversation(new CommandLineArgumentParser().parseCommandLineArguments(args));
+
+        JsonObject conversation = new JsonParser().parse(
+                new String(Files.readAllBytes(Paths.get(outputPath)), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(3, conversation.getAsJsonArray("messages").size());
+        assertEquals("No, just want to know if there's anybody else in the pie society...", conversation
+                .getAsJsonArray("messages").get(2).getAsJsonObject().get("content").getAsString());
+        JsonObject users = conversation.getAsJsonObject("users");
+        assertEquals(2, users.entrySet().size());
+        assertEquals(2, users.getAsJsonObject("bob").get("activity").getAsInt());
+        assertEquals(1, users.getAsJsonObject("angus").get("activity").getAsInt());
+    }
+}
@@ -0,0 +1,151 @@
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import mychat.metrics.ExportMetrics;
+import mychat.metrics.LatencyHistogram;
+import mychat.metrics.Stage;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link ExportMetrics} of an export.
+ */
+public class ExportMetricsTests {
+
+    /**
+     * Tests that a regular export counts the messages going through each filter
+     * @throws Exception
+     */
+    @Test
+    public void testRegularExport() throws Exception {
+        ExportMetrics metrics = export();
+
+        assertCounts(metrics);
+        assertEquals(1, metrics.getStage(Stage.READ).getCount());
+        assertEquals(1, metrics.getStage(Stage.WRITE).getCount());
+        assertEquals(7, metrics.getFilters().get("UserFilter").getLatency().getCount());
+    }
+
+    /**
+     * Tests that a streaming export counts the messages like a regular export
+     * @throws Exception
+     */
+    @Test
+    public void testStreamingExport() throws Exception {
+        ExportMetrics metrics = export("-s");
+
+        assertCounts(metrics);
+        assertEquals(1, metrics.getStage(Stage.FILTER).getCount());
+    }
+
+    /**
+     * Tests that a parallel export counts the messages like a regular export
+     * @throws Exception
+     */
+    @Test
+    public void testParallelExport() throws Exception {
+        assertCounts(export("-p"));
+    }
+
+    /**
+     * Tests that an export limited to its first messages reports only the bytes of the lines read
+     * @throws Exception
+     */
+    @Test
+    public void testLimitedExportReadsPartOfFile() throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-kw", "pie",          // keyword matcher
+                "--limit", "2",        // first messages
+                "-m"
+        };
+
+        ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        ExportMetrics metrics = new ExportMetrics();
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setMetricsListener(metrics);
+        exporter.exportConversation(conf);
+
+        // the name and the first five messages, the second one with pie being the fifth
+        assertEquals(5, metrics.getMessagesParsed());
+        assertEquals(261, metrics.getBytesRead());
+    }
+
+    /**
+     * Tests that the summary is written as JSON
+     * @throws Exception
+     */
+    @Test
+    public void testJsonSummary() throws Exception {
+        String json = export().toJson();
+
+        assertTrue(json.startsWith("{\"bytesRead\":397,\"messagesParsed\":7,\"messagesWritten\":2,\"stages\":{\"read\":{\"count\":1,"));
+        assertTrue(json.contains("\"UserFilter\":{\"messagesIn\":7,\"messagesOut\":3,\"dropped\":4,\"rewritten\":0,\"latency\":{\"count\":7,"));
+    }
+
+    /**
+     * Tests the percentiles of a histogram
+     * @throws Exception
+     */
+    @Test
+    public void testHistogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 10);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50500, histogram.getTotal());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(511, histogram.getPercentile(50));
+        assertEquals(1000, histogram.getPercentile(99));
+        assertEquals(0, new LatencyHistogram().getPercentile(50));
+    }
+
+    private static ExportMetrics export(String... options) throws Exception {
+        String[] args = new String[]{
+                "resources/chat.txt",  // input
+                "resources/chat.json", // output
+                "-u", "bob",           // user id matcher
+                "-kw", "there",        // keyword matcher
+                "-bl", "Hello",        // keyword obfuscator
+                "-uo",                 // user id pseudonyms
+                "-uok", "test-key",    // key of the pseudonyms
+                "-cco",                // credit card obfuscator
+                "-to",                 // telephone obfuscator
+                options.length > 0 ? options[0] : "-m"
+        };
+
+        ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        ExportMetrics metrics = new ExportMetrics();
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setMetricsListener(metrics);
+        exporter.exportConversation(conf);
+        return metrics;
+    }
+
+    private static void assertCounts(ExportMetrics metrics) {
+        assertEquals(397, metrics.getBytesRead());
+        assertEquals(7, metrics.getMessagesParsed());
+        assertEquals(2, metrics.getMessagesWritten());
+
+        Map<String, ExportMetrics.FilterMetrics> filters = metrics.getFilters();
+        assertFilter(filters.get("UserFilter"), 7, 3, 0);
+        assertFilter(filters.get("KeywordFinderFilter"), 3, 2, 0);
+        assertFilter(filters.get("BlacklistFilter"), 2, 2, 1);
+        assertFilter(filters.get("UserPseudonymFilter"), 2, 2, 2);
+        assertFilter(filters.get("PiiObfuscateFilter"), 2, 2, 1);
+    }
+
+    private static void assertFilter(ExportMetrics.FilterMetrics filter, long in, long out, long rewritten) {
+        assertEquals(in, filter.getMessagesIn());
+        assertEquals(out, filter.getMessagesOut());
+        assertEquals(in - out, filter.getDropped());
+        assertEquals(rewritten, filter.getRewritten());
+    }
+}
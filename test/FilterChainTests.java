@@ -0,0 +1,140 @@
+import mychat.conversation.Message;
+import mychat.filter.*;
+import mychat.filter.obfuscate.PiiObfuscateFilter;
+import mychat.filter.obfuscate.Pseudonymizer;
+import mychat.filter.obfuscate.UserPseudonymFilter;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the {@link FilterChain}.
+ */
+public class FilterChainTests {
+
+    /**
+     * Tests that filters dropping messages run before the filters rewriting their content
+     * @throws Exception
+     */
+    @Test
+    public void testDroppingFiltersRunFirst() throws Exception {
+        Filter blacklist = new BlacklistFilter(Arrays.asList("Hello"));
+        Filter numbers = new PiiObfuscateFilter(true, true);
+        Filter user = new UserFilter("bob");
+        Filter keyword = new KeywordFinderFilter("there");
+
+        List<Filter> plan = FilterChain.compile(Arrays.asList(blacklist, keyword, numbers, user)).getFilters();
+
+        assertEquals(Arrays.asList(user, blacklist, keyword, numbers), plan);
+    }
+
+    /**
+     * Tests that a filter does not move before a filter changing what it reads
+     * @throws Exception
+     */
+    @Test
+    public void testFiltersKeepTheirDependencies() throws Exception {
+        Filter pseudonyms = new UserPseudonymFilter(
+                new Pseudonymizer("test-key".getBytes(StandardCharsets.UTF_8), null, 0));
+        Filter user = new UserFilter("bob");
+        Filter keyword = new KeywordFinderFilter("there");
+
+        List<Filter> plan = FilterChain.compile(Arrays.asList(keyword, pseudonyms, user)).getFilters();
+
+        assertEquals(Arrays.asList(keyword, pseudonyms, user), plan);
+    }
+
+    /**
+     * Tests that the compiled chain keeps and rewrites the same messages as the filters in their original order
+     * @throws Exception
+     */
+    @Test
+    public void testCompiledChainGivesSameMessages() throws Exception {
+        List<Filter> filters = Arrays.asList(
+                new BlacklistFilter(Arrays.asList("there")),
+                new KeywordFinderFilter("there"),
+                new UserFilter("bob"));
+
+        FilterChain chain = FilterChain.compile(filters);
+
+        assertNull(chain.apply(new Message(Instant.EPOCH, "bob", "Hello there!")));
+        assertEquals("Hello \\*redacted\\*!",
+                FilterChain.compile(Arrays.asList(filters.get(0), filters.get(2)))
+                        .apply(new Message(Instant.EPOCH, "bob", "Hello there!")).getContent());
+    }
+
+    /**
+     * Tests that rewriting filters sharing a content buffer each see the content rewritten by the previous ones
+     * @throws Exception
+     */
+    @Test
+    public void testRewritingFiltersShareContent() throws Exception {
+        List<Filter> filters = Arrays.asList(
+                new StringReplacer("pie"),
+                new BlacklistFilter(Arrays.asList("redacted", "Hello")),
+                new PiiObfuscateFilter(true, true));
+        String content = "Hello, pie for 012382189 and pie";
+
+        Message alone = new Message(Instant.EPOCH, "bob", content);
+        for (Filter filter : filters) {
+            alone = filter.apply(alone);
+        }
+        Message chained = new FilterChain(filters).apply(new Message(Instant.EPOCH, "bob", content));
+
+        assertEquals("\\*redacted\\*, \\*\\*redacted\\*\\* for *redacted* and \\*\\*redacted\\*\\*",
+                chained.getContent());
+        assertEquals(alone.getContent(), chained.getContent());
+    }
+
+    /**
+     * Tests that a content none of the rewriting filters changes is not copied
+     * @throws Exception
+     */
+    @Test
+    public void testUnchangedContentIsNotCopied() throws Exception {
+        FilterChain chain = new FilterChain(Arrays.asList(
+                new StringReplacer("pie"),
+                new BlacklistFilter(Arrays.asList("Hello")),
+                new PiiObfuscateFilter(true, true)));
+        String content = "how are you? 42";
+
+        assertSame(content, chain.apply(new Message(Instant.EPOCH, "bob", content)).getContent());
+    }
+
+    /**
+     * Tests that a buffer reset for another message rewrites it from its own content, whatever the
+     * previous messages left in the buffer, and that a chain gives each message its own content
+     * @throws Exception
+     */
+    @Test
+    public void testContentBufferIsReused() throws Exception {
+        ContentBuffer content = new ContentBuffer("Hello there, a long first message");
+        content.replace(0, 5, "Bye");
+        content.endPass();
+        content.replace(0, 3, "Hi");
+        content.endPass();
+        assertEquals("Hi there, a long first message", content.toString());
+
+        content.reset("short");
+        assertFalse(content.isChanged());
+        assertEquals("short", content.toString());
+        content.replace(0, 1, "S");
+        content.endPass();
+        assertEquals("Short", content.toString());
+
+        FilterChain chain = new FilterChain(Arrays.asList(new StringReplacer("pie"), new StringReplacer("cake")));
+        assertEquals("\\*redacted\\* or \\*redacted\\*, all day long",
+                chain.apply(new Message(Instant.EPOCH, "bob", "pie or cake, all day long")).getContent());
+        assertEquals("no \\*redacted\\*",
+                chain.apply(new Message(Instant.EPOCH, "bob", "no pie")).getContent());
+        assertEquals("none", chain.apply(new Message(Instant.EPOCH, "bob", "none")).getContent());
+    }
+}
@@ -0,0 +1,96 @@
+import com.google.gson.*;
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversationexporter.JsonConversationWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link JsonConversationWriter}.
+ */
+public class JsonConversationWriterTests {
+
+    /**
+     * Tests that strings are escaped and encoded like Gson does
+     * @throws Exception
+     */
+    @Test
+    public void testEscapesLikeGson() throws Exception {
+        List<Message> messages = Arrays.asList(
+                new Message(Instant.ofEpochSecond(1448470901), "bob", "Hello there!"),
+                new Message(Instant.ofEpochSecond(0), "o'neil", "<b>\"a\" & b = c</b>\\"),
+                new Message(Instant.ofEpochSecond(-42), "mike", "tab\tnew\nline\r\u0000\u001f\u007f\b\f"),
+                new Message(Instant.ofEpochSecond(Long.MAX_VALUE / 1000), "\u00e9mile", "caf\u00e9 \u2615 \ud83d\ude00 \u2028\u2029 \ud800"),
+                new Message(Instant.ofEpochSecond(1448470906), "angus", ""));
+
+        assertWrittenLikeGson(new Conversation("My Conversation", new ArrayList<>(messages)));
+    }
+
+    /**
+     * Tests that null fields are left out like Gson does
+     * @throws Exception
+     */
+    @Test
+    public void testNullFieldsAreLeftOut() throws Exception {
+        List<Message> messages = Arrays.asList(
+                new Message(null, "bob", null),
+                new Message(Instant.ofEpochSecond(1), "mike", "Hi"));
+
+        assertWrittenLikeGson(new Conversation(null, new ArrayList<>(messages)));
+        assertWrittenLikeGson(new Conversation(null, new ArrayList<Message>()));
+    }
+
+    /**
+     * Tests that a conversation written one message at a time is the same as one written at once
+     * @throws Exception
+     */
+    @Test
+    public void testStreamedConversation() throws Exception {
+        List<Message> messages = Arrays.asList(
+                new Message(Instant.ofEpochSecond(1448470901), "bob", "Hello there!"),
+                new Message(Instant.ofEpochSecond(1448470905), "mike", "how are you?"));
+        Conversation conversation = new Conversation("My Conversation", new ArrayList<>(messages));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonConversationWriter writer = new JsonConversationWriter(out)) {
+            writer.beginConversation(conversation.getName());
+            for (Message message : messages) {
+                writer.write(message);
+            }
+            writer.endConversation(conversation.getUsers());
+        }
+
+        assertEquals(toGson(conversation), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static void assertWrittenLikeGson(Conversation conversation) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonConversationWriter writer = new JsonConversationWriter(out)) {
+            writer.write(conversation);
+        }
+
+        assertEquals(toGson(conversation), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the conversation with Gson, as UTF-8
+     */
+    private static String toGson(Conversation conversation) {
+        Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new JsonSerializer<Instant>() {
+            @Override
+            public JsonElement serialize(Instant instant, Type type, JsonSerializationContext context) {
+                return new JsonPrimitive(instant.getEpochSecond());
+            }
+        }).create();
+        return new String(gson.toJson(conversation).getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+}
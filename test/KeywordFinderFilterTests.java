@@ -0,0 +1,88 @@
+import mychat.conversation.Message;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.filter.Filter;
+import mychat.filter.KeywordFinderFilter;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the {@link KeywordFinderFilter}.
+ */
+public class KeywordFinderFilterTests {
+
+    private static Message message(String content) {
+        return new Message(Instant.EPOCH, "bob", content);
+    }
+
+    /**
+     * Tests that a message containing any of the keywords is kept
+     * @throws Exception
+     */
+    @Test
+    public void testAnyKeywordKeepsMessage() throws Exception {
+        KeywordFinderFilter filter = new KeywordFinderFilter(Arrays.asList("pie", "cake", "Angus"), false, false);
+
+        assertNotNull(filter.apply(message("do you like pie?")));
+        assertNotNull(filter.apply(message("no, let me ask Angus...")));
+        assertNull(filter.apply(message("how are you?")));
+    }
+
+    /**
+     * Tests that keywords can be found regardless of their case
+     * @throws Exception
+     */
+    @Test
+    public void testIgnoreCase() throws Exception {
+        KeywordFinderFilter filter = new KeywordFinderFilter(Arrays.asList("angus", "PIE"), true, false);
+
+        assertNotNull(filter.apply(message("no, let me ask Angus...")));
+        assertNotNull(filter.apply(message("Pie society")));
+        assertNull(new KeywordFinderFilter(Arrays.asList("angus"), false, false).apply(message("ask Angus")));
+    }
+
+    /**
+     * Tests that whole word matching ignores keywords inside longer words
+     * @throws Exception
+     */
+    @Test
+    public void testWholeWords() throws Exception {
+        KeywordFinderFilter filter = new KeywordFinderFilter(Arrays.asList("pie", "he"), false, true);
+
+        assertNull(filter.apply(message("the pies are here")));
+        assertNotNull(filter.apply(message("the pies are here, pie!")));
+        assertNotNull(filter.apply(message("he said")));
+        assertNotNull(new KeywordFinderFilter(Arrays.asList("pie", "pies"), false, true).apply(message("the pies")));
+    }
+
+    /**
+     * Tests that the matching options are found among the options only, a keyword or a path spelled like
+     * one of them not turning it on, and that they apply to the keywords given before them
+     * @throws Exception
+     */
+    @Test
+    public void testMatchingOptionsAreNotValues() throws Exception {
+        Filter pie = parseFilter("chat.txt", "-ww", "-kw", "pie");
+        assertNotNull(pie.apply(message("we have apple pies")));
+
+        Filter ci = parseFilter("chat.txt", "chat.json", "-kw", "-ci");
+        assertNotNull(ci.apply(message("options such as -ci")));
+        assertNull(ci.apply(message("options such as -CI")));
+
+        Filter ignoreCase = parseFilter("chat.txt", "chat.json", "-kw", "PIE", "-ci");
+        assertNotNull(ignoreCase.apply(message("do you like pie?")));
+    }
+
+    private static Filter parseFilter(String... args) {
+        List<Filter> filters = new ArrayList<>(new CommandLineArgumentParser().parseCommandLineArguments(args).getFilters());
+        assertEquals(1, filters.size());
+        return filters.get(0);
+    }
+}
@@ -0,0 +1,125 @@
+import mychat.conversationexporter.MappedChatLogReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link MappedChatLogReader}.
+ */
+public class MappedChatLogReaderTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String content) throws Exception {
+        Path path = folder.newFile().toPath();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    /**
+     * Tests that the name and every message of a conversation are read
+     * @throws Exception
+     */
+    @Test
+    public void testReadsConversation() throws Exception {
+        try (MappedChatLogReader reader = new MappedChatLogReader(write("My Conversation\n"
+                + "1448470901 bob Hello there!\n"
+                + "1448470905 mike how are you?\n"))) {
+
+            assertEquals("My Conversation", reader.readConversationName());
+
+            assertTrue(reader.next());
+            assertEquals(1448470901L, reader.getTimestamp());
+            assertEquals("bob", reader.getSenderId());
+            assertEquals("Hello there!", reader.getContent());
+
+            assertTrue(reader.next());
+            assertEquals(1448470905L, reader.getTimestamp());
+            assertEquals("mike", reader.getSenderId());
+            assertEquals("how are you?", reader.getContent());
+
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests windows line endings, blank lines, a missing final new line and a message without content
+     * @throws Exception
+     */
+    @Test
+    public void testIrregularLines() throws Exception {
+        try (MappedChatLogReader reader = new MappedChatLogReader(write("Name\r\n"
+                + "1 bob  spaced  out \r\n"
+                + "\r\n"
+                + "2 mike\n"
+                + "3 angus caf\u00e9 \u2615"))) {
+
+            assertEquals("Name", reader.readConversationName());
+
+            assertTrue(reader.next());
+            assertEquals(" spaced  out ", reader.getContent());
+
+            assertTrue(reader.next());
+            assertEquals("mike", reader.getSenderId());
+            assertEquals("", reader.getContent());
+
+            assertTrue(reader.next());
+            assertEquals(3L, reader.getTimestamp());
+            assertEquals("caf\u00e9 \u2615", reader.getContent());
+
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests that the sender id of a returning user is not decoded again
+     * @throws Exception
+     */
+    @Test
+    public void testSenderIdsAreShared() throws Exception {
+        try (MappedChatLogReader reader = new MappedChatLogReader(write("Name\n1 bob a\n2 bob b\n"))) {
+            reader.readConversationName();
+
+            reader.next();
+            String first = reader.getSenderId();
+            reader.next();
+
+            assertSame(first, reader.getSenderId());
+        }
+    }
+
+    /**
+     * Tests that an empty file has no name and no messages
+     * @throws Exception
+     */
+    @Test
+    public void testEmptyFile() throws Exception {
+        try (MappedChatLogReader reader = new MappedChatLogReader(write(""))) {
+            assertNull(reader.readConversationName());
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests that a line without a numeric timestamp is rejected
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedTimestamp() throws Exception {
+        try (MappedChatLogReader reader = new MappedChatLogReader(write("Name\nyesterday bob hi\n"))) {
+            reader.readConversationName();
+            reader.next();
+        }
+    }
+}
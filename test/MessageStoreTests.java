@@ -0,0 +1,177 @@
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.MessageMemory;
+import mychat.conversation.MessageStore;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import mychat.filter.Filter;
+import mychat.filter.UserFilter;
+import mychat.filter.obfuscate.Pseudonymizer;
+import mychat.filter.obfuscate.UserPseudonymFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link MessageStore}, the {@link Message} views of its messages and the memories it is held in.
+ */
+public class MessageStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the messages read back are the ones added, the sender ids being interned
+     * @throws Exception
+     */
+    @Test
+    public void testAddAndGet() throws Exception {
+        MessageStore store = new MessageStore();
+        StringBuilder longContent = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            longContent.append("long ");
+        }
+        for (int i = 0; i < 5000; i++) {
+            store.add(1000 + i, "user" + (i % 3), i == 2500 ? longContent.toString() : "message " + i);
+        }
+        store.add(new Message(null, null, null));
+
+        assertEquals(5001, store.size());
+        assertEquals(3, store.getSenders().size());
+        for (int i = 0; i < 5000; i++) {
+            Message message = store.get(i);
+            assertEquals(Instant.ofEpochSecond(1000 + i), message.getTimestamp());
+            assertEquals("user" + (i % 3), message.getSenderId());
+            assertEquals(i == 2500 ? longContent.toString() : "message " + i, message.getContent());
+        }
+        assertSame(store.get(0).getSenderId(), store.get(3).getSenderId());
+
+        Message empty = store.get(5000);
+        assertNull(empty.getTimestamp());
+        assertNull(empty.getSenderId());
+        assertNull(empty.getContent());
+    }
+
+    /**
+     * Tests that the views write the store, and that removing a message moves the following ones back
+     * @throws Exception
+     */
+    @Test
+    public void testViewsWriteTheStore() throws Exception {
+        MessageStore store = new MessageStore();
+        store.add(1, "bob", "Hello there!");
+        store.add(2, "mike", "how are you?");
+        store.add(3, "bob", "I'm good thanks, do you like pie?");
+
+        store.get(1).setContent("how are you doing?");
+        store.get(2).setSenderId("angus");
+        assertEquals("how are you doing?", store.get(1).getContent());
+        assertEquals("angus", store.get(2).getSenderId());
+
+        List<Message> messages = store.asList();
+        messages.remove(0);
+        assertEquals(2, store.size());
+        assertEquals("mike", messages.get(0).getSenderId());
+        assertEquals("I'm good thanks, do you like pie?", messages.get(1).getContent());
+    }
+
+    /**
+     * Tests that the stores outside of the heap hold the same messages, and that dropped messages are removed
+     * all at once
+     * @throws Exception
+     */
+    @Test
+    public void testMemories() throws Exception {
+        for (MessageMemory memory : MessageMemory.values()) {
+            try (MessageStore store = memory.newStore(folder.getRoot().toPath())) {
+                for (int i = 0; i < 200000; i++) {
+                    store.add(i, "user" + (i % 5), i % 1000 == 0 ? null : "message \u00e9 " + i);
+                }
+                for (int i = 0; i < store.size(); i += 3) {
+                    store.drop(i);
+                }
+                assertTrue(store.isDropped(3));
+                store.get(4).setContent("rewritten");
+                store.compact();
+
+                assertEquals(133333, store.size());
+                for (int i = 0; i < store.size(); i++) {
+                    int original = i / 2 * 3 + 1 + i % 2;
+                    Message message = store.get(i);
+                    assertEquals(memory.name(), original, message.getTimestamp().getEpochSecond());
+                    assertEquals("user" + (original % 5), message.getSenderId());
+                    assertEquals(original == 4 ? "rewritten" : original % 1000 == 0 ? null
+                            : "message \u00e9 " + original, message.getContent());
+                }
+            }
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    /**
+     * Tests that an export holding its messages outside of the heap gives the same output
+     * @throws Exception
+     */
+    @Test
+    public void testExportOutsideOfTheHeap() throws Exception {
+        String[] filters = {"-kw", "there", "-bl", "Hello", "-cco", "-to"};
+        byte[] expected = export("heap.json", filters);
+        for (String memory : new String[]{"direct", "mapped"}) {
+            List<String> options = new ArrayList<>(Arrays.asList(filters));
+            options.addAll(Arrays.asList("-mem", memory, "-memdir", folder.newFolder().getPath()));
+            assertArrayEquals(memory, expected, export(memory + ".json", options.toArray(new String[0])));
+        }
+    }
+
+    /**
+     * Tests that the user filter compares the ordinals of the senders of a store, including senders interned
+     * while the conversation is filtered
+     * @throws Exception
+     */
+    @Test
+    public void testUserFilterComparesOrdinals() throws Exception {
+        MessageStore store = new MessageStore();
+        store.add(1, "bob", "Hello there!");
+        store.add(2, "mike", "how are you?");
+        store.add(3, "bob", "I'm good thanks, do you like pie?");
+
+        Conversation conversation = new Conversation("My Conversation", store);
+        Pseudonymizer pseudonymizer = new Pseudonymizer("test-key".getBytes(StandardCharsets.UTF_8), null, 0);
+        String bob = pseudonymizer.pseudonym("bob");
+        List<Filter> filters = Arrays.asList(new UserPseudonymFilter(pseudonymizer), new UserFilter(bob));
+        conversation.applyFilters(filters);
+
+        assertEquals(2, conversation.getMessages().size());
+        assertEquals("Hello there!", conversation.getMessages().get(0).getContent());
+        assertEquals(2, conversation.getUsers().get(bob).getActivity());
+    }
+
+    private byte[] export(String output, String... options) throws Exception {
+        File file = new File(folder.getRoot(), output);
+        List<String> args = new ArrayList<>(Arrays.asList("resources/chat.txt", file.getPath()));
+        args.addAll(Arrays.asList(options));
+
+        ConversationExporterConfiguration conf =
+                new CommandLineArgumentParser().parseCommandLineArguments(args.toArray(new String[0]));
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setMessageMemory(conf.getMessageMemory(), Paths.get(conf.getMessageDirectory()));
+        exporter.exportConversation(conf);
+        return Files.readAllBytes(file.toPath());
+    }
+}
@@ -0,0 +1,117 @@
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.User;
+import mychat.conversationexporter.BinaryConversationReader;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import mychat.conversationexporter.ConversationWriter;
+import mychat.conversationexporter.OutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link OutputFormat}s.
+ */
+public class OutputFormatTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a newline-delimited export has the name, one line per message and the users as trailer
+     * @throws Exception
+     */
+    @Test
+    public void testNdjson() throws Exception {
+        File output = export("ndjson", "-u", "bob", "-top", "1");
+
+        List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+
+        assertEquals(5, lines.size());
+        assertEquals("{\"name\":\"My Conversation\"}", lines.get(0));
+        assertEquals("{\"content\":\"Hello there! Credit card 12345678123456; Telephone 012382189\","
+                + "\"timestamp\":1448470901,\"senderId\":\"bob\"}", lines.get(1));
+        assertEquals("{\"users\":{\"bob\":{\"name\":\"bob\",\"activity\":3}}}", lines.get(4));
+    }
+
+    /**
+     * Tests that a binary export reads back as the exported conversation, and is smaller than its JSON
+     * @throws Exception
+     */
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        File binary = export("binary", "-bl", "Hello", "-top", "2");
+        File json = export("json", "-bl", "Hello", "-top", "2");
+
+        Conversation conversation;
+        try (BinaryConversationReader r = new BinaryConversationReader(new FileInputStream(binary))) {
+            conversation = r.readConversation();
+        }
+
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        try (ConversationWriter w = OutputFormat.JSON.open(rewritten)) {
+            w.write(conversation);
+        }
+        assertEquals(new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8),
+                new String(rewritten.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(binary.length() < json.length());
+    }
+
+    /**
+     * Tests that the binary reader is a cursor over the messages, followed by the users
+     * @throws Exception
+     */
+    @Test
+    public void testBinaryCursor() throws Exception {
+        File binary = export("binary", "-u", "mike");
+
+        try (BinaryConversationReader r = new BinaryConversationReader(new FileInputStream(binary))) {
+            assertEquals("My Conversation", r.readConversationName());
+
+            assertTrue(r.next());
+            Message message = r.getMessage();
+            assertEquals(1448470905, message.getTimestamp().getEpochSecond());
+            assertEquals("mike", message.getSenderId());
+            assertEquals("how are you?", message.getContent());
+
+            assertTrue(r.next());
+            assertEquals("no, let me ask Angus...", r.getMessage().getContent());
+            assertFalse(r.next());
+
+            Map<String, User> users = r.getUsers();
+            assertEquals(1, users.size());
+            assertEquals(2, users.get("mike").getActivity());
+        }
+    }
+
+    private File export(String format, String... filters) throws Exception {
+        File output = new File(folder.getRoot(), "chat." + format);
+        String[] args = new String[filters.length + 4];
+        args[0] = "resources/chat.txt";
+        args[1] = output.getPath();
+        System.arraycopy(filters, 0, args, 2, filters.length);
+        args[args.length - 2] = "-of";
+        args[args.length - 1] = format;
+
+        ConversationExporterConfiguration conf = new CommandLineArgumentParser().parseCommandLineArguments(args);
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setOutputFormat(conf.getOutputFormat());
+        exporter.exportConversation(conf);
+        return output;
+    }
+}
@@ -0,0 +1,148 @@
+import mychat.conversation.Conversation;
+import mychat.conversation.Message;
+import mychat.conversation.MessageMemory;
+import mychat.conversation.MessageStore;
+import mychat.conversation.User;
+import mychat.conversationexporter.MappedChatLogReader;
+import mychat.conversationexporter.ParallelConversationReader;
+import mychat.conversationexporter.TimeIndex;
+import mychat.conversationexporter.TimeRange;
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.filter.KeywordFinderFilter;
+import mychat.metrics.MetricsListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link ParallelConversationReader}.
+ */
+public class ParallelConversationReaderTests {
+
+    private static final int MESSAGES = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a conversation split into many chunks is read as it is read sequentially, in the same order
+     * @throws Exception
+     */
+    @Test
+    public void testManyChunksGiveSequentialConversation() throws Exception {
+        File input = folder.newFile("chat.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("My Conversation");
+        for (int i = 0; i < MESSAGES; i++) {
+            // lines of different lengths, so that the chunk boundaries fall anywhere in them
+            lines.add((1448470901L + i) + " user" + (i % 13) + " message " + i + (i % 3 == 0 ? " kept" : "")
+                    + (i % 7 == 0 ? "" : " with a longer tail " + i * 31));
+            if (i % 100 == 0) {
+                lines.add("");
+            }
+        }
+        Files.write(input.toPath(), lines, StandardCharsets.UTF_8);
+
+        List<Filter> filters = Collections.singletonList(new KeywordFinderFilter("kept"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long chunkSize : new long[]{1, 64, 1000, 1 << 20}) {
+                Conversation parallel = new ParallelConversationReader(pool, chunkSize)
+                        .read(input.toPath(), FilterChain.compile(filters));
+                assertSameConversation(readSequentially(input, filters), parallel);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the messages of each task are held in the memory of the reader, the conversation being the same
+     * @throws Exception
+     */
+    @Test
+    public void testMappedMemory() throws Exception {
+        File input = folder.newFile("chat.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("My Conversation");
+        for (int i = 0; i < MESSAGES; i++) {
+            lines.add((1448470901L + i) + " user" + (i % 13) + " message " + i + (i % 3 == 0 ? " kept" : ""));
+        }
+        Files.write(input.toPath(), lines, StandardCharsets.UTF_8);
+        Path directory = folder.newFolder("messages").toPath();
+
+        List<Filter> filters = Collections.singletonList(new KeywordFinderFilter("kept"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (MessageStore messages = MessageMemory.MAPPED.newStore(directory)) {
+            Conversation parallel = new ParallelConversationReader(pool, 1000, MessageMemory.MAPPED, directory)
+                    .read(input.toPath(), FilterChain.compile(filters), MetricsListener.NONE, TimeRange.ALL,
+                            TimeIndex.empty(), messages);
+            assertSameConversation(readSequentially(input, filters), parallel);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the tasks create their stores in the memory of the reader, which cannot be mapped in a missing
+     * directory
+     * @throws Exception
+     */
+    @Test(expected = NoSuchFileException.class)
+    public void testMappedMemoryInMissingDirectory() throws Exception {
+        File input = folder.newFile("chat.txt");
+        Files.write(input.toPath(), Arrays.asList("My Conversation", "1448470901 bob Hello there!"),
+                StandardCharsets.UTF_8);
+
+        new ParallelConversationReader(ForkJoinPool.commonPool(), 1, MessageMemory.MAPPED,
+                folder.getRoot().toPath().resolve("missing"))
+                .read(input.toPath(), FilterChain.compile(Collections.<Filter>emptyList()));
+    }
+
+    private static Conversation readSequentially(File input, List<Filter> filters) throws Exception {
+        List<Message> messages = new ArrayList<>();
+        String name;
+        try (MappedChatLogReader reader = new MappedChatLogReader(input.toPath())) {
+            name = reader.readConversationName();
+            while (reader.next()) {
+                messages.add(reader.getMessage());
+            }
+        }
+        Conversation conversation = new Conversation(name, messages);
+        conversation.applyFilters(filters);
+        return conversation;
+    }
+
+    private static void assertSameConversation(Conversation expected, Conversation actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getMessages().size(), actual.getMessages().size());
+        for (int i = 0; i < expected.getMessages().size(); i++) {
+            Message message = expected.getMessages().get(i);
+            Message other = actual.getMessages().get(i);
+            assertEquals(message.getTimestamp(), other.getTimestamp());
+            assertEquals(message.getSenderId(), other.getSenderId());
+            assertEquals(message.getContent(), other.getContent());
+        }
+
+        Map<String, User> users = actual.getUsers();
+        assertEquals(expected.getUsers().keySet(), users.keySet());
+        for (Map.Entry<String, User> user : expected.getUsers().entrySet()) {
+            assertEquals(user.getKey(), user.getValue().getActivity(), users.get(user.getKey()).getActivity());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import mychat.conversation.Message;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.filter.Filter;
+import mychat.filter.FilterChain;
+import mychat.filter.KeywordFinderFilter;
+import mychat.filter.obfuscate.PiiObfuscateFilter;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link PiiObfuscateFilter}.
+ */
+public class PiiObfuscateFilterTests {
+
+    private static final String REDACTED = "*redacted*";
+
+    private String obfuscate(String content, boolean creditCards, boolean telephones) {
+        Message message = new Message(Instant.EPOCH, "bob", content);
+        return new PiiObfuscateFilter(creditCards, telephones).apply(message).getContent();
+    }
+
+    /**
+     * Tests that card numbers passing the Luhn check are obfuscated, with or without separators
+     * @throws Exception
+     */
+    @Test
+    public void testCreditCards() throws Exception {
+        assertEquals("card " + REDACTED + ".", obfuscate("card 4111111111111111.", true, false));
+        assertEquals("card " + REDACTED + " ok", obfuscate("card 4111 1111 1111 1111 ok", true, false));
+        assertEquals("card " + REDACTED + " 2", obfuscate("card 4111-1111-1111-1111 2", true, false));
+    }
+
+    /**
+     * Tests that long numbers failing the Luhn check, like order ids, are left alone
+     * @throws Exception
+     */
+    @Test
+    public void testOrderIdsAreNotCards() throws Exception {
+        assertEquals("order 12345678123456", obfuscate("order 12345678123456", true, false));
+        assertEquals("order 4111 1111 1111 1112", obfuscate("order 4111 1111 1111 1112", true, false));
+    }
+
+    /**
+     * Tests that telephone numbers are obfuscated and short numbers are left alone
+     * @throws Exception
+     */
+    @Test
+    public void testTelephones() throws Exception {
+        assertEquals("call " + REDACTED + " at 5", obfuscate("call 012382189 at 5", false, true));
+        assertEquals("call 012382189", obfuscate("call 012382189", true, false));
+    }
+
+    /**
+     * Tests that both kinds of numbers are obfuscated in a single pass
+     * @throws Exception
+     */
+    @Test
+    public void testCreditCardsAndTelephones() throws Exception {
+        assertEquals("Credit card " + REDACTED + "; Telephone " + REDACTED,
+                obfuscate("Credit card 4111111111111111; Telephone 012382189", true, true));
+    }
+
+    /**
+     * Tests that a message without numbers is left as it is
+     * @throws Exception
+     */
+    @Test
+    public void testLeavesMessageWithoutNumbersUntouched() throws Exception {
+        String content = "how are you? 42";
+        assertSame(content, obfuscate(content, true, true));
+    }
+
+    /**
+     * Tests that consecutive -cco and -to share a scan, while one given after another filter keeps its place
+     * @throws Exception
+     */
+    @Test
+    public void testArgumentsKeepTheirOrder() throws Exception {
+        List<Filter> filters = parse("-cco", "-to");
+        assertEquals(1, filters.size());
+        assertTrue(((PiiObfuscateFilter) filters.get(0)).isCreditCards());
+        assertTrue(((PiiObfuscateFilter) filters.get(0)).isTelephones());
+
+        filters = parse("-cco", "-kw", "012382189", "-to");
+        assertEquals(3, filters.size());
+        assertTrue(filters.get(1) instanceof KeywordFinderFilter);
+        assertEquals("Credit card " + REDACTED + "; Telephone " + REDACTED, new FilterChain(filters).apply(
+                new Message(Instant.EPOCH, "bob", "Credit card 4111111111111111; Telephone 012382189")).getContent());
+    }
+
+    private static List<Filter> parse(String... options) {
+        List<String> args = new ArrayList<>(Arrays.asList("resources/chat.txt", "resources/chat.json"));
+        args.addAll(Arrays.asList(options));
+        return new ArrayList<>(new CommandLineArgumentParser().parseCommandLineArguments(args.toArray(new String[0]))
+                .getFilters());
+    }
+}
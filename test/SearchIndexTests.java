@@ -0,0 +1,160 @@
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import mychat.conversationexporter.SearchIndex;
+import mychat.filter.KeywordFinderFilter;
+import mychat.filter.UserFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link SearchIndex} and the exports using it.
+ */
+public class SearchIndexTests {
+
+    private static final int MESSAGES = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the index finds every message of a user, and the messages which may hold a keyword
+     * @throws Exception
+     */
+    @Test
+    public void testFind() throws Exception {
+        Path conversation = folder.getRoot().toPath().resolve("chat.txt");
+        write(conversation, 0, MESSAGES);
+        SearchIndex index = SearchIndex.build(conversation);
+        assertEquals(MESSAGES, index.getMessageCount());
+        assertTrue(Files.exists(SearchIndex.sidecar(conversation)));
+
+        // user3 sends the messages 3, 10, ... 997
+        long[] found = SearchIndex.load(conversation).find(Collections.singletonList(new UserFilter("user3")));
+        assertEquals(143, found.length);
+
+        // the keyword is part of the words "topic42" and "TOPIC42", and is found regardless of its case
+        found = index.find(Collections.singletonList(new KeywordFinderFilter("opic42", true, false)));
+        assertEquals(MESSAGES / 50, found.length);
+        found = index.find(Arrays.asList(new UserFilter("user3"), new KeywordFinderFilter("topic42")));
+        assertTrue(found.length > 0 && found.length < MESSAGES / 7);
+
+        // a whole word is looked up as a word, and a word after a boundary as the start of a word
+        found = index.find(Collections.singletonList(new KeywordFinderFilter("TOPIC4", true, true)));
+        assertEquals(MESSAGES / 50, found.length);
+        found = index.find(Collections.singletonList(new KeywordFinderFilter("of topic4")));
+        assertEquals(MESSAGES / 50 * 11, found.length);
+
+        // a keyword without words cannot be looked up
+        assertNull(index.find(Collections.singletonList(new KeywordFinderFilter("??"))));
+    }
+
+    /**
+     * Tests that every export mode exports the same conversation with and without index
+     * @throws Exception
+     */
+    @Test
+    public void testExportWithIndex() throws Exception {
+        Path conversation = folder.getRoot().toPath().resolve("chat.txt");
+        write(conversation, 0, MESSAGES);
+        SearchIndex.build(conversation);
+
+        String[][] queries = {
+                {"-u", "user3"},
+                {"-kw", "Topic4"},
+                {"-kw", "opic4", "-ci"},
+                {"-kw", "of topic", "-ww"},
+                {"-kw", "of topic4", "-ww"},
+                {"-kw", "message 9"},
+                {"-kwf", keywords("topic42", "\u00c9t\u00e9", "message 99").toString(), "-ci"},
+                {"-u", "user2", "-kw", "topic4"},
+                {"-bl", "topic42", "-kw", "redacted"},
+                {"-u", "user1", "-uo", "-uok", "test-key"},
+                {"-kw", "topic4", "--from", "1100", "--to", "1300"},
+        };
+        for (String[] query : queries) {
+            byte[] expected = export(conversation.toString(), "expected.json", query);
+            for (String mode : new String[]{"", "-s", "-p"}) {
+                List<String> options = new ArrayList<>(Arrays.asList(query));
+                options.add("-si");
+                if (!mode.isEmpty()) {
+                    options.add(mode);
+                }
+                assertArrayEquals(Arrays.toString(query) + " " + mode, expected,
+                        export(conversation.toString(), "indexed.json", options.toArray(new String[0])));
+            }
+        }
+    }
+
+    /**
+     * Tests that the index of a conversation which changed is not used
+     * @throws Exception
+     */
+    @Test
+    public void testChangedConversation() throws Exception {
+        Path conversation = folder.getRoot().toPath().resolve("chat.txt");
+        write(conversation, 0, MESSAGES / 2);
+        SearchIndex.build(conversation);
+        assertNotNull(SearchIndex.load(conversation));
+
+        write(conversation, MESSAGES / 2, MESSAGES);
+        assertNull(SearchIndex.load(conversation));
+        assertArrayEquals(export(conversation.toString(), "expected.json", "-u", "user3"),
+                export(conversation.toString(), "indexed.json", "-u", "user3", "-si"));
+    }
+
+    /**
+     * Writes messages {@code [from, to)} of a conversation, some of them following a blank line.
+     */
+    private static void write(Path conversation, int from, int to) throws Exception {
+        StringBuilder text = new StringBuilder(from == 0 ? "My Conversation\n" : "");
+        for (int i = from; i < to; i++) {
+            String topic = (i % 3 == 0 ? "TOPIC" : "topic") + (i % 50);
+            String line = (1000 + i / 2) + " user" + (i % 7) + " message " + i + " of " + topic
+                    + (i % 11 == 0 ? " \u00e9t\u00e9" : "") + "\n";
+            if (i % 100 == 50) {
+                line = "\n" + line;
+            }
+            text.append(line);
+        }
+        Files.write(conversation, text.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private File keywords(String... keywords) throws Exception {
+        File file = new File(folder.getRoot(), "keywords.txt");
+        Files.write(file.toPath(), Arrays.asList(keywords), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private byte[] export(String input, String output, String... options) throws Exception {
+        File file = new File(folder.getRoot(), output);
+        List<String> args = new ArrayList<>(Arrays.asList(input, file.getPath()));
+        args.addAll(Arrays.asList(options));
+
+        ConversationExporterConfiguration conf =
+                new CommandLineArgumentParser().parseCommandLineArguments(args.toArray(new String[0]));
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setTimeRange(conf.getTimeRange(), conf.getTimeIndexInterval());
+        exporter.setSearchIndex(conf.isSearchIndex());
+        exporter.exportConversation(conf);
+        return Files.readAllBytes(file.toPath());
+    }
+}
@@ -0,0 +1,156 @@
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.conversationexporter.ConversationExporter;
+import mychat.conversationexporter.ConversationExporterConfiguration;
+import mychat.conversationexporter.TimeIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link TimeIndex} and the exports of a time range.
+ */
+public class TimeIndexTests {
+
+    private static final int MESSAGES = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that searching with or without index finds the first message at or after each timestamp
+     * @throws Exception
+     */
+    @Test
+    public void testSeek() throws Exception {
+        Path conversation = folder.getRoot().toPath().resolve("chat.txt");
+        List<Long> offsets = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        write(conversation, 0, MESSAGES, offsets, timestamps);
+
+        TimeIndex index = TimeIndex.open(conversation, 512);
+        assertTrue(index.size() > 10);
+        assertTrue(Files.exists(TimeIndex.sidecar(conversation)));
+
+        try (FileChannel channel = FileChannel.open(conversation, StandardOpenOption.READ)) {
+            for (long timestamp = 990; timestamp < 1010 + MESSAGES / 2; timestamp += 7) {
+                long expected = expectedOffset(offsets, timestamps, timestamp, channel.size());
+                assertEquals(expected, TimeIndex.empty().seek(channel, timestamp));
+                assertEquals(expected, index.seek(channel, timestamp));
+            }
+        }
+    }
+
+    /**
+     * Tests that a saved index is extended when the conversation is appended to
+     * @throws Exception
+     */
+    @Test
+    public void testAppendedConversation() throws Exception {
+        Path conversation = folder.getRoot().toPath().resolve("chat.txt");
+        List<Long> offsets = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        write(conversation, 0, MESSAGES / 2, offsets, timestamps);
+        int entries = TimeIndex.open(conversation, 512).size();
+
+        write(conversation, MESSAGES / 2, MESSAGES, offsets, timestamps);
+        TimeIndex index = TimeIndex.open(conversation, 512);
+        assertTrue(index.size() > entries);
+
+        try (FileChannel channel = FileChannel.open(conversation, StandardOpenOption.READ)) {
+            long timestamp = timestamps.get(MESSAGES - 10);
+            assertEquals(expectedOffset(offsets, timestamps, timestamp, channel.size()), index.seek(channel, timestamp));
+        }
+    }
+
+    /**
+     * Tests that every export mode exports the messages of the time range only
+     * @throws Exception
+     */
+    @Test
+    public void testExportTimeRange() throws Exception {
+        Path conversation = folder.getRoot().toPath().resolve("chat.txt");
+        List<Long> offsets = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        write(conversation, 0, MESSAGES, offsets, timestamps);
+
+        // the expected export is the one of a conversation holding only the messages of the range
+        Path window = folder.getRoot().toPath().resolve("window.txt");
+        List<String> lines = Files.readAllLines(conversation, StandardCharsets.UTF_8);
+        List<String> windowLines = new ArrayList<>(Arrays.asList(lines.get(0)));
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            long timestamp = Long.parseLong(line.substring(0, line.indexOf(' ')));
+            if (timestamp >= 1300 && timestamp < 1500) {
+                windowLines.add(line);
+            }
+        }
+        Files.write(window, windowLines, StandardCharsets.UTF_8);
+        byte[] expected = export(window.toString(), "expected.json");
+
+        assertArrayEquals(expected, export(conversation.toString(), "regular.json", "--from", "1300", "--to", "1500"));
+        assertArrayEquals(expected, export(conversation.toString(), "streamed.json", "--from", "1300", "--to", "1500",
+                "-s", "--index"));
+        assertArrayEquals(expected, export(conversation.toString(), "parallel.json", "--from", "1300", "--to", "1500",
+                "-p", "--index-interval", "1"));
+    }
+
+    /**
+     * Writes messages {@code [from, to)} of a conversation, two messages being sent each second and some of them
+     * following a blank line, which is found with them.
+     */
+    private static void write(Path conversation, int from, int to, List<Long> offsets, List<Long> timestamps)
+            throws Exception {
+        StringBuilder text = new StringBuilder(from == 0 ? "My Conversation\n" : "");
+        long offset = Files.exists(conversation) ? Files.size(conversation) : 0;
+        for (int i = from; i < to; i++) {
+            long timestamp = 1000 + i / 2;
+            String line = timestamp + " user" + (i % 7) + " message " + i + " of the conversation\n";
+            if (i % 100 == 50) {
+                line = "\n" + line;
+            }
+            offsets.add(offset + text.length());
+            timestamps.add(timestamp);
+            text.append(line);
+        }
+        Files.write(conversation, text.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static long expectedOffset(List<Long> offsets, List<Long> timestamps, long timestamp, long size) {
+        for (int i = 0; i < timestamps.size(); i++) {
+            if (timestamps.get(i) >= timestamp) {
+                return offsets.get(i);
+            }
+        }
+        return size;
+    }
+
+    private byte[] export(String input, String output, String... options) throws Exception {
+        File file = new File(folder.getRoot(), output);
+        List<String> args = new ArrayList<>(Arrays.asList(input, file.getPath(), "-u", "user3"));
+        args.addAll(Arrays.asList(options));
+
+        ConversationExporterConfiguration conf =
+                new CommandLineArgumentParser().parseCommandLineArguments(args.toArray(new String[0]));
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setTimeRange(conf.getTimeRange(), conf.getTimeIndexInterval());
+        exporter.exportConversation(conf);
+        return Files.readAllBytes(file.toPath());
+    }
+}
@@ -0,0 +1,132 @@
+import mychat.conversation.Message;
+import mychat.conversationexporter.CommandLineArgumentParser;
+import mychat.filter.obfuscate.Pseudonymizer;
+import mychat.filter.obfuscate.UserPseudonymFilter;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for the {@link UserPseudonymFilter} and its {@link Pseudonymizer}.
+ */
+public class UserPseudonymFilterTests {
+
+    private static final byte[] KEY = "test-key".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Tests that a user always gets the same pseudonym for the same key and salt, and another one otherwise
+     * @throws Exception
+     */
+    @Test
+    public void testPseudonymsAreKeyed() throws Exception {
+        Pseudonymizer pseudonymizer = new Pseudonymizer(KEY, null, Pseudonymizer.DEFAULT_CACHE_SIZE);
+        String bob = pseudonymizer.pseudonym("bob");
+
+        assertTrue(bob.matches("user-[0-9a-f]{16}"));
+        assertEquals(bob, pseudonymizer.pseudonym("bob"));
+        assertEquals(bob, new Pseudonymizer(KEY, null, 0).pseudonym("bob"));
+        assertNotEquals(bob, pseudonymizer.pseudonym("mike"));
+        assertNotEquals(bob, new Pseudonymizer(KEY, "salt", 0).pseudonym("bob"));
+        assertNotEquals(bob, new Pseudonymizer("other-key".getBytes(StandardCharsets.UTF_8), null, 0).pseudonym("bob"));
+    }
+
+    /**
+     * Tests that the sender and the whole-word mentions of the users are replaced by the same pseudonyms
+     * @throws Exception
+     */
+    @Test
+    public void testMentionsGetTheSamePseudonyms() throws Exception {
+        Pseudonymizer pseudonymizer = new Pseudonymizer(KEY, null, 1);
+        UserPseudonymFilter filter = new UserPseudonymFilter(pseudonymizer)
+                .withMentionsOf(Arrays.asList("bob", "angus"));
+
+        Message message = filter.apply(new Message(Instant.ofEpochSecond(1), "mike", "Ask Angus, not bobby or bob!"));
+
+        assertEquals(pseudonymizer.pseudonym("mike"), message.getSenderId());
+        assertEquals("Ask " + pseudonymizer.pseudonym("angus") + ", not bobby or " + pseudonymizer.pseudonym("bob") + "!",
+                message.getContent());
+    }
+
+    /**
+     * Tests that only the sender is replaced when the users of the conversation are not known
+     * @throws Exception
+     */
+    @Test
+    public void testSenderOnlyWithoutUsers() throws Exception {
+        Pseudonymizer pseudonymizer = new Pseudonymizer(KEY, null, Pseudonymizer.DEFAULT_CACHE_SIZE);
+
+        Message message = new UserPseudonymFilter(pseudonymizer)
+                .apply(new Message(Instant.ofEpochSecond(1), "bob", "I'm bob"));
+
+        assertEquals(pseudonymizer.pseudonym("bob"), message.getSenderId());
+        assertEquals("I'm bob", message.getContent());
+    }
+
+    /**
+     * Tests that a message without a sender keeps no sender, and is not given a pseudonym
+     * @throws Exception
+     */
+    @Test
+    public void testMessageWithoutSender() throws Exception {
+        Pseudonymizer pseudonymizer = new Pseudonymizer(KEY, null, Pseudonymizer.DEFAULT_CACHE_SIZE);
+
+        Message message = new UserPseudonymFilter(pseudonymizer)
+                .apply(new Message(Instant.ofEpochSecond(1), null, "Hello"));
+
+        assertNull(message.getSenderId());
+        assertNull(pseudonymizer.pseudonym(null));
+    }
+
+    /**
+     * Tests that a full cache evicts its least recently used pseudonyms and still gives the same pseudonyms
+     * @throws Exception
+     */
+    @Test
+    public void testFullCacheGivesSamePseudonyms() throws Exception {
+        Pseudonymizer cached = new Pseudonymizer(KEY, null, 20);
+        Pseudonymizer uncached = new Pseudonymizer(KEY, null, 0);
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(uncached.pseudonym("user" + i), cached.pseudonym("user" + i));
+            }
+        }
+    }
+
+    /**
+     * Tests that the pseudonym key may not be empty
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKey() throws Exception {
+        new Pseudonymizer(new byte[0], null, Pseudonymizer.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Tests that pseudonyms without a key are refused, unless a random key is asked for
+     * @throws Exception
+     */
+    @Test
+    public void testPseudonymsNeedKey() throws Exception {
+        assumeTrue(System.getenv("MYCHAT_PSEUDONYM_KEY") == null);
+        CommandLineArgumentParser parser = new CommandLineArgumentParser();
+
+        try {
+            parser.parseCommandLineArguments(new String[]{"resources/chat.txt", "resources/chat.json", "-uo"});
+            fail("pseudonyms without key");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("-uor"));
+        }
+        assertTrue(parser.parseCommandLineArguments(new String[]{"resources/chat.txt", "resources/chat.json", "-uor"})
+                .getFilters().iterator().next() instanceof UserPseudonymFilter);
+    }
+}